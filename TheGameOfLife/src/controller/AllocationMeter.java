@@ -0,0 +1,73 @@
+package controller;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+
+/**
+ * This class reads the memory allocated by the running thread,
+ * used to check that the generation loop allocates nothing once warmed up.
+ * It relies on the extension of the thread bean of HotSpot based virtual machines.
+ * The allocation free reading of the calling thread only exists from Java 14: on older
+ * versions, the meter reads the thread by its identifier, which allocates a few bytes.
+ *
+ */
+public final class AllocationMeter {
+
+	private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+	// ThreadMXBean.getCurrentThreadAllocatedBytes(), invoked exactly so that its result is not boxed
+	private static final Optional<MethodHandle> CURRENT_THREAD_ALLOCATED_BYTES = findCurrentThreadAllocatedBytes();
+
+
+	private AllocationMeter() {
+	}
+
+	/*
+	 * Gets the thread bean, if it can measure allocations.
+	 */
+	private static com.sun.management.ThreadMXBean threadBean() {
+		final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			final com.sun.management.ThreadMXBean res = (com.sun.management.ThreadMXBean) bean;
+			if (res.isThreadAllocatedMemorySupported()) {
+				if (!res.isThreadAllocatedMemoryEnabled()) {
+					res.setThreadAllocatedMemoryEnabled(true);
+				}
+				return res;
+			}
+		}
+		return null;
+	}
+
+	private static Optional<MethodHandle> findCurrentThreadAllocatedBytes() {
+		try {
+			return Optional.of(MethodHandles.publicLookup().findVirtual(com.sun.management.ThreadMXBean.class,
+					"getCurrentThreadAllocatedBytes", MethodType.methodType(long.class)));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Reads the memory allocated so far by the calling thread. It allocates nothing from Java 14.
+	 *
+	 * @return the number of bytes allocated by the calling thread, a negative value
+	 * if it is not available (e.g. on a virtual thread).
+	 */
+	public static long currentThreadAllocatedBytes() {
+		if (THREADS == null) {
+			return -1;
+		}
+		if (CURRENT_THREAD_ALLOCATED_BYTES.isPresent()) {
+			try {
+				return (long) CURRENT_THREAD_ALLOCATED_BYTES.get().invokeExact(THREADS);
+			} catch (Throwable e) {
+				// Falls back to the reading by identifier
+			}
+		}
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+}
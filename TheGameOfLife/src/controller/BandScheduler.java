@@ -0,0 +1,220 @@
+package controller;
+
+import java.awt.Point;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class distributes the cells to evaluate among the workers of the pool.
+ * The map is split in contiguous bands of rows, one for each worker thread,
+ * and every thread keeps the same band across generations, so that it works
+ * on rows still in its cache. Chunks of a band are claimed by its owner first;
+ * a thread that runs out of work steals chunks from the nearest bands.
+ * The cells to evaluate must be sorted by row; they can also be tiles of cells,
+ * identified by their position in the grid of tiles.
+ *
+ */
+public class BandScheduler {
+
+	// Distance between two cursors, so that each one lies on its own cache line
+	private static final int PADDING = 16;
+	private static final long NO_CHUNK = -1;
+
+	private final int bands;
+	private int chunkSize;
+	// Next cell to claim and end of each band, at index band * PADDING
+	private final AtomicIntegerArray cursors;
+	private final int[] ends;
+
+	// Band owned by each thread, assigned the first time the thread claims a chunk
+	private final AtomicInteger nextBand;
+	private final ThreadLocal<Integer> ownBand;
+
+	private final LongAdder localChunks;
+	private final LongAdder stolenChunks;
+
+
+	/**
+	 * Constructs a new scheduler.
+	 *
+	 * @param bands
+	 * 		the number of bands (the number of threads of the pool)
+	 */
+	public BandScheduler(final int bands) {
+		if (bands < 1) {
+			throw new IllegalArgumentException("Bands must be positive");
+		}
+		this.bands = bands;
+		this.chunkSize = 1;
+		this.cursors = new AtomicIntegerArray(bands * PADDING);
+		this.ends = new int[bands];
+		this.nextBand = new AtomicInteger();
+		this.ownBand = ThreadLocal.withInitial(() -> this.nextBand.getAndIncrement() % this.bands);
+		this.localChunks = new LongAdder();
+		this.stolenChunks = new LongAdder();
+	}
+
+	/*
+	 * Index of the first cell of a range whose row is not less than the specified one.
+	 */
+	private static int firstIndexOfRow(final List<Point> cells, final int from, final int to, final int row) {
+		int low = from;
+		int high = to;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (cells.get(mid).y < row) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Splits the cells to evaluate for a new generation into bands.
+	 * It must be called before the tasks of the generation start.
+	 *
+	 * @param cells
+	 * 		the cells to evaluate, sorted by row
+	 * @param mapHeight
+	 * 		the number of rows of the map
+	 * @param chunkSize
+	 * 		the number of cells claimed at a time
+	 */
+	public void prepare(final List<Point> cells, final int mapHeight, final int chunkSize) {
+		prepare(cells, 0, cells.size(), mapHeight, chunkSize);
+	}
+	
+	/**
+	 * Splits a range of the cells to evaluate into bands, so that the range
+	 * is computed on its own (e.g. before the rest of the cells).
+	 * It must be called before the tasks start.
+	 *
+	 * @param cells
+	 * 		the cells to evaluate, sorted by row inside the range
+	 * @param from
+	 * 		the index of the first cell of the range
+	 * @param to
+	 * 		the index after the last cell of the range
+	 * @param mapHeight
+	 * 		the number of rows of the map
+	 * @param chunkSize
+	 * 		the number of cells claimed at a time
+	 */
+	public void prepare(final List<Point> cells, final int from, final int to, final int mapHeight, final int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be positive");
+		}
+		if (from < 0 || to > cells.size() || from > to) {
+			throw new IllegalArgumentException("Range must lie inside the list of cells");
+		}
+		this.chunkSize = chunkSize;
+		int start = from;
+		for (int b = 0; b < this.bands; b++) {
+			final int end = b == this.bands - 1
+					? to : firstIndexOfRow(cells, start, to, (int) ((long) mapHeight * (b + 1) / this.bands));
+			this.ends[b] = end;
+			this.cursors.set(b * PADDING, start);
+			start = end;
+		}
+	}
+
+	/*
+	 * Claims a chunk of a band, returning its start and end packed in a long.
+	 */
+	private long claimFrom(final int band) {
+		final int end = this.ends[band];
+		if (this.cursors.get(band * PADDING) >= end) {
+			return NO_CHUNK;
+		}
+		final int start = this.cursors.getAndAdd(band * PADDING, this.chunkSize);
+		if (start >= end) {
+			return NO_CHUNK;
+		}
+		return ((long) start << Integer.SIZE) | Math.min(start + this.chunkSize, end);
+	}
+
+	/**
+	 * Claims the next chunk for the calling thread: from its own band if possible,
+	 * otherwise from the nearest band with work left.
+	 *
+	 * @return the start index (in the high 32 bits) and the end index (in the low 32 bits)
+	 * of the chunk, a negative value if every chunk has been claimed.
+	 */
+	public long claim() {
+		final int band = this.ownBand.get();
+		long chunk = claimFrom(band);
+		if (chunk != NO_CHUNK) {
+			this.localChunks.increment();
+			return chunk;
+		}
+		// Steals from the neighbors, alternating below and above
+		for (int distance = 1; distance < this.bands; distance++) {
+			chunk = band + distance < this.bands ? claimFrom(band + distance) : NO_CHUNK;
+			if (chunk == NO_CHUNK && band - distance >= 0) {
+				chunk = claimFrom(band - distance);
+			}
+			if (chunk != NO_CHUNK) {
+				this.stolenChunks.increment();
+				return chunk;
+			}
+		}
+		return NO_CHUNK;
+	}
+
+	/**
+	 * @param chunk
+	 * 		a chunk returned by {@link #claim()}
+	 * @return the index of the first cell of the chunk.
+	 */
+	public static int chunkStart(final long chunk) {
+		return (int) (chunk >>> Integer.SIZE);
+	}
+
+	/**
+	 * @param chunk
+	 * 		a chunk returned by {@link #claim()}
+	 * @return the index after the last cell of the chunk.
+	 */
+	public static int chunkEnd(final long chunk) {
+		return (int) chunk;
+	}
+
+	/**
+	 * @return true if every chunk of the current generation has been claimed.
+	 */
+	public boolean isComplete() {
+		for (int b = 0; b < this.bands; b++) {
+			if (this.cursors.get(b * PADDING) < this.ends[b]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of chunks computed by the owner of their band.
+	 */
+	public long getLocalChunks() {
+		return this.localChunks.sum();
+	}
+
+	/**
+	 * @return the number of chunks stolen from the band of another thread.
+	 */
+	public long getStolenChunks() {
+		return this.stolenChunks.sum();
+	}
+
+	/**
+	 * Resets the locality and steal counters.
+	 */
+	public void resetCounters() {
+		this.localChunks.reset();
+		this.stolenChunks.reset();
+	}
+
+}
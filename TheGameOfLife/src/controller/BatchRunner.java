@@ -0,0 +1,148 @@
+package controller;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import model.LifeRule;
+
+/**
+ * This class runs a batch of independent universes, each one from its own random soup,
+ * and writes their results to a CSV file as they complete.
+ * Universes are small, so each one is computed by a single worker from start to end
+ * and the workers run different universes in parallel, instead of spreading
+ * a single map on all the cores.
+ *
+ */
+public class BatchRunner {
+
+	private static final String HEADER = "universe,seed,density,outcome,lifespan,final_population,period";
+
+	private final Dimension mapDimension;
+	private final LifeRule rule;
+	private final double[] densities;
+	private final int universes;
+	private final long maxGenerations;
+	private final long seed;
+	private final int workers;
+	private final Flag stopFlag;
+
+
+	/**
+	 * Constructs a new batch runner.
+	 *
+	 * @param mapDimension
+	 * 		the dimension of the cell map of every universe
+	 * @param rule
+	 * 		the rule of every universe
+	 * @param densities
+	 * 		the densities of the soups, assigned to the universes in turn
+	 * @param universes
+	 * 		the number of universes to run
+	 * @param maxGenerations
+	 * 		the maximum number of generations of each universe
+	 * @param seed
+	 * 		the seed of the first universe (the following ones have the next seeds)
+	 * @param workers
+	 * 		the number of universes run in parallel
+	 */
+	public BatchRunner(final Dimension mapDimension, final LifeRule rule, final double[] densities,
+			final int universes, final long maxGenerations, final long seed, final int workers) {
+		Objects.requireNonNull(mapDimension);
+		Objects.requireNonNull(rule);
+		if (densities.length == 0) {
+			throw new IllegalArgumentException("At least one density must be specified");
+		}
+		if (universes < 1) {
+			throw new IllegalArgumentException("At least one universe must be run");
+		}
+		if (workers < 1) {
+			throw new IllegalArgumentException("Workers must be positive");
+		}
+		this.mapDimension = new Dimension(mapDimension);
+		this.rule = rule;
+		this.densities = densities.clone();
+		this.universes = universes;
+		this.maxGenerations = maxGenerations;
+		this.seed = seed;
+		this.workers = workers;
+		this.stopFlag = new Flag();
+	}
+
+	/*
+	 * Formats a result as a row of the result file.
+	 */
+	private static String toRow(final UniverseResult result) {
+		return String.format(Locale.ROOT, "%d,%d,%.4f,%s,%d,%d,%d", result.getUniverse(), result.getSeed(),
+				result.getDensity(), result.getOutcome(), result.getLifespan(), result.getFinalPopulation(),
+				result.getPeriod());
+	}
+
+	/**
+	 * Runs the batch, waiting for every universe to complete or for the batch to be stopped.
+	 *
+	 * @param results
+	 * 		the file where to write the results (replaced if it exists)
+	 * @return the summary of the completed universes.
+	 * @throws IOException
+	 * 		if the results cannot be written
+	 * @throws InterruptedException
+	 * 		if the calling thread is interrupted while waiting (the batch is stopped)
+	 */
+	public BatchSummary run(final File results) throws IOException, InterruptedException {
+		this.stopFlag.setOff();
+		final ExecutorService executor = Executors.newFixedThreadPool(this.workers,
+				ExecutionThreads.newFactory(ExecutionMode.PLATFORM_THREADS, "Universe"));
+		final Map<UniverseOutcome, Integer> outcomes = new EnumMap<>(UniverseOutcome.class);
+		final long startTime = System.nanoTime();
+		try (Writer writer = Files.newBufferedWriter(results.toPath(), StandardCharsets.UTF_8)) {
+			writer.write(HEADER + System.lineSeparator());
+			final CompletionService<UniverseResult> completion = new ExecutorCompletionService<>(executor);
+			for (int u = 0; u < this.universes; u++) {
+				completion.submit(new UniverseTask(u, this.mapDimension, this.rule,
+						this.densities[u % this.densities.length], this.seed + u, this.maxGenerations, this.stopFlag));
+			}
+			for (int u = 0; u < this.universes; u++) {
+				final UniverseResult result;
+				try {
+					result = completion.take().get();
+				} catch (CancellationException | ExecutionException e) {
+					if (this.stopFlag.isOn()) {
+						break;
+					}
+					throw new IllegalStateException("A universe failed", e.getCause());
+				}
+				outcomes.merge(result.getOutcome(), 1, Integer::sum);
+				// Flushes each result, so that a long batch can be inspected while it runs
+				writer.write(toRow(result) + System.lineSeparator());
+				writer.flush();
+			}
+		} finally {
+			this.stopFlag.setOn();
+			executor.shutdownNow();
+		}
+		return new BatchSummary(outcomes, System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Stops the batch: running universes are abandoned at their next generation
+	 * and the waiting {@link #run(File)} returns the summary of the completed ones.
+	 */
+	public void stop() {
+		this.stopFlag.setOn();
+	}
+
+}
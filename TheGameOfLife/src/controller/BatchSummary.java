@@ -0,0 +1,75 @@
+package controller;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * This class represents the summary of a batch of universes: how many universes
+ * ended with each outcome and the throughput of the batch.
+ * It is immutable.
+ *
+ */
+public class BatchSummary {
+
+	private static final double NANOS_PER_HOUR = 3600e9;
+
+	private final Map<UniverseOutcome, Integer> outcomes;
+	private final int completed;
+	private final long elapsedTime;
+
+
+	/**
+	 * Constructs a new batch summary.
+	 *
+	 * @param outcomes
+	 * 		the number of completed universes for each outcome
+	 * @param elapsedTime
+	 * 		the time elapsed since the start of the batch, in nanoseconds
+	 */
+	public BatchSummary(final Map<UniverseOutcome, Integer> outcomes, final long elapsedTime) {
+		this.outcomes = new EnumMap<>(UniverseOutcome.class);
+		for (final UniverseOutcome outcome : UniverseOutcome.values()) {
+			this.outcomes.put(outcome, outcomes.getOrDefault(outcome, 0));
+		}
+		this.completed = this.outcomes.values().stream().mapToInt(Integer::intValue).sum();
+		this.elapsedTime = elapsedTime;
+	}
+
+	/**
+	 * @return the number of completed universes.
+	 */
+	public int getCompleted() {
+		return this.completed;
+	}
+
+	/**
+	 * @param outcome
+	 * 		an outcome
+	 * @return the number of completed universes that ended with the outcome.
+	 */
+	public int getCount(final UniverseOutcome outcome) {
+		return this.outcomes.get(outcome);
+	}
+
+	/**
+	 * @return the time elapsed since the start of the batch, in nanoseconds.
+	 */
+	public long getElapsedTime() {
+		return this.elapsedTime;
+	}
+
+	/**
+	 * @return the number of universes completed per hour.
+	 */
+	public double getUniversesPerHour() {
+		return this.elapsedTime > 0 ? this.completed * NANOS_PER_HOUR / this.elapsedTime : 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d universes (%d extinct, %d cycles, %d at limit) in %.1f s: %.0f universes/hour",
+				this.completed, getCount(UniverseOutcome.EXTINCT), getCount(UniverseOutcome.CYCLE),
+				getCount(UniverseOutcome.GENERATION_LIMIT), this.elapsedTime / 1e9, getUniversesPerHour());
+	}
+
+}
@@ -0,0 +1,22 @@
+package controller;
+
+/**
+ * This enumeration represents the ways the producer computes a generation
+ * with a single generation per step.
+ *
+ */
+public enum ComputeEngine {
+
+	/**
+	 * Only the cells around the changes of the last generation are evaluated,
+	 * at a cost proportional to the activity of the population (sparse patterns, debris).
+	 */
+	CHANGE_LIST,
+
+	/**
+	 * Every cell of the tiles reachable from the alive cells is computed with a dense kernel,
+	 * at a cost proportional to the area of the population (dense soups).
+	 */
+	TILES
+
+}
@@ -5,27 +5,61 @@ import java.util.List;
 import java.util.concurrent.Callable;
 
 import model.ConwayCellMap;
+import model.PopulationAccumulator;
 
 /**
  * This class represents a task aimed at computing
  * a collection of cells for the current generation of
  * the Game of Life.
+ * The cells are claimed in chunks from a {@link BandScheduler} shared by all
+ * the tasks of the generation, and the stop flag is checked before each chunk,
+ * so that a stopped generation is abandoned within one chunk.
+ * The same task can be called at every generation, since the model reuses
+ * the list of the cells to evaluate: a call allocates nothing.
  *
  */
-public class ComputeListTask implements Callable<List<Boolean>> {
+public class ComputeListTask implements Callable<PopulationAccumulator> {
 
 	private final ConwayCellMap model;
 	private final List<Point> cells;
+	private final BandScheduler scheduler;
+	private final PopulationAccumulator statistics;
+	private final Flag stopFlag;
 
-	public ComputeListTask(final ConwayCellMap model, final List<Point> cells) {
+	/**
+	 * Constructs a new computing task.
+	 * 
+	 * @param model
+	 * 		the application model
+	 * @param cells
+	 * 		the cells to evaluate for the current generation
+	 * @param scheduler
+	 * 		the scheduler distributing the chunks of cells, shared by all the tasks
+	 * @param statistics
+	 * 		the empty accumulator of the population statistics of the task
+	 * @param stopFlag
+	 * 		the stop flag
+	 */
+	public ComputeListTask(final ConwayCellMap model, final List<Point> cells, final BandScheduler scheduler,
+			final PopulationAccumulator statistics, final Flag stopFlag) {
 		this.model = model;
 		this.cells = cells;
+		this.scheduler = scheduler;
+		this.statistics = statistics;
+		this.stopFlag = stopFlag;
 	}
 
+	/**
+	 * @return the population statistics of the cells changed by the computation.
+	 */
 	@Override
-	public List<Boolean> call() {
-		return this.model.computeCells(this.cells);
+	public PopulationAccumulator call() {
+		long chunk;
+		while (!this.stopFlag.isOn() && (chunk = this.scheduler.claim()) >= 0) {
+			this.model.computeCells(this.cells, BandScheduler.chunkStart(chunk), BandScheduler.chunkEnd(chunk),
+					this.statistics);
+		}
+		return this.statistics;
 	}
 	
 }
-
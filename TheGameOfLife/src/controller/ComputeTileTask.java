@@ -0,0 +1,77 @@
+package controller;
+
+import java.awt.Point;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import model.ConwayCellMap;
+import model.PopulationAccumulator;
+
+/**
+ * This class represents a task aimed at advancing a collection of tiles
+ * of the cell map by several generations at once.
+ * The tiles are claimed from a {@link BandScheduler} shared by all the tasks
+ * of the step, and the stop flag is checked before each claim.
+ * The same task can be called at every step, as long as the list of tiles
+ * is refilled in place.
+ *
+ */
+public class ComputeTileTask implements Callable<PopulationAccumulator> {
+
+	private final ConwayCellMap model;
+	private final List<Point> tiles;
+	private final BandScheduler scheduler;
+	private final int generations;
+	private final PopulationAccumulator statistics;
+	private final Flag stopFlag;
+	private final int tileSize;
+	private final int width;
+	private final int height;
+
+	/**
+	 * Constructs a new computing task.
+	 * 
+	 * @param model
+	 * 		the application model
+	 * @param tiles
+	 * 		the tiles of the cell map, as positions in the grid of tiles
+	 * @param scheduler
+	 * 		the scheduler distributing the tiles, shared by all the tasks
+	 * @param generations
+	 * 		the number of generations computed for each tile
+	 * @param statistics
+	 * 		the empty accumulator of the population statistics of the task
+	 * @param stopFlag
+	 * 		the stop flag
+	 */
+	public ComputeTileTask(final ConwayCellMap model, final List<Point> tiles, final BandScheduler scheduler,
+			final int generations, final PopulationAccumulator statistics, final Flag stopFlag) {
+		this.model = model;
+		this.tiles = tiles;
+		this.scheduler = scheduler;
+		this.generations = generations;
+		this.statistics = statistics;
+		this.stopFlag = stopFlag;
+		this.tileSize = model.getTileSize();
+		this.width = model.getCellMapDimension().width;
+		this.height = model.getCellMapDimension().height;
+	}
+
+	/**
+	 * @return the population statistics of the computed tiles.
+	 */
+	@Override
+	public PopulationAccumulator call() {
+		long chunk;
+		while (!this.stopFlag.isOn() && (chunk = this.scheduler.claim()) >= 0) {
+			for (int t = BandScheduler.chunkStart(chunk); t < BandScheduler.chunkEnd(chunk); t++) {
+				final int x = this.tiles.get(t).x * this.tileSize;
+				final int y = this.tiles.get(t).y * this.tileSize;
+				this.model.computeTile(x, y, Math.min(this.tileSize, this.width - x), Math.min(this.tileSize, this.height - y),
+						this.generations, this.statistics);
+			}
+		}
+		return this.statistics;
+	}
+	
+}
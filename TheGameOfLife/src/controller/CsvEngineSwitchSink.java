@@ -0,0 +1,76 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import model.PopulationStatistics;
+
+/**
+ * This class writes the switches between the engines to a CSV file, one row per switch,
+ * ignoring the statistics of the generations.
+ *
+ */
+public class CsvEngineSwitchSink implements StatisticsSink {
+
+	private final File file;
+	private final Writer writer;
+
+
+	/**
+	 * Creates a new CSV file and writes its header.
+	 *
+	 * @param file
+	 * 		the file to create (replaced if it exists)
+	 * @throws IOException
+	 * 		if the file cannot be created
+	 */
+	public CsvEngineSwitchSink(final File file) throws IOException {
+		this.file = file;
+		this.writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+		this.writer.write(EngineSwitch.CSV_HEADER);
+		this.writer.write(System.lineSeparator());
+	}
+
+	/**
+	 * Creates a new CSV file named after the current time in the working directory.
+	 *
+	 * @return the new sink.
+	 * @throws IOException
+	 * 		if the file cannot be created
+	 */
+	public static CsvEngineSwitchSink inWorkingDirectory() throws IOException {
+		final String name = "engine-switches-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv";
+		return new CsvEngineSwitchSink(new File(System.getProperty("user.dir"), name));
+	}
+
+	/**
+	 * @return the file written by the sink.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	@Override
+	public void accept(final PopulationStatistics statistics) {
+		// Only the switches are written
+	}
+
+	@Override
+	public void acceptSwitch(final EngineSwitch engineSwitch) throws IOException {
+		this.writer.write(engineSwitch.toCsvRow());
+		this.writer.write(System.lineSeparator());
+		// Switches are rare, and each one is worth keeping if the run ends abruptly
+		this.writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.writer.close();
+	}
+
+}
@@ -0,0 +1,105 @@
+package controller;
+
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Optional;
+
+import model.PopulationStatistics;
+
+/**
+ * This class writes the population statistics to a CSV file, one row per generation.
+ * The counts of the regions are written in a single column, as space separated
+ * values in row-major order.
+ *
+ */
+public class CsvStatisticsSink implements StatisticsSink {
+
+	private static final String HEADER = "generation,alive,births,deaths,"
+			+ "box_x,box_y,box_width,box_height,center_x,center_y,region_size,regions_per_row,region_counts";
+
+	private final File file;
+	private final Writer writer;
+
+
+	/**
+	 * Creates a new CSV file and writes its header.
+	 *
+	 * @param file
+	 * 		the file to create (replaced if it exists)
+	 * @throws IOException
+	 * 		if the file cannot be created
+	 */
+	public CsvStatisticsSink(final File file) throws IOException {
+		this.file = file;
+		this.writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+		this.writer.write(HEADER);
+		this.writer.write(System.lineSeparator());
+	}
+
+	/**
+	 * Creates a new CSV file named after the current time in the working directory.
+	 *
+	 * @return the new sink.
+	 * @throws IOException
+	 * 		if the file cannot be created
+	 */
+	public static CsvStatisticsSink inWorkingDirectory() throws IOException {
+		final String name = "statistics-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv";
+		return new CsvStatisticsSink(new File(System.getProperty("user.dir"), name));
+	}
+
+	/**
+	 * @return the file written by the sink.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	@Override
+	public void accept(final PopulationStatistics statistics) throws IOException {
+		final StringBuilder row = new StringBuilder();
+		row.append(statistics.getGeneration()).append(',')
+				.append(statistics.getAliveCells()).append(',')
+				.append(statistics.getBirths()).append(',')
+				.append(statistics.getDeaths()).append(',');
+		final Optional<Rectangle> box = statistics.getBoundingBox();
+		if (box.isPresent()) {
+			row.append(box.get().x).append(',').append(box.get().y).append(',')
+					.append(box.get().width).append(',').append(box.get().height).append(',');
+		} else {
+			row.append(",,,,");
+		}
+		final Optional<Point2D> center = statistics.getCenterOfMass();
+		if (center.isPresent()) {
+			row.append(String.format(Locale.ROOT, "%.3f,%.3f,", center.get().getX(), center.get().getY()));
+		} else {
+			row.append(",,");
+		}
+		row.append(statistics.getRegionSize()).append(',')
+				.append(statistics.getRegionsPerRow()).append(",\"");
+		for (int y = 0; y < statistics.getRegionRows(); y++) {
+			for (int x = 0; x < statistics.getRegionsPerRow(); x++) {
+				if (x > 0 || y > 0) {
+					row.append(' ');
+				}
+				row.append(statistics.getRegionCount(x, y));
+			}
+		}
+		row.append('"').append(System.lineSeparator());
+		this.writer.write(row.toString());
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.writer.close();
+	}
+
+}
@@ -0,0 +1,436 @@
+package controller;
+
+import java.awt.Dimension;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import model.ConwayCellMap;
+import model.DensityPyramid;
+import model.GenerationResult;
+import model.PackedStates;
+import model.PopulationAccumulator;
+import model.PopulationStatistics;
+import model.StateRepresentation;
+import model.TileKernel;
+import view.GameOfLifeFrame;
+
+/**
+ * This class models a Game of Life producer without global barriers.
+ * The map is split in tiles, and a tile computes its next generation as soon as
+ * it and its eight neighbor tiles have computed the current one, so that the
+ * computation proceeds as a wavefront and no thread waits for the slowest tile.
+ * Each generation of a tile is stored in one of two buffers according to its parity:
+ * since adjacent tiles are never more than one generation apart, a tile never
+ * overwrites states its neighbors still have to read.
+ * Tiles copy their states into the frame of the generation being displayed; a frame
+ * is put on the queue once every tile has filled it, and tiles can only run a bounded
+ * number of frames ahead of the last one put on the queue.
+ * When stopped, the model is brought to the last generation put on the queue.
+ *
+ */
+public class DataflowProducer implements Runnable {
+
+	// Maximum number of frames computed ahead of the last one put on the queue
+	private static final int LOOKAHEAD = 4;
+
+	// Maximum time waited for a frame or for space in the queue before checking the stop flag again
+	private static final int POLL_PERIOD = 50;
+
+	private final GenerationQueue queue;
+	private final ExecutorService executor;
+	private final ConwayCellMap model;
+	private final DensityPyramid density;
+	private final GameOfLifeFrame view;
+	private final Flag stopFlag;
+	private final int generationsPerStep;
+	private final StateRepresentation representation;
+
+	private final int width;
+	private final int height;
+	private final int tileSize;
+	private final int tilesPerRow;
+	private final int tileRows;
+
+	// Generation n of each tile is stored in buffers[n % 2] (generations are counted from the start of the run)
+	private final boolean[][] buffers;
+	// Generations computed by each tile, and whether each tile is scheduled or running
+	private final AtomicIntegerArray done;
+	private final AtomicIntegerArray scheduled;
+	// Whether each tile changed since it last filled a frame, and the states of that frame
+	// (only accessed by the task of the tile)
+	private final boolean[] tileChanged;
+	private final boolean[][][] lastFilled;
+	// Last generation the tiles are allowed to compute
+	private volatile int limit;
+
+	// Frames being filled, and frames filled by every tile in order of generation
+	private final AtomicReferenceArray<Frame> frames;
+	private final BlockingQueue<Frame> completed;
+	// Generation of the last frame put on the queue, and cells computed by the tiles, for the progress
+	private volatile int publishedGeneration;
+	private final LongAdder computedCells;
+
+	private final AtomicInteger inFlight;
+	private volatile RuntimeException failure;
+	private final ThreadLocal<TileKernel> kernels;
+	private final ThreadLocal<PopulationAccumulator> accumulators;
+
+
+	/*
+	 * The states of a generation to display, filled tile by tile.
+	 */
+	private static final class Frame {
+
+		private final int generation;
+		private final boolean[][] cells;
+		private final boolean[] changedTiles;
+		private final AtomicInteger remainingTiles;
+		// Merged statistics of the tiles, guarded by itself
+		private final PopulationAccumulator statistics;
+
+		private Frame(final int generation, final int width, final int height, final int tiles, final int tileSize) {
+			this.generation = generation;
+			this.cells = new boolean[height][width];
+			this.changedTiles = new boolean[tiles];
+			this.remainingTiles = new AtomicInteger(tiles);
+			this.statistics = new PopulationAccumulator(new Dimension(width, height), tileSize);
+		}
+
+	}
+
+
+	/**
+	 * Constructs a new dataflow producer.
+	 *
+	 * @param queue
+	 * 		the producer / consumer queue
+	 * @param executor
+	 * 		the executor service
+	 * @param model
+	 * 		the application model
+	 * @param density
+	 * 		the density pyramid of the model, kept up to date by the producer
+	 * @param view
+	 * 		the application view
+	 * @param stopFlag
+	 * 		the stop flag
+	 * @param generationsPerStep
+	 * 		the number of generations computed between two results
+	 * @param representation
+	 * 		the representation of the states put on the queue
+	 */
+	public DataflowProducer(final GenerationQueue queue, final ExecutorService executor,
+			final ConwayCellMap model, final DensityPyramid density, final GameOfLifeFrame view, final Flag stopFlag,
+			final int generationsPerStep, final StateRepresentation representation) {
+		if (generationsPerStep < 1) {
+			throw new IllegalArgumentException("At least one generation per step must be computed");
+		}
+		this.queue = queue;
+		this.executor = executor;
+		this.model = model;
+		this.density = density;
+		this.view = view;
+		this.stopFlag = stopFlag;
+		this.generationsPerStep = generationsPerStep;
+		this.representation = representation;
+
+		this.width = model.getCellMapDimension().width;
+		this.height = model.getCellMapDimension().height;
+		this.tileSize = model.getTileSize();
+		this.tilesPerRow = (this.width + this.tileSize - 1) / this.tileSize;
+		this.tileRows = (this.height + this.tileSize - 1) / this.tileSize;
+		final int tiles = this.tilesPerRow * this.tileRows;
+
+		this.buffers = new boolean[2][this.width * this.height];
+		this.done = new AtomicIntegerArray(tiles);
+		this.scheduled = new AtomicIntegerArray(tiles);
+		this.tileChanged = new boolean[tiles];
+		this.lastFilled = new boolean[tiles][][];
+		this.frames = new AtomicReferenceArray<>(LOOKAHEAD);
+		this.completed = new LinkedBlockingQueue<>();
+		this.computedCells = new LongAdder();
+		this.inFlight = new AtomicInteger();
+		this.kernels = ThreadLocal.withInitial(model.getTileKernelType().newFactory(model.getRule()));
+		this.accumulators = ThreadLocal.withInitial(() -> new PopulationAccumulator(model.getCellMapDimension(), this.tileSize));
+	}
+
+	/**
+	 * Estimates the memory of the working buffers and of the frames of a producer, before creating it.
+	 *
+	 * @param mapDimension
+	 * 		the dimension of the cell map
+	 * @return the approximate size of the buffers, in bytes.
+	 */
+	public static long estimateBytes(final Dimension mapDimension) {
+		final int width = mapDimension.width;
+		final int height = mapDimension.height;
+		return 2L * width * height + LOOKAHEAD * StateRepresentation.DENSE.estimateBytes(width, height, 0);
+	}
+
+	/*
+	 * Checks whether a tile can compute its next generation: its neighbors must have
+	 * computed its current generation, and the next one must be within the lookahead.
+	 */
+	private boolean isReady(final int tile) {
+		final int generation = this.done.get(tile);
+		if (generation >= this.limit) {
+			return false;
+		}
+		final int tx = tile % this.tilesPerRow;
+		final int ty = tile / this.tilesPerRow;
+		for (int i = Math.max(ty - 1, 0); i <= Math.min(ty + 1, this.tileRows - 1); i++) {
+			for (int j = Math.max(tx - 1, 0); j <= Math.min(tx + 1, this.tilesPerRow - 1); j++) {
+				if (this.done.get(i * this.tilesPerRow + j) < generation) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Submits the computation of the next generation of a tile if it is ready and not
+	 * already submitted. The readiness is checked again after taking the tile, so that
+	 * a concurrent completion of a neighbor is never missed.
+	 */
+	private void trySchedule(final int tile) {
+		while (isReady(tile)) {
+			if (!this.scheduled.compareAndSet(tile, 0, 1)) {
+				return;
+			}
+			if (isReady(tile)) {
+				this.inFlight.incrementAndGet();
+				this.executor.execute(() -> computeTile(tile));
+				return;
+			}
+			this.scheduled.set(tile, 0);
+		}
+	}
+
+	/*
+	 * Submits every tile that is ready.
+	 */
+	private void scheduleAll() {
+		if (this.stopFlag.isOn()) {
+			return;
+		}
+		for (int t = 0; t < this.done.length(); t++) {
+			trySchedule(t);
+		}
+	}
+
+	/*
+	 * Computes the next generation of a tile, then submits the neighbors it unblocked.
+	 */
+	private void computeTile(final int tile) {
+		try {
+			if (!this.stopFlag.isOn()) {
+				final int generation = this.done.get(tile);
+				final boolean[] source = this.buffers[generation & 1];
+				final boolean[] target = this.buffers[(generation + 1) & 1];
+				final int x0 = (tile % this.tilesPerRow) * this.tileSize;
+				final int y0 = (tile / this.tilesPerRow) * this.tileSize;
+				final int x1 = Math.min(x0 + this.tileSize, this.width);
+				final int y1 = Math.min(y0 + this.tileSize, this.height);
+				final TileKernel kernel = this.kernels.get();
+				kernel.advance(source, this.width, this.height, x0, y0, x1 - x0, y1 - y0, 1);
+				for (int i = y0; i < y1; i++) {
+					for (int j = x0; j < x1; j++) {
+						final int cellIndex = i * this.width + j;
+						final boolean state = kernel.getState(j, i);
+						if (state != source[cellIndex]) {
+							this.tileChanged[tile] = true;
+						}
+						target[cellIndex] = state;
+					}
+				}
+				this.computedCells.add((x1 - x0) * (y1 - y0));
+				if ((generation + 1) % this.generationsPerStep == 0) {
+					fillFrame(tile, generation + 1, target, x0, y0, x1, y1);
+				}
+				this.done.set(tile, generation + 1);
+			}
+		} catch (RuntimeException e) {
+			this.failure = e;
+			this.stopFlag.setOn();
+		} finally {
+			this.scheduled.set(tile, 0);
+			if (!this.stopFlag.isOn()) {
+				final int tx = tile % this.tilesPerRow;
+				final int ty = tile / this.tilesPerRow;
+				for (int i = Math.max(ty - 1, 0); i <= Math.min(ty + 1, this.tileRows - 1); i++) {
+					for (int j = Math.max(tx - 1, 0); j <= Math.min(tx + 1, this.tilesPerRow - 1); j++) {
+						trySchedule(i * this.tilesPerRow + j);
+					}
+				}
+			}
+			if (this.inFlight.decrementAndGet() == 0) {
+				synchronized (this.inFlight) {
+					this.inFlight.notifyAll();
+				}
+			}
+		}
+	}
+
+	/*
+	 * Copies the states of a tile into the frame of a generation, accounting for them
+	 * in the statistics of the frame, and hands the frame over to the producer once
+	 * every tile has filled it.
+	 */
+	private void fillFrame(final int tile, final int generation, final boolean[] states,
+			final int x0, final int y0, final int x1, final int y1) {
+		final Frame frame = this.frames.get((generation / this.generationsPerStep) % LOOKAHEAD);
+		final PopulationAccumulator statistics = this.accumulators.get();
+		statistics.reset();
+		final boolean[][] previous = this.lastFilled[tile];
+		for (int i = y0; i < y1; i++) {
+			System.arraycopy(states, i * this.width + x0, frame.cells[i], x0, x1 - x0);
+			for (int j = x0; j < x1; j++) {
+				statistics.add(j, i, previous[i][j], frame.cells[i][j]);
+			}
+		}
+		synchronized (frame.statistics) {
+			frame.statistics.merge(statistics);
+		}
+		this.lastFilled[tile] = frame.cells;
+		frame.changedTiles[tile] = this.tileChanged[tile];
+		this.tileChanged[tile] = false;
+		if (frame.remainingTiles.decrementAndGet() == 0) {
+			this.completed.add(frame);
+		}
+	}
+
+	/*
+	 * Allows the tiles to compute the frames following the last one put on the queue,
+	 * preparing the frames to fill.
+	 */
+	private void advanceLimit(final int publishedGeneration) {
+		final int newLimit = publishedGeneration + LOOKAHEAD * this.generationsPerStep;
+		for (int generation = Math.max(this.limit, publishedGeneration) + this.generationsPerStep;
+				generation <= newLimit; generation += this.generationsPerStep) {
+			this.frames.set((generation / this.generationsPerStep) % LOOKAHEAD,
+					new Frame(generation, this.width, this.height, this.done.length(), this.tileSize));
+		}
+		this.limit = newLimit;
+		scheduleAll();
+	}
+
+	/*
+	 * Waits for the termination of the running tasks, which stop by themselves
+	 * once the stop flag is on. The interrupt status is restored afterwards.
+	 */
+	private void awaitTasks() {
+		boolean interrupted = false;
+		synchronized (this.inFlight) {
+			while (this.inFlight.get() > 0) {
+				try {
+					this.inFlight.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the total number of cells computed by the tiles since the start of the run.
+	 */
+	public long getComputedCells() {
+		return this.computedCells.sum();
+	}
+
+	/**
+	 * @return the fraction of the tiles which filled the frame following the last one put on the queue.
+	 */
+	public double getPercentageCompletion() {
+		final int generation = this.publishedGeneration + this.generationsPerStep;
+		final Frame frame = this.frames.get((generation / this.generationsPerStep) % LOOKAHEAD);
+		if (frame == null || frame.generation != generation) {
+			return 0;
+		}
+		return 1 - (double) frame.remainingTiles.get() / frame.changedTiles.length;
+	}
+
+	@Override
+	public void run() {
+		// Discards the partial results of a generation abandoned by a previous stop
+		this.model.rollbackGeneration();
+		final long startGeneration = this.model.getGenerationNumber();
+		final boolean[][] startStates = this.model.getCellMapStates();
+		for (int i = 0; i < this.height; i++) {
+			System.arraycopy(startStates[i], 0, this.buffers[0], i * this.width, this.width);
+		}
+		Arrays.fill(this.lastFilled, startStates);
+		Frame published = null;
+		try {
+			final Chrono cron = new Chrono();
+			cron.start();
+			this.limit = 0;
+			advanceLimit(0);
+			while (!this.stopFlag.isOn()) {
+				final Frame frame = this.completed.poll(POLL_PERIOD, TimeUnit.MILLISECONDS);
+				if (frame == null) {
+					continue;
+				}
+				cron.stop();
+
+				// Updates the density pyramid from the changed tiles only
+				final BitSet changedTiles = new BitSet(frame.changedTiles.length);
+				for (int t = 0; t < frame.changedTiles.length; t++) {
+					if (frame.changedTiles[t]) {
+						changedTiles.set(t);
+					}
+				}
+				this.density.update(frame.cells, changedTiles, this.tileSize);
+				final PopulationStatistics statistics;
+				synchronized (frame.statistics) {
+					statistics = frame.statistics.toStatistics(startGeneration + frame.generation);
+				}
+				// Allocations are not measured, since the tiles of several generations are computed at once
+				final GenerationResult generationResult = new GenerationResult(startGeneration + frame.generation,
+						PackedStates.of(frame.cells, this.representation, statistics.getAliveCells()), statistics,
+						cron.getTime(), -1, this.density.snapshot());
+				/*
+				 * Waits for space in the queue, giving up if the game is stopped meanwhile
+				 * (the consumer may be gone, so the queue could stay full forever).
+				 */
+				while (!this.queue.offer(generationResult, POLL_PERIOD, TimeUnit.MILLISECONDS)) {
+					if (this.stopFlag.isOn()) {
+						return;
+					}
+				}
+				published = frame;
+				this.publishedGeneration = frame.generation;
+				cron.start();
+				advanceLimit(frame.generation);
+			}
+		} catch (InterruptedException ie) {
+			// Being interrupted after a stop is the expected way to leave a wait early
+			if (!this.stopFlag.isOn()) {
+				this.view.showAlert("Thread error", "Someone killed the producer when was waiting for something. Please reset.\n\n" + ie.getMessage());
+			}
+		} finally {
+			this.stopFlag.setOn();
+			awaitTasks();
+			// Brings the model to the last generation put on the queue
+			if (published != null) {
+				this.model.loadGeneration(published.cells, startGeneration + published.generation);
+			}
+			if (this.failure != null) {
+				this.view.showAlert("Computation error", "A tile could not be computed. Please reset.\n\n" + this.failure.getMessage());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,166 @@
+package controller;
+
+import java.awt.Rectangle;
+import java.io.ByteArrayOutputStream;
+import java.util.Objects;
+
+import model.PackedStates;
+
+/**
+ * This class encodes the generations shown to a remote viewer as compact binary frames
+ * of its viewport. The first frame, and the first one after a change of viewport,
+ * is a key frame with the states of the viewport packed in bits; the following ones
+ * are delta frames with the positions of the cells toggled since the last encoded
+ * frame, unless a key frame is smaller.
+ * Every frame starts with a header (big endian): type (1 byte), generation (8 bytes),
+ * map width and height, viewport x, y, width and height (4 bytes each).
+ * A key frame continues with one bit per cell of the viewport in row-major order,
+ * least significant bit first; a delta frame with the number of toggled cells
+ * (4 bytes) and, for each one, the distance from the previous toggled cell
+ * (from -1 for the first one) in row-major order, as an unsigned LEB128 varint.
+ * An encoder keeps the state of a single viewer and is not thread-safe.
+ *
+ */
+public class DeltaFrameEncoder {
+
+	/**
+	 * Type of a frame with all the states of the viewport.
+	 */
+	public static final byte KEY_FRAME = 0;
+
+	/**
+	 * Type of a frame with the cells toggled since the previous frame.
+	 */
+	public static final byte DELTA_FRAME = 1;
+
+	private static final int HEADER_SIZE = 33;
+
+	private Rectangle viewport;
+	// States of the viewport in the last encoded frame, empty before the first one
+	private boolean[] lastStates;
+	private Rectangle lastArea;
+	private int[] toggled;
+
+
+	/**
+	 * Constructs a new encoder.
+	 *
+	 * @param viewport
+	 * 		the region of the map requested by the viewer
+	 */
+	public DeltaFrameEncoder(final Rectangle viewport) {
+		setViewport(viewport);
+	}
+
+	/**
+	 * Changes the region of the map requested by the viewer: the next frame is a key frame.
+	 *
+	 * @param viewport
+	 * 		the region of the map requested by the viewer
+	 */
+	public void setViewport(final Rectangle viewport) {
+		Objects.requireNonNull(viewport);
+		if (viewport.width < 1 || viewport.height < 1) {
+			throw new IllegalArgumentException("Viewport must not be empty");
+		}
+		this.viewport = new Rectangle(viewport);
+		this.lastStates = null;
+	}
+
+	/*
+	 * Writes an int, big endian.
+	 */
+	private static void writeInt(final ByteArrayOutputStream out, final int value) {
+		out.write(value >>> 24);
+		out.write(value >>> 16);
+		out.write(value >>> 8);
+		out.write(value);
+	}
+
+	/*
+	 * Writes an unsigned LEB128 varint.
+	 */
+	private static void writeVarint(final ByteArrayOutputStream out, final int value) {
+		int v = value;
+		while ((v & ~0x7F) != 0) {
+			out.write((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		out.write(v);
+	}
+
+	/**
+	 * Encodes the frame of a generation.
+	 *
+	 * @param generation
+	 * 		the number of the generation
+	 * @param states
+	 * 		the states of the cells of the whole map, of which only the viewport is decoded
+	 * @return the encoded frame.
+	 */
+	public byte[] encode(final long generation, final PackedStates states) {
+		final int mapWidth = states.getWidth();
+		final int mapHeight = states.getHeight();
+		final Rectangle area = this.viewport.intersection(new Rectangle(mapWidth, mapHeight));
+		if (area.isEmpty()) {
+			area.setBounds(0, 0, 0, 0);
+		}
+		final boolean[][] cells = states.toArray(area);
+		final int size = area.width * area.height;
+		final boolean key = this.lastStates == null || !area.equals(this.lastArea);
+		if (key) {
+			this.lastStates = new boolean[size];
+			this.lastArea = area;
+		}
+
+		// Collects the cells toggled since the last frame, updating the last states
+		if (this.toggled == null || this.toggled.length < size) {
+			this.toggled = new int[size];
+		}
+		int count = 0;
+		for (int i = 0; i < area.height; i++) {
+			final boolean[] row = cells[i];
+			for (int j = 0; j < area.width; j++) {
+				final int index = i * area.width + j;
+				final boolean state = row[j];
+				if (state != this.lastStates[index]) {
+					this.lastStates[index] = state;
+					this.toggled[count++] = index;
+				}
+			}
+		}
+
+		// A delta takes at least one byte per toggled cell, a key frame one bit per cell
+		final boolean keyFrame = key || 4 + count > (size + 7) / 8;
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_SIZE + (keyFrame ? (size + 7) / 8 : 4 + count));
+		out.write(keyFrame ? KEY_FRAME : DELTA_FRAME);
+		writeInt(out, (int) (generation >>> 32));
+		writeInt(out, (int) generation);
+		writeInt(out, mapWidth);
+		writeInt(out, mapHeight);
+		writeInt(out, area.x);
+		writeInt(out, area.y);
+		writeInt(out, area.width);
+		writeInt(out, area.height);
+		if (keyFrame) {
+			for (int b = 0; b < size; b += Byte.SIZE) {
+				int packed = 0;
+				for (int k = 0; k < Byte.SIZE && b + k < size; k++) {
+					if (this.lastStates[b + k]) {
+						packed |= 1 << k;
+					}
+				}
+				out.write(packed);
+			}
+		} else {
+			writeInt(out, count);
+			int previous = -1;
+			for (int t = 0; t < count; t++) {
+				writeVarint(out, this.toggled[t] - previous);
+				previous = this.toggled[t];
+			}
+		}
+		return out.toByteArray();
+	}
+
+}
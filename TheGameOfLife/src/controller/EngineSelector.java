@@ -0,0 +1,164 @@
+package controller;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * This class chooses the engine computing the generations of a run, as the population evolves:
+ * a soup starts dense, where computing whole tiles is cheaper, and decays to sparse debris,
+ * where evaluating only the cells around the changes is cheaper.
+ * Every few generations, it measures the cost of a unit of work of the current engine
+ * (a cell to evaluate, or a cell of a tile) and predicts the time of both engines on the
+ * population of the last generations: it switches when the other engine is clearly faster.
+ * The payoff of each switch (the mean time of the generations before and after it)
+ * is measured on the following generations, then logged.
+ * Both engines work on the same cell map, so a switch converts nothing.
+ * It must be used by the producer thread only (the workers read the engine
+ * between two generations).
+ *
+ */
+public class EngineSelector {
+
+	// Generations between two decisions, and after a switch before logging its payoff
+	private static final int PERIOD = 16;
+	// Fraction of the time of the current engine that the other one must beat to switch
+	private static final double HYSTERESIS = 0.8;
+	// Cost of a cell of a tile relative to a cell to evaluate, until both engines have been measured
+	private static final double TILE_CELL_COST = 0.5;
+	// Weight of the last measure in the cost of a unit of work
+	private static final double SMOOTHING = 0.5;
+
+	private final Consumer<EngineSwitch> log;
+	private ComputeEngine engine;
+	// Measured cost of a unit of work of each engine, in nanoseconds (0 if never measured)
+	private double listCellCost;
+	private double tileCellCost;
+
+	// Measures of the generations since the last decision
+	private int generations;
+	private long nanos;
+	private long candidates;
+	private long tileCells;
+	private long aliveCells;
+	private long boxArea;
+
+	// Switch waiting for its payoff (negative generation if none)
+	private long switchGeneration;
+	private ComputeEngine switchedFrom;
+	private double switchDensity;
+	private double switchChangeRate;
+	private long nanosBeforeSwitch;
+
+
+	/**
+	 * Constructs a new selector.
+	 *
+	 * @param initial
+	 * 		the engine of the first generations
+	 * @param log
+	 * 		the destination of the switches, once their payoff is measured
+	 */
+	public EngineSelector(final ComputeEngine initial, final Consumer<EngineSwitch> log) {
+		Objects.requireNonNull(initial);
+		Objects.requireNonNull(log);
+		this.engine = initial;
+		this.log = log;
+		this.switchGeneration = -1;
+	}
+
+	/**
+	 * @return the engine computing the next generation.
+	 */
+	public ComputeEngine getEngine() {
+		return this.engine;
+	}
+
+	/**
+	 * Records the measures of a computed generation and, every few generations,
+	 * chooses the engine of the next ones. It allocates nothing, unless it logs a switch.
+	 *
+	 * @param generation
+	 * 		the number of the computed generation
+	 * @param elapsedNanos
+	 * 		the time spent computing the generation, in nanoseconds
+	 * @param cellsToEvaluate
+	 * 		the number of cells the change list engine evaluates for the generation
+	 * @param cellsOfTiles
+	 * 		the number of cells the tile engine computes for the generation
+	 * @param alive
+	 * 		the number of alive cells before the generation
+	 * @param area
+	 * 		the area of the bounding box of the alive cells before the generation
+	 * @return true if the engine changed.
+	 */
+	public boolean record(final long generation, final long elapsedNanos, final long cellsToEvaluate,
+			final long cellsOfTiles, final long alive, final long area) {
+		this.generations++;
+		this.nanos += elapsedNanos;
+		this.candidates += cellsToEvaluate;
+		this.tileCells += cellsOfTiles;
+		this.aliveCells += alive;
+		this.boxArea += area;
+		if (this.generations < PERIOD) {
+			return false;
+		}
+		final long meanNanos = this.nanos / this.generations;
+		if (this.engine == ComputeEngine.TILES) {
+			this.tileCellCost = smooth(this.tileCellCost, this.nanos, this.tileCells);
+		} else {
+			this.listCellCost = smooth(this.listCellCost, this.nanos, this.candidates);
+		}
+		// Logs the switch of the previous decision, now that the new engine has run for a whole period
+		if (this.switchGeneration >= 0) {
+			this.log.accept(new EngineSwitch(this.switchGeneration, this.switchedFrom, this.engine,
+					this.switchDensity, this.switchChangeRate, this.nanosBeforeSwitch, meanNanos));
+			this.switchGeneration = -1;
+		}
+		final double listTime = listCellCost() * this.candidates;
+		final double tileTime = tileCellCost() * this.tileCells;
+		final ComputeEngine best = tileTime < listTime ? ComputeEngine.TILES : ComputeEngine.CHANGE_LIST;
+		final boolean res = best != this.engine
+				&& Math.min(listTime, tileTime) < HYSTERESIS * Math.max(listTime, tileTime);
+		if (res) {
+			this.switchGeneration = generation + 1;
+			this.switchedFrom = this.engine;
+			this.switchDensity = this.boxArea == 0 ? 0 : (double) this.aliveCells / this.boxArea;
+			this.switchChangeRate = this.boxArea == 0 ? 0 : (double) this.candidates / this.boxArea;
+			this.nanosBeforeSwitch = meanNanos;
+			this.engine = best;
+		}
+		this.generations = 0;
+		this.nanos = 0;
+		this.candidates = 0;
+		this.tileCells = 0;
+		this.aliveCells = 0;
+		this.boxArea = 0;
+		return res;
+	}
+
+	/*
+	 * Updates the cost of a unit of work with a new measure, kept if there was no work.
+	 */
+	private static double smooth(final double cost, final long nanos, final long units) {
+		if (units == 0) {
+			return cost;
+		}
+		final double measure = (double) nanos / units;
+		return cost == 0 ? measure : cost + SMOOTHING * (measure - cost);
+	}
+
+	/*
+	 * Gets the cost of a cell to evaluate, estimated from the cost of a cell of a tile if never measured.
+	 */
+	private double listCellCost() {
+		return this.listCellCost > 0 ? this.listCellCost : this.tileCellCost / TILE_CELL_COST;
+	}
+
+	/*
+	 * Gets the cost of a cell of a tile, estimated from the cost of a cell to evaluate if never measured.
+	 */
+	private double tileCellCost() {
+		return this.tileCellCost > 0 ? this.tileCellCost : this.listCellCost * TILE_CELL_COST;
+	}
+
+}
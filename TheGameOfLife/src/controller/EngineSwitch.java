@@ -0,0 +1,127 @@
+package controller;
+
+import java.util.Locale;
+
+/**
+ * This class represents a switch between the engines computing the generations,
+ * with the population measures which caused it and its measured payoff.
+ *
+ */
+public class EngineSwitch {
+
+	/**
+	 * Header of the CSV rows of the switches.
+	 */
+	public static final String CSV_HEADER = "generation,from,to,density,change_rate,"
+			+ "nanos_per_generation_before,nanos_per_generation_after,speedup";
+
+	private final long generation;
+	private final ComputeEngine from;
+	private final ComputeEngine to;
+	private final double density;
+	private final double changeRate;
+	private final long nanosBefore;
+	private final long nanosAfter;
+
+
+	/**
+	 * Constructs a new engine switch.
+	 *
+	 * @param generation
+	 * 		the first generation computed by the new engine
+	 * @param from
+	 * 		the engine used before the switch
+	 * @param to
+	 * 		the engine used after the switch
+	 * @param density
+	 * 		the fraction of alive cells in the bounding box of the population
+	 * @param changeRate
+	 * 		the cells to evaluate for each cell of the bounding box of the population
+	 * @param nanosBefore
+	 * 		the mean computation time of the generations before the switch, in nanoseconds
+	 * @param nanosAfter
+	 * 		the mean computation time of the generations after the switch, in nanoseconds
+	 */
+	public EngineSwitch(final long generation, final ComputeEngine from, final ComputeEngine to,
+			final double density, final double changeRate, final long nanosBefore, final long nanosAfter) {
+		this.generation = generation;
+		this.from = from;
+		this.to = to;
+		this.density = density;
+		this.changeRate = changeRate;
+		this.nanosBefore = nanosBefore;
+		this.nanosAfter = nanosAfter;
+	}
+
+	/**
+	 * @return the first generation computed by the new engine.
+	 */
+	public long getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * @return the engine used before the switch.
+	 */
+	public ComputeEngine getFrom() {
+		return this.from;
+	}
+
+	/**
+	 * @return the engine used after the switch.
+	 */
+	public ComputeEngine getTo() {
+		return this.to;
+	}
+
+	/**
+	 * @return the fraction of alive cells in the bounding box of the population.
+	 */
+	public double getDensity() {
+		return this.density;
+	}
+
+	/**
+	 * @return the cells to evaluate for each cell of the bounding box of the population.
+	 */
+	public double getChangeRate() {
+		return this.changeRate;
+	}
+
+	/**
+	 * @return the mean computation time of the generations before the switch, in nanoseconds.
+	 */
+	public long getNanosBefore() {
+		return this.nanosBefore;
+	}
+
+	/**
+	 * @return the mean computation time of the generations after the switch, in nanoseconds.
+	 */
+	public long getNanosAfter() {
+		return this.nanosAfter;
+	}
+
+	/**
+	 * @return the ratio between the computation times before and after the switch
+	 * (greater than 1 if the switch paid off).
+	 */
+	public double getSpeedup() {
+		return this.nanosAfter == 0 ? 0 : (double) this.nanosBefore / this.nanosAfter;
+	}
+
+	/**
+	 * @return the switch as a CSV row, without line separator.
+	 */
+	public String toCsvRow() {
+		return String.format(Locale.ROOT, "%d,%s,%s,%.4f,%.4f,%d,%d,%.3f", this.generation, this.from, this.to,
+				this.density, this.changeRate, this.nanosBefore, this.nanosAfter, getSpeedup());
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "Generation %d: %s -> %s (density %.3f, change rate %.3f), %d ns -> %d ns per generation (x%.2f)",
+				this.generation, this.from, this.to, this.density, this.changeRate, this.nanosBefore, this.nanosAfter, getSpeedup());
+	}
+
+}
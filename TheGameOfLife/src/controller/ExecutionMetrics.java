@@ -0,0 +1,174 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * This class represents the measures of the last run of the game,
+ * used to compare the execution modes.
+ *
+ */
+public class ExecutionMetrics {
+
+	private static final Path TASKS_PATH = Paths.get("/proc/self/task");
+	private static final String VOLUNTARY_SWITCHES = "voluntary_ctxt_switches:";
+	private static final String NONVOLUNTARY_SWITCHES = "nonvoluntary_ctxt_switches:";
+
+	private final ExecutionMode mode;
+	private final long startLatency;
+	private final long stopLatency;
+	private final long contextSwitches;
+	private final long generations;
+	private final long localChunks;
+	private final long stolenChunks;
+
+
+	/**
+	 * Constructs new execution metrics.
+	 *
+	 * @param mode
+	 * 		the execution mode of the run
+	 * @param startLatency
+	 * 		the time needed to have producer and consumer running, in nanoseconds
+	 * @param stopLatency
+	 * 		the time needed to have producer and consumer terminated, in nanoseconds
+	 * (negative if not measured yet)
+	 * @param contextSwitches
+	 * 		the number of context switches of the process during the run
+	 * (negative if not available)
+	 * @param generations
+	 * 		the number of generations computed during the run
+	 * @param localChunks
+	 * 		the number of chunks of cells computed by the owner of their band during the run
+	 * @param stolenChunks
+	 * 		the number of chunks of cells stolen from the band of another thread during the run
+	 */
+	public ExecutionMetrics(final ExecutionMode mode, final long startLatency, final long stopLatency,
+			final long contextSwitches, final long generations, final long localChunks, final long stolenChunks) {
+		this.mode = mode;
+		this.startLatency = startLatency;
+		this.stopLatency = stopLatency;
+		this.contextSwitches = contextSwitches;
+		this.generations = generations;
+		this.localChunks = localChunks;
+		this.stolenChunks = stolenChunks;
+	}
+
+	/**
+	 * Reads the number of context switches of all the threads of the process.
+	 * It is only available on Linux.
+	 *
+	 * @return the number of voluntary and involuntary context switches so far,
+	 * a negative value if it is not available.
+	 */
+	public static long readContextSwitches() {
+		if (!Files.isDirectory(TASKS_PATH)) {
+			return -1;
+		}
+		long res = 0;
+		try (DirectoryStream<Path> tasks = Files.newDirectoryStream(TASKS_PATH)) {
+			for (final Path task : tasks) {
+				final List<String> lines;
+				try {
+					lines = Files.readAllLines(task.resolve("status"));
+				} catch (IOException e) {
+					// The thread terminated meanwhile
+					continue;
+				}
+				for (final String line : lines) {
+					if (line.startsWith(VOLUNTARY_SWITCHES) || line.startsWith(NONVOLUNTARY_SWITCHES)) {
+						res += Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+					}
+				}
+			}
+		} catch (IOException | NumberFormatException e) {
+			return -1;
+		}
+		return res;
+	}
+
+	/**
+	 * @return the execution mode of the run.
+	 */
+	public ExecutionMode getMode() {
+		return this.mode;
+	}
+
+	/**
+	 * @return the time needed to have producer and consumer running, in nanoseconds.
+	 */
+	public long getStartLatency() {
+		return this.startLatency;
+	}
+
+	/**
+	 * @return the time needed to have producer and consumer terminated after
+	 * a stop or a reset, in nanoseconds (negative if the run is not over).
+	 */
+	public long getStopLatency() {
+		return this.stopLatency;
+	}
+
+	/**
+	 * @return the number of context switches of the process during the run
+	 * (negative if not available).
+	 */
+	public long getContextSwitches() {
+		return this.contextSwitches;
+	}
+
+	/**
+	 * @return the number of generations computed during the run.
+	 */
+	public long getGenerations() {
+		return this.generations;
+	}
+
+	/**
+	 * @return the number of chunks of cells computed by the owner of their band.
+	 */
+	public long getLocalChunks() {
+		return this.localChunks;
+	}
+
+	/**
+	 * @return the number of chunks of cells stolen from the band of another thread.
+	 */
+	public long getStolenChunks() {
+		return this.stolenChunks;
+	}
+
+	/**
+	 * @return the fraction of chunks computed by the owner of their band
+	 * (negative if no chunk has been computed).
+	 */
+	public double getLocality() {
+		final long chunks = this.localChunks + this.stolenChunks;
+		return chunks == 0 ? -1 : (double) this.localChunks / chunks;
+	}
+
+	/**
+	 * @return the average number of context switches for each generation
+	 * (negative if not available).
+	 */
+	public double getContextSwitchesPerGeneration() {
+		if (this.contextSwitches < 0) {
+			return -1;
+		}
+		return (double) this.contextSwitches / Math.max(1, this.generations);
+	}
+
+	@Override
+	public String toString() {
+		return this.mode + ": start " + this.startLatency / 1000 + " us, stop "
+				+ (this.stopLatency < 0 ? "-" : (this.stopLatency / 1000) + " us")
+				+ ", " + (this.contextSwitches < 0 ? "-" : String.format("%.1f", getContextSwitchesPerGeneration()))
+				+ " ctx switches/gen, locality "
+				+ (getLocality() < 0 ? "-" : String.format("%.0f%% (%d steals)", getLocality() * 100, this.stolenChunks));
+	}
+
+}
@@ -0,0 +1,23 @@
+package controller;
+
+/**
+ * This enumeration represents the kind of threads used to run the game.
+ * In both modes the computation of the cells is executed by the fixed size
+ * thread pool of the controller: the mode only affects the threads that
+ * mostly wait (control, producer and consumer).
+ *
+ */
+public enum ExecutionMode {
+	
+	/**
+	 * Every blocking activity runs on a dedicated platform thread.
+	 */
+	PLATFORM_THREADS,
+	
+	/**
+	 * Every blocking activity runs on a virtual thread, when the running
+	 * Java version supports them (Java 21 or later), on a platform thread otherwise.
+	 */
+	VIRTUAL_THREADS
+	
+}
@@ -0,0 +1,67 @@
+package controller;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class creates the thread factories for the blocking activities of the game,
+ * according to an {@link ExecutionMode}.
+ * Virtual threads are looked up by reflection, so that the application still
+ * compiles and runs on Java versions without them.
+ *
+ */
+public final class ExecutionThreads {
+	
+	private static final Optional<Method> OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+	
+	private ExecutionThreads() { }
+	
+	private static Optional<Method> findMethod(final Class<?> type, final String name, final Class<?>... parameters) {
+		try {
+			return Optional.of(type.getMethod(name, parameters));
+		} catch (NoSuchMethodException | SecurityException e) {
+			return Optional.empty();
+		}
+	}
+	
+	/**
+	 * @return true if the running Java version supports virtual threads.
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return OF_VIRTUAL.isPresent();
+	}
+	
+	/**
+	 * Creates a new thread factory.
+	 * 
+	 * @param mode
+	 * 		the execution mode
+	 * @param name
+	 * 		the prefix of the names of the created threads
+	 * @return a factory of virtual threads if requested and supported,
+	 * a factory of platform daemon threads otherwise.
+	 */
+	public static ThreadFactory newFactory(final ExecutionMode mode, final String name) {
+		if (mode == ExecutionMode.VIRTUAL_THREADS && OF_VIRTUAL.isPresent()) {
+			try {
+				// Thread.ofVirtual().name(name, 0).factory()
+				final Object builder = OF_VIRTUAL.get().invoke(null);
+				final Class<?> builderType = OF_VIRTUAL.get().getReturnType();
+				final Object namedBuilder = builderType.getMethod("name", String.class, long.class)
+						.invoke(builder, name + "-", 0L);
+				return (ThreadFactory) builderType.getMethod("factory").invoke(namedBuilder);
+			} catch (ReflectiveOperationException | ClassCastException e) {
+				// Falls back to platform threads
+			}
+		}
+		final AtomicInteger counter = new AtomicInteger();
+		return r -> {
+			final Thread t = new Thread(r, name + "-" + counter.getAndIncrement());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+	
+}
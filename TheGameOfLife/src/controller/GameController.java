@@ -1,6 +1,13 @@
 package controller;
 
 import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+import model.PopulationStatistics;
+import model.TileKernelType;
 
 /**
  * This class represents the controller of the application.
@@ -23,22 +30,167 @@ public interface GameController {
 	 */
 	void reset();
 	
+	/**
+	 * Computes the next generation of the stopped game and displays it.
+	 * 
+	 * @return the future completed with the statistics of the new generation.
+	 */
+	CompletableFuture<PopulationStatistics> step();
+	
+	/**
+	 * Computes some generations of the stopped game, with the threads and the buffers of a run,
+	 * displaying only the last one.
+	 * The future fails if the game is running, and is cancelled if the game is stopped meanwhile
+	 * (the generations computed so far are kept).
+	 * 
+	 * @param generations
+	 * 		the number of generations to compute
+	 * @return the future completed with the statistics of the last generation.
+	 */
+	CompletableFuture<PopulationStatistics> runGenerations(long generations);
+	
+	/**
+	 * Computes generations of the stopped game until one meets the condition (at least one is computed),
+	 * with the threads and the buffers of a run, displaying only the last one.
+	 * The future fails if the game is running, and is cancelled if the game is stopped meanwhile
+	 * (the generations computed so far are kept).
+	 * 
+	 * @param condition
+	 * 		the condition checked on the statistics of each new generation
+	 * @return the future completed with the statistics of the generation meeting the condition.
+	 */
+	CompletableFuture<PopulationStatistics> runUntil(Predicate<PopulationStatistics> condition);
+	
 	/**
 	 * @return the dimension (width and height) of the cell map.
 	 */
 	Dimension getCellMapDimension();
 	
 	/**
-	 * @return the current minimum delay used by the view consumer.
+	 * @return the current minimum delay between two rendered frames.
 	 */
 	int getViewSpeed();
 	
 	/**
-	 * Sets the minimum delay between each view consumer representation.
+	 * Sets the minimum delay between two rendered frames.
 	 * 
 	 * @param minimumDelay
 	 * 		the minimum delay between each frame
 	 */
 	void setViewSpeed(int minimumDelay);
 	
+	/**
+	 * @return the kind of threads used for control, producer and consumer.
+	 */
+	ExecutionMode getExecutionMode();
+	
+	/**
+	 * Sets the kind of threads used for control, producer and consumer.
+	 * It takes effect from the next start of the game.
+	 * 
+	 * @param mode
+	 * 		the execution mode
+	 */
+	void setExecutionMode(ExecutionMode mode);
+	
+	/**
+	 * @return the number of generations computed between two displayed ones.
+	 */
+	int getGenerationsPerStep();
+	
+	/**
+	 * Sets the number of generations computed between two displayed ones:
+	 * with more than one, tiles of the map are advanced by all the generations
+	 * of a step at once and the intermediate generations are not displayed.
+	 * It takes effect from the next start of the game.
+	 * 
+	 * @param generations
+	 * 		the number of generations for each step
+	 */
+	void setGenerationsPerStep(int generations);
+	
+	/**
+	 * @return how the computation of the generations is scheduled.
+	 */
+	SchedulingMode getSchedulingMode();
+	
+	/**
+	 * Sets how the computation of the generations is scheduled.
+	 * It takes effect from the next start of the game.
+	 * 
+	 * @param mode
+	 * 		the scheduling mode
+	 */
+	void setSchedulingMode(SchedulingMode mode);
+	
+	/**
+	 * Sets the region of the cell map visible in the view, computed first
+	 * with {@link SchedulingMode#VIEWPORT_FIRST}. It takes effect from the next generation.
+	 * 
+	 * @param viewport
+	 * 		the visible region, in cells
+	 */
+	void setViewport(Rectangle viewport);
+	
+	/**
+	 * @return the kernel computing the tiles of the cell map.
+	 */
+	TileKernelType getTileKernel();
+	
+	/**
+	 * Sets the kernel computing the tiles of the cell map, used with more than one generation
+	 * per step and when the tiles engine is selected.
+	 * It takes effect from the next creation of the cell map (after a reset).
+	 * 
+	 * @param kernel
+	 * 		the tile kernel
+	 */
+	void setTileKernel(TileKernelType kernel);
+	
+	/**
+	 * @return true if the engine computing the generations is chosen automatically.
+	 */
+	boolean isAdaptiveEngine();
+	
+	/**
+	 * Sets whether the engine computing the generations is chosen automatically as the population
+	 * evolves (whole tiles for dense populations, the cells around the changes for sparse ones).
+	 * It applies with one generation per step and a barrier between generations.
+	 * The switches are recorded to a CSV file together with the statistics.
+	 * It takes effect from the next start of the game.
+	 * 
+	 * @param adaptive
+	 * 		true to choose the engine automatically
+	 */
+	void setAdaptiveEngine(boolean adaptive);
+	
+	/**
+	 * @return true if the population statistics of every generation are recorded to a CSV file.
+	 */
+	boolean isStatisticsRecording();
+	
+	/**
+	 * Sets whether the population statistics of every generation are recorded
+	 * to a CSV file in the working directory, a new file for each run.
+	 * It takes effect from the next start of the game.
+	 * 
+	 * @param recording
+	 * 		true to record the statistics
+	 */
+	void setStatisticsRecording(boolean recording);
+	
+	/**
+	 * @return the port where remote viewers can connect, empty if the viewer server is not running.
+	 */
+	Optional<Integer> getViewerServerPort();
+	
+	/**
+	 * Starts or stops the embedded server which streams the generations to remote
+	 * (browser) viewers, on all the network interfaces.
+	 * 
+	 * @param enabled
+	 * 		true to start the server, false to stop it
+	 */
+	void setViewerServerEnabled(boolean enabled);
+	
 }
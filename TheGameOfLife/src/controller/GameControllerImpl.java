@@ -1,21 +1,36 @@
 package controller;
 
 import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Predicate;
 
 import org.magicwerk.brownies.collections.BigList;
 
+import model.CellMapSnapshot;
 import model.ConwayCellMap;
 import model.ConwayCellMapImpl;
+import model.DensityMap;
+import model.DensityPyramid;
 import model.GenerationResult;
+import model.LifeRule;
+import model.PackedStates;
+import model.PopulationStatistics;
+import model.StateRepresentation;
+import model.TileKernelType;
+import model.ViewportResult;
 import view.GameOfLifeFrame;
 import view.ProgressType;
 
@@ -24,21 +39,47 @@ import view.ProgressType;
  */
 public class GameControllerImpl implements GameController {
 
-	private static final int BUFFER_SIZE = 100;
+	// Fraction of the heap available to the model and to the queued results
+	private static final double MEMORY_BUDGET_RATIO = 0.75;
 	private static final int PROGRESS_PERIOD = 250;
 	private static final int DEFAULT_MIN_TICK_TIME = 1500;
+	private static final int VIEWER_PORT = 8025;
 	
 	private ConwayCellMap model;
+	private DensityPyramid density;
 	private final GameOfLifeFrame view;
-	private final BlockingQueue<GenerationResult> queue;
+	private final MemoryBudget memoryBudget;
+	private GenerationQueue queue;
+	private StateRepresentation representation;
 	private final ExecutorService executor;
+	private final int poolSize;
+	private final BandScheduler scheduler;
 	private final Flag stopFlag;
-	private Optional<GameOfLifeProducer> producer;
-	private Optional<GameOfLifeConsumer> consumer;
+	private Optional<Runnable> producer;
 	private int minTickTime;
 	private boolean isMapInitialized;
+	private final ProgressSampler progressSampler;
 	
-	private Optional<ScheduledFuture<?>> updatingPool;
+	private volatile ExecutionMode executionMode;
+	private volatile ThreadFactory controlThreads;
+	private volatile ThreadFactory gameThreads;
+	private volatile int generationsPerStep;
+	private volatile SchedulingMode schedulingMode;
+	private volatile Optional<Rectangle> viewport;
+	private volatile boolean adaptiveEngine;
+	private volatile TileKernelType tileKernel;
+	private volatile boolean statisticsRecording;
+	private Optional<StatisticsStream> statistics;
+	private volatile Optional<ViewerServer> viewerServer;
+	private volatile Optional<Thread> producerThread;
+	private volatile Optional<Thread> consumerThread;
+	// Control operations, run one at a time in the order they are requested
+	private final SerialExecutor controlOperations;
+	
+	// Measures of the current run
+	private long runStartLatency;
+	private long runStartSwitches;
+	private long runStartGeneration;
 	
 	
 	/**
@@ -52,20 +93,36 @@ public class GameControllerImpl implements GameController {
 		this.view = view;
 		this.isMapInitialized = false;
 		// Calculates the pool size for tasks executor, according to the processors number
-		final int poolSize = Runtime.getRuntime().availableProcessors() + 1;
+		this.poolSize = Runtime.getRuntime().availableProcessors() + 1;
 		// Initializes the executor
-		this.executor = Executors.newFixedThreadPool(poolSize);
+		this.executor = Executors.newFixedThreadPool(this.poolSize);
+		// Initializes the scheduler, with a band of rows for each thread of the pool
+		this.scheduler = new BandScheduler(this.poolSize);
 		// Initializes the stop flag
 		this.stopFlag = new Flag();
 		this.stopFlag.setOn();
-		// Initializes the updating schedule
-		this.updatingPool = Optional.empty();
-		// Creates the producer / consumer queue
-		this.queue = new ArrayBlockingQueue<>(BUFFER_SIZE);
-		// Initializes the producer and the consumer
+		// Initializes the progress sampler
+		this.progressSampler = new ProgressSampler(PROGRESS_PERIOD);
+		// The producer / consumer queue is created with the map, within the memory budget
+		this.memoryBudget = MemoryBudget.ofHeap(MEMORY_BUDGET_RATIO);
+		// Initializes the producer
 		this.producer = Optional.empty();
-		this.consumer = Optional.empty();
+		this.statistics = Optional.empty();
+		this.viewerServer = Optional.empty();
+		this.producerThread = Optional.empty();
+		this.consumerThread = Optional.empty();
+		this.controlOperations = new SerialExecutor(operation -> this.controlThreads.newThread(operation).start());
 		this.minTickTime = DEFAULT_MIN_TICK_TIME;
+		// Uses platform threads by default
+		setExecutionMode(ExecutionMode.PLATFORM_THREADS);
+		// Displays every generation by default
+		this.generationsPerStep = 1;
+		this.schedulingMode = SchedulingMode.GENERATION_BARRIER;
+		// The visible region is unknown until the view reports it
+		this.viewport = Optional.empty();
+		// Keeps the engine given by the generations per step by default
+		this.adaptiveEngine = false;
+		this.tileKernel = TileKernelType.NEIGHBOR_COUNT;
 	}
 	
 	
@@ -94,92 +151,445 @@ public class GameControllerImpl implements GameController {
 		
 		this.view.setProgress(ProgressType.INDETERMINATE, "Computing next generation...");
 		this.model.nextGeneration();
+		this.density.update(this.model);
 		this.isMapInitialized = true;
 		this.view.reset();
-		this.view.drawCells(this.model.getCellMapStates(), null);
+		final DensityMap overview = this.density.snapshot();
+		final PackedStates states = publishedStates(overview);
+		this.view.drawOverview(overview, states);
+		this.view.drawCells(states);
+	}
+	
+	/*
+	 * Stores the last published generation with the representation of the queued states,
+	 * so that the view never holds more than a queued result.
+	 */
+	private PackedStates publishedStates(final DensityMap overview) {
+		try (CellMapSnapshot snapshot = this.model.acquireSnapshot()) {
+			return PackedStates.of(snapshot, this.representation, overview.getCount(overview.getLevelCount(), 0, 0));
+		}
 	}
 	
 	/*
-	 * Gets the map dimension specified as input from the view and
-	 * initializes the model. Return true if the operation is successful,
-	 * false otherwise.
+	 * Gets the map dimension and the rule specified as input from the view and
+	 * initializes the model, unless it does not fit in the memory budget.
+	 * Return true if the operation is successful, false otherwise.
 	 */
 	private boolean initModel() {
 		final Optional<Dimension> mapDimension = view.getMapDimension();
 		if (mapDimension.isPresent()) {
-			this.model = new ConwayCellMapImpl(mapDimension.get().width, mapDimension.get().height);
+			final LifeRule rule;
+			try {
+				rule = view.getRule().map(LifeRule::parse).orElse(LifeRule.CONWAY);
+			} catch (IllegalArgumentException e) {
+				view.showAlert("Invalid rule", e.getMessage());
+				return false;
+			}
+			final MemoryPlan plan;
+			try {
+				plan = this.memoryBudget.plan(mapDimension.get());
+			} catch (IllegalArgumentException e) {
+				view.showAlert("Map too large", e.getMessage());
+				return false;
+			}
+			// Releases the previous map first, since the plan gives the whole budget to the new one
+			this.model = null;
+			this.density = null;
+			this.queue = new GenerationQueue(plan.getQueueBytes());
+			this.representation = plan.getRepresentation();
+			this.model = new ConwayCellMapImpl(mapDimension.get().width, mapDimension.get().height, rule, this.tileKernel);
+			this.density = new DensityPyramid(mapDimension.get());
 			return true;
 		}
+		view.showAlert("Failed to init", "Failed to start. Maybye some input field are empty");
 		return false;
 	}
 	
+	/*
+	 * Runs a control operation on a new thread of the current execution mode, once the control
+	 * operations requested before it are over: no two of them ever touch the state of the game
+	 * at the same time, so a check of the running game holds until the operation ends.
+	 */
+	private void runControl(final Runnable operation) {
+		this.controlOperations.execute(operation);
+	}
+	
+	/*
+	 * Wakes up producer and consumer if they are waiting, so that they
+	 * notice the stop flag without delay.
+	 */
+	private void interruptWaits() {
+		producerThread.ifPresent(Thread::interrupt);
+		consumerThread.ifPresent(Thread::interrupt);
+	}
+	
+	/*
+	 * Creates the statistics stream of a new run, recording to a new CSV file if requested.
+	 */
+	private StatisticsStream openStatistics() {
+		final StatisticsStream stream = new StatisticsStream(executionMode, view);
+		if (statisticsRecording) {
+			try {
+				stream.addSink(CsvStatisticsSink.inWorkingDirectory());
+			} catch (IOException e) {
+				view.showAlert("Statistics not recorded", "Failed to create the statistics file.\n\n" + e.getMessage());
+			}
+		}
+		return stream;
+	}
+	
+	/*
+	 * Creates the engine selector of a new run, if the engine is chosen automatically,
+	 * logging its switches to the statistics stream (and to a new CSV file if requested).
+	 */
+	private Optional<EngineSelector> newEngineSelector(final StatisticsStream stream, final int generations) {
+		if (!adaptiveEngine || generations != 1) {
+			return Optional.empty();
+		}
+		if (statisticsRecording) {
+			try {
+				stream.addSink(CsvEngineSwitchSink.inWorkingDirectory());
+			} catch (IOException e) {
+				view.showAlert("Engine switches not recorded", "Failed to create the engine switches file.\n\n" + e.getMessage());
+			}
+		}
+		return Optional.of(new EngineSelector(ComputeEngine.CHANGE_LIST, stream::publishSwitch));
+	}
+	
+	/*
+	 * Waits for the termination of producer and consumer, then closes the
+	 * statistics stream and publishes the measures of the run that has just finished.
+	 */
+	private void awaitTermination(final long stopTime) {
+		try {
+			for (final Optional<Thread> thread : Arrays.asList(producerThread, consumerThread)) {
+				if (thread.isPresent()) {
+					thread.get().join();
+				}
+			}
+		} catch (InterruptedException e) {
+			return;
+		}
+		final long stopLatency = System.nanoTime() - stopTime;
+		final long switches = ExecutionMetrics.readContextSwitches();
+		producerThread = Optional.empty();
+		consumerThread = Optional.empty();
+		statistics.ifPresent(StatisticsStream::close);
+		statistics = Optional.empty();
+		view.setExecutionMetrics(new ExecutionMetrics(executionMode, runStartLatency, stopLatency,
+				switches < 0 || runStartSwitches < 0 ? -1 : switches - runStartSwitches,
+				model.getGenerationNumber() - runStartGeneration,
+				scheduler.getLocalChunks(), scheduler.getStolenChunks()));
+	}
+	
 	@Override
 	public void start() {
-		new Thread(() -> {
+		runControl(() -> {
+			if (!stopFlag.isOn() || producerThread.isPresent()) {
+				// Already running
+				return;
+			}
 			if (!isMapInitialized) {
 				if (initModel()) {
 					initCellMap();
-				} else {
-					view.showAlert("Failed to init", "Failed to start. Maybye some input field are empty");
 				}
 			}
 			if (isMapInitialized) {
 				view.setStarted();
 				stopFlag.setOff();
+				runStartSwitches = ExecutionMetrics.readContextSwitches();
+				runStartGeneration = model.getGenerationNumber();
+				scheduler.resetCounters();
 				
-				// Starts producer and consumer threads
-				producer = Optional.of(new GameOfLifeProducer(queue, executor, model, view, stopFlag));
-				consumer = Optional.of(new GameOfLifeConsumer(queue, view, stopFlag, minTickTime));
-				producer.get().start();
-				consumer.get().start();
+				// Starts producer and consumer threads, measuring the time until both are running
+				final long startTime = System.nanoTime();
+				final CountDownLatch running = new CountDownLatch(2);
+				final LatestFrameSlot<ViewportResult> viewportFrames = new LatestFrameSlot<>();
+				final StatisticsStream s = openStatistics();
+				final Runnable p = schedulingMode == SchedulingMode.DATAFLOW
+						? new DataflowProducer(queue, executor, model, density, view, stopFlag, generationsPerStep, representation)
+						: new GameOfLifeProducer(queue, executor, poolSize, scheduler, model, density, view, stopFlag,
+								generationsPerStep, representation,
+								schedulingMode == SchedulingMode.VIEWPORT_FIRST ? Optional.of(viewportFrames) : Optional.empty(),
+								() -> viewport, newEngineSelector(s, generationsPerStep));
+				final LatestFrameSlot<GenerationResult> frames = new LatestFrameSlot<>();
+				final GameOfLifeConsumer c = new GameOfLifeConsumer(queue, view, s,
+						res -> viewerServer.ifPresent(server -> server.publish(res)), frames, stopFlag);
+				statistics = Optional.of(s);
+				producer = Optional.of(p);
+				// Renders the newest generation of the slot at each pulse of the view
+				view.startRendering(frames, viewportFrames, minTickTime);
+				producerThread = Optional.of(gameThreads.newThread(() -> {
+					running.countDown();
+					p.run();
+				}));
+				consumerThread = Optional.of(gameThreads.newThread(() -> {
+					running.countDown();
+					c.run();
+				}));
+				producerThread.get().start();
+				consumerThread.get().start();
+				try {
+					running.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				runStartLatency = System.nanoTime() - startTime;
+				view.setExecutionMetrics(new ExecutionMetrics(executionMode, runStartLatency, -1, -1, 0, 0, 0));
 				
-				updatingPool = Optional.of(Executors.newSingleThreadScheduledExecutor()
-						.scheduleAtFixedRate(new Thread(new Runnable() {
-					@Override
-					public void run() {
-						if (queue.isEmpty()) {
-							view.updateProgress(model.getPercentageCompletion());
-						}
-					}
-				}), 0, PROGRESS_PERIOD, TimeUnit.MILLISECONDS));				
+				// Samples the progress of the model (or of the tiles of the dataflow producer) on the shared sampling thread
+				if (p instanceof DataflowProducer) {
+					final DataflowProducer dataflow = (DataflowProducer) p;
+					progressSampler.start(dataflow::getComputedCells, dataflow::getPercentageCompletion, view, queue);
+				} else {
+					progressSampler.start(model, view, queue);
+				}
 			}
-		}).start();	
+		});
 	}
 	
 	@Override
 	public void stop() {
-		new Thread(new Runnable() {		
-			@Override
-			public void run() {
-				view.setProgress(ProgressType.INDETERMINATE, "Stopping...");
-				stopFlag.setOn();
-				view.setStopped();
-				view.setProgress(ProgressType.IDLE, "(Stopped) Idle");
-				producer = Optional.empty();
-				consumer = Optional.empty();
-				updatingPool.ifPresent(p -> p.cancel(true));
-				updatingPool = Optional.empty();
-			}
-		}).start();
+		runControl(() -> {
+			view.setProgress(ProgressType.INDETERMINATE, "Stopping...");
+			final long stopTime = System.nanoTime();
+			stopFlag.setOn();
+			interruptWaits();
+			view.setStopped();
+			view.setProgress(ProgressType.IDLE, "(Stopped) Idle");
+			producer = Optional.empty();
+			progressSampler.stop();
+			view.setComputationSpeed(0);
+			awaitTermination(stopTime);
+			// Shows the last generation consumed before the stop
+			view.stopRendering(true);
+		});
 	}
 
 	@Override
 	public void reset() {
-		new Thread(new Runnable() {		
-			@Override
-			public void run() {
-				view.setProgress(ProgressType.INDETERMINATE, "Resetting...");
-				stopFlag.setOn();
+		runControl(() -> {
+			view.setProgress(ProgressType.INDETERMINATE, "Resetting...");
+			final long stopTime = System.nanoTime();
+			stopFlag.setOn();
+			interruptWaits();
+			if (queue != null) {
 				queue.clear();
-				isMapInitialized = false;
-				view.reset();
-				view.setProgress(ProgressType.IDLE, "Idle");
-				producer = Optional.empty();
-				consumer = Optional.empty();
-				updatingPool.ifPresent(p -> p.cancel(true));
-				updatingPool = Optional.empty();
 			}
-		}).start();
+			isMapInitialized = false;
+			view.stopRendering(false);
+			view.reset();
+			view.setProgress(ProgressType.IDLE, "Idle");
+			producer = Optional.empty();
+			progressSampler.stop();
+			awaitTermination(stopTime);
+		});
+	}
+	
+	@Override
+	public CompletableFuture<PopulationStatistics> step() {
+		return runBatch(1, Optional.empty());
+	}
+	
+	@Override
+	public CompletableFuture<PopulationStatistics> runGenerations(final long generations) {
+		if (generations < 1) {
+			throw new IllegalArgumentException("At least one generation must be computed");
+		}
+		return runBatch(generations, Optional.empty());
+	}
+	
+	@Override
+	public CompletableFuture<PopulationStatistics> runUntil(final Predicate<PopulationStatistics> condition) {
+		Objects.requireNonNull(condition);
+		return runBatch(Long.MAX_VALUE, Optional.of(condition));
+	}
+	
+	/*
+	 * Computes a batch of generations of the stopped game on a producer thread, with the workers
+	 * and the buffers of a run but without queue, consumer or snapshots of the intermediate generations,
+	 * then displays the last generation. A batch can be stopped as a run.
+	 */
+	private CompletableFuture<PopulationStatistics> runBatch(final long generations,
+			final Optional<Predicate<PopulationStatistics>> until) {
+		final CompletableFuture<PopulationStatistics> res = new CompletableFuture<>();
+		runControl(() -> {
+			if (!stopFlag.isOn() || producerThread.isPresent()) {
+				res.completeExceptionally(new IllegalStateException("The game is running"));
+				return;
+			}
+			if (!isMapInitialized) {
+				if (initModel()) {
+					initCellMap();
+				}
+			}
+			if (!isMapInitialized) {
+				res.completeExceptionally(new IllegalStateException("The cell map is not initialized"));
+				return;
+			}
+			view.setStarted();
+			view.setProgress(ProgressType.INDETERMINATE, "Computing generations...");
+			stopFlag.setOff();
+			runStartSwitches = ExecutionMetrics.readContextSwitches();
+			runStartGeneration = model.getGenerationNumber();
+			runStartLatency = 0;
+			scheduler.resetCounters();
+			
+			// Intermediate generations are never displayed, so each step computes a single one
+			final StatisticsStream s = new StatisticsStream(executionMode, view);
+			final GameOfLifeProducer p = new GameOfLifeProducer(queue, executor, poolSize, scheduler, model, density, view,
+					stopFlag, 1, representation, Optional.empty(), () -> viewport, newEngineSelector(s, 1));
+			statistics = Optional.of(s);
+			producer = Optional.of(p);
+			producerThread = Optional.of(gameThreads.newThread(() -> {
+				final Chrono cron = new Chrono();
+				cron.start();
+				Optional<PopulationStatistics> last = Optional.empty();
+				Throwable failure = null;
+				try {
+					last = p.runBatch(generations, until);
+				} catch (InterruptedException | ExecutionException | RuntimeException e) {
+					failure = e;
+				}
+				cron.stop();
+				finishBatch(res, last, failure, cron.getTime());
+			}));
+			producerThread.get().start();
+			progressSampler.start(model, view, queue);
+		});
+		return res;
+	}
+	
+	/*
+	 * Ends a batch of generations on a control thread: displays its last generation
+	 * and completes its future.
+	 */
+	private void finishBatch(final CompletableFuture<PopulationStatistics> res, final Optional<PopulationStatistics> last,
+			final Throwable failure, final long elapsedTime) {
+		runControl(() -> {
+			final long stopTime = System.nanoTime();
+			stopFlag.setOn();
+			view.setStopped();
+			view.setProgress(ProgressType.IDLE, "Idle");
+			producer = Optional.empty();
+			progressSampler.stop();
+			view.setComputationSpeed(0);
+			awaitTermination(stopTime);
+			if (!isMapInitialized) {
+				// Reset meanwhile: there is nothing left to display
+				res.completeExceptionally(new CancellationException("The game has been reset"));
+				return;
+			}
+			final DensityMap overview = density.snapshot();
+			final PackedStates states = publishedStates(overview);
+			view.drawOverview(overview, states);
+			view.drawCells(states);
+			if (failure != null) {
+				view.showAlert("Thread error", "The generations could not be computed.\n\n" + failure.getMessage());
+				res.completeExceptionally(failure);
+			} else if (last.isPresent()) {
+				view.setGenerationInfo(last.get().getGeneration(), elapsedTime, -1, last.get().getAliveCells());
+				view.setPopulationStatistics(last.get());
+				res.complete(last.get());
+			} else {
+				res.completeExceptionally(new CancellationException("The game has been stopped"));
+			}
+		});
+	}
+	
+	@Override
+	public ExecutionMode getExecutionMode() {
+		return this.executionMode;
+	}
+	
+	@Override
+	public void setExecutionMode(final ExecutionMode mode) {
+		Objects.requireNonNull(mode);
+		this.executionMode = mode;
+		this.controlThreads = ExecutionThreads.newFactory(mode, "Control");
+		this.gameThreads = ExecutionThreads.newFactory(mode, "Game");
+	}
+	
+	@Override
+	public int getGenerationsPerStep() {
+		return this.generationsPerStep;
+	}
+	
+	@Override
+	public void setGenerationsPerStep(final int generations) {
+		if (generations < 1) {
+			throw new IllegalArgumentException("At least one generation per step must be computed");
+		}
+		this.generationsPerStep = generations;
+	}
+	
+	@Override
+	public SchedulingMode getSchedulingMode() {
+		return this.schedulingMode;
+	}
+	
+	@Override
+	public void setSchedulingMode(final SchedulingMode mode) {
+		Objects.requireNonNull(mode);
+		this.schedulingMode = mode;
+	}
+	
+	@Override
+	public void setViewport(final Rectangle viewport) {
+		Objects.requireNonNull(viewport);
+		this.viewport = viewport.isEmpty() ? Optional.empty() : Optional.of(new Rectangle(viewport));
+	}
+	
+	@Override
+	public TileKernelType getTileKernel() {
+		return this.tileKernel;
+	}
+	
+	@Override
+	public void setTileKernel(final TileKernelType kernel) {
+		Objects.requireNonNull(kernel);
+		this.tileKernel = kernel;
+	}
+	
+	@Override
+	public boolean isAdaptiveEngine() {
+		return this.adaptiveEngine;
+	}
+	
+	@Override
+	public void setAdaptiveEngine(final boolean adaptive) {
+		this.adaptiveEngine = adaptive;
+	}
+	
+	@Override
+	public boolean isStatisticsRecording() {
+		return this.statisticsRecording;
+	}
+	
+	@Override
+	public void setStatisticsRecording(final boolean recording) {
+		this.statisticsRecording = recording;
+	}
+	
+	@Override
+	public Optional<Integer> getViewerServerPort() {
+		return this.viewerServer.map(ViewerServer::getPort);
+	}
+	
+	@Override
+	public synchronized void setViewerServerEnabled(final boolean enabled) {
+		if (enabled && !this.viewerServer.isPresent()) {
+			try {
+				final ViewerServer server = new ViewerServer(new InetSocketAddress(VIEWER_PORT), this.executionMode);
+				server.start();
+				this.viewerServer = Optional.of(server);
+			} catch (IOException e) {
+				view.showAlert("Viewer server not started", "Failed to listen on port " + VIEWER_PORT + ".\n\n" + e.getMessage());
+			}
+		} else if (!enabled) {
+			this.viewerServer.ifPresent(ViewerServer::close);
+			this.viewerServer = Optional.empty();
+		}
 	}
 	
 	@Override
@@ -195,7 +605,7 @@ public class GameControllerImpl implements GameController {
 	@Override
 	public void setViewSpeed(final int minimumDelay) {
 		this.minTickTime = minimumDelay;
-		this.consumer.ifPresent(c -> c.setConsumerSpeed(minimumDelay));
+		this.view.setRenderingSpeed(minimumDelay);
 	}
 	
 }
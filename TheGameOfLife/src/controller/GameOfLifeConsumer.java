@@ -1,7 +1,7 @@
 package controller;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import model.GenerationResult;
 import view.GameOfLifeFrame;
@@ -9,21 +9,22 @@ import view.ProgressType;
 
 /**
  * This class models a Game of Life Consumer.
- * It picks up the results of the computations from the buffer and shows them
- * on video with the minimum frequency desired.
+ * It picks up the results of the computations from the buffer, publishes
+ * their statistics and hands them over to the view through a latest-frame slot:
+ * the view renders the newest one at its own pace, so the consumer never waits
+ * for the rendering.
  *
  */
-public class GameOfLifeConsumer extends Thread {
+public class GameOfLifeConsumer implements Runnable {
 	
-	// Time when last update happened. Used for controlling the frame rate
-	private long lastUpdate;
+	// Maximum time waited for a result before checking the stop flag again
+	private static final int POLL_PERIOD = 50;
 	
-	// Desired frame duration
-	private volatile int minTickTime;
-	
-	private final BlockingQueue<GenerationResult> queue;
+	private final GenerationQueue queue;
 	private final GameOfLifeFrame view;
-	private CountDownLatch latch;
+	private final StatisticsStream statistics;
+	private final Consumer<GenerationResult> remoteViewers;
+	private final LatestFrameSlot<GenerationResult> frames;
 	private final Flag stopFlag;
 	
 	
@@ -34,73 +35,51 @@ public class GameOfLifeConsumer extends Thread {
 	 * 		the producer / consumer queue
 	 * @param view
 	 * 		the application view
+	 * @param statistics
+	 * 		the stream where to publish the statistics of every generation
+	 * @param remoteViewers
+	 * 		the publisher of every generation to the remote viewers (it must never wait)
+	 * @param frames
+	 * 		the slot where to publish every generation for the view
 	 * @param stopFlag
 	 * 		the stop flag
 	 */
-	public GameOfLifeConsumer(final BlockingQueue<GenerationResult> queue, final GameOfLifeFrame view,
-			final Flag stopFlag, final int defaultMinTickTime) {
+	public GameOfLifeConsumer(final GenerationQueue queue, final GameOfLifeFrame view,
+			final StatisticsStream statistics, final Consumer<GenerationResult> remoteViewers,
+			final LatestFrameSlot<GenerationResult> frames, final Flag stopFlag) {
 		this.queue = queue;
 		this.view = view;
+		this.statistics = statistics;
+		this.remoteViewers = remoteViewers;
+		this.frames = frames;
 		this.stopFlag = stopFlag;
-		this.minTickTime = defaultMinTickTime;
-	}
-	
-	/**
-	 * Counts time that passed since last game update
-	 * and sleeps for a while if this time was shorter than target frame time.
-	 * @throws InterruptedException
-	 */
-	private void limitFPS() throws InterruptedException {
-		final long now = System.currentTimeMillis();
-		if (lastUpdate > 0) {
-			final long delta = now - lastUpdate;
-			if (delta < this.minTickTime) {
-				Thread.sleep(this.minTickTime - delta);
-			}
-		} else {
-			Thread.sleep(this.minTickTime);
-		}
-		lastUpdate = System.currentTimeMillis();
-	}
-	
-	/**
-	 * @return the current minimum delay used by the view consumer.
-	 */
-	public int getConsumerSpeed() {
-		return this.minTickTime;
-	}
-	
-	/**
-	 * Sets the minimum delay between each view consumer representation.
-	 * 
-	 * @param minTickTime
-	 * 		the minimum delay between each frame
-	 */
-	public void setConsumerSpeed(final int minTickTime) {
-		this.minTickTime = minTickTime;
 	}
 	
 	@Override
 	public void run() {
 		GenerationResult res;
+		this.view.setProgress(ProgressType.INDETERMINATE, "Computing next generation...");
 		while (!stopFlag.isOn()) {
 			try {
-				// Waits for minimum view updating frequency
-				limitFPS();
-				
-				// Retrieves a generation result, waiting if necessary until an element becomes available.
-				if (!stopFlag.isOn())
-					this.view.setProgress(ProgressType.INDETERMINATE, "Computing next generation...");
-				res = queue.take();
+				// Retrieves a generation result, waiting if necessary until an element becomes available
+				// or the game is stopped.
+				res = null;
+				while (res == null && !stopFlag.isOn()) {
+					res = queue.poll(POLL_PERIOD, TimeUnit.MILLISECONDS);
+				}
+				if (res == null) {
+					break;
+				}
 				
-				// Updates view
-				this.view.setGenerationInfo(res.getGenerationNumber(), res.getComputationTime(), res.getAliveCells());
-				this.view.updateProgress(0);
-				this.latch = new CountDownLatch(1);
-				this.view.drawCells(res.getCellsStates(), this.latch);
-				this.latch.await();
+				// Updates statistics and remote viewers, and replaces the frame the view has not rendered yet
+				this.statistics.publish(res.getStatistics());
+				this.remoteViewers.accept(res);
+				this.frames.publish(res);
 			} catch (InterruptedException ie) {
-				view.showAlert("Thread error", "Someone killed the consumer when was waiting for something. Please reset.\n\n" + ie.getMessage());
+				// Being interrupted after a stop is the expected way to leave a wait early
+				if (!stopFlag.isOn()) {
+					view.showAlert("Thread error", "Someone killed the consumer when was waiting for something. Please reset.\n\n" + ie.getMessage());
+				}
 			}
 		}
 	}
@@ -1,33 +1,76 @@
 package controller;
 
+import java.awt.Dimension;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
+import model.CellMapSnapshot;
 import model.ConwayCellMap;
+import model.ConwayCellMapImpl;
+import model.DensityPyramid;
 import model.GenerationResult;
+import model.PackedStates;
+import model.PopulationAccumulator;
+import model.PopulationStatistics;
+import model.StateRepresentation;
+import model.Tiles;
+import model.ViewportResult;
 import view.GameOfLifeFrame;
 
 /**
  * This class models a Game of Life Producer.
  * It enumerates the updated cells for each game generation and then
  * put the results on the queue.
+ * With more than one generation per step, each task advances whole tiles
+ * by all the generations of the step while they are in cache (temporal blocking),
+ * and only the last generation of the step is synchronized and put on the queue.
+ * With one generation per step, only the cells around the last changes are computed,
+ * so the statistics of each generation are obtained by merging its changes into the
+ * totals of the previous one.
+ * The workers, their tasks and the lists they read are kept for the whole run,
+ * so once warmed up the loop allocates nothing but the result put on the queue;
+ * the memory it allocates is measured at each generation.
+ * With a slot for the visible region, the cells (or the tiles) under the viewport are
+ * computed first and their states published at once, before the rest of the map.
+ * With one generation per step and an engine selector, each generation is computed either
+ * from the cells around the last changes or by whole tiles, as chosen by the selector
+ * from the measures of the previous generations.
+ * The producer can also run a batch of generations on the calling thread: the intermediate
+ * generations are neither published nor put on the queue, only the last one is.
  *
  */
-public class GameOfLifeProducer extends Thread {
+public class GameOfLifeProducer implements Runnable {
 	
-	private final int CHUNK_SIZE = 100;
+	private static final int CELLS_CHUNK_SIZE = 100;
+	private static final int TILES_CHUNK_SIZE = 1;
 	
-	private final BlockingQueue<GenerationResult> queue;
+	// Maximum time waited for space in the queue before checking the stop flag again
+	private static final int POLL_PERIOD = 50;
+	
+	private final GenerationQueue queue;
 	private final ExecutorService executor;
+	private final int workers;
+	private final BandScheduler scheduler;
 	private final ConwayCellMap model;
+	private final DensityPyramid density;
 	private final GameOfLifeFrame view;
 	private final Flag stopFlag;
+	private final int generationsPerStep;
+	private final StateRepresentation representation;
+	private final Optional<LatestFrameSlot<ViewportResult>> viewportFrames;
+	private final Supplier<Optional<Rectangle>> viewport;
+	private final Optional<EngineSelector> engineSelector;
+	private final int mapWidth;
+	private final int mapHeight;
 
 	
 	/**
@@ -37,74 +80,407 @@ public class GameOfLifeProducer extends Thread {
 	 * 		the producer / consumer queue
 	 * @param executor
 	 * 		the executor service
+	 * @param workers
+	 * 		the number of threads of the executor service
+	 * @param scheduler
+	 * 		the scheduler distributing the cells among the threads of the executor service
 	 * @param model
 	 * 		the application model
+	 * @param density
+	 * 		the density pyramid of the model, kept up to date by the producer
 	 * @param view
 	 * 		the application view
 	 * @param stopFlag
 	 * 		the stop flag
+	 * @param generationsPerStep
+	 * 		the number of generations computed between two results
+	 * @param representation
+	 * 		the representation of the states put on the queue
+	 * @param viewportFrames
+	 * 		the slot where the visible region of each generation is published before the rest,
+	 * empty to compute the whole map at once
+	 * @param viewport
+	 * 		the visible region of the view, read at each generation
+	 * @param engineSelector
+	 * 		the selector of the engine of each generation, empty to choose it from the generations per step
+	 * (it requires one generation per step)
 	 */
-	public GameOfLifeProducer(final BlockingQueue<GenerationResult> queue, final ExecutorService executor,
-			final ConwayCellMap model, final GameOfLifeFrame view, final Flag stopFlag) {
+	public GameOfLifeProducer(final GenerationQueue queue, final ExecutorService executor,
+			final int workers, final BandScheduler scheduler, final ConwayCellMap model, final DensityPyramid density, final GameOfLifeFrame view, final Flag stopFlag,
+			final int generationsPerStep, final StateRepresentation representation,
+			final Optional<LatestFrameSlot<ViewportResult>> viewportFrames, final Supplier<Optional<Rectangle>> viewport,
+			final Optional<EngineSelector> engineSelector) {
+		if (generationsPerStep < 1) {
+			throw new IllegalArgumentException("At least one generation per step must be computed");
+		}
+		if (engineSelector.isPresent() && generationsPerStep != 1) {
+			throw new IllegalArgumentException("The engine can be selected only with one generation per step");
+		}
 		this.queue = queue;
 		this.executor = executor;
+		this.workers = workers;
+		this.scheduler = scheduler;
 		this.model = model;
+		this.density = density;
 		this.view = view;
 		this.stopFlag = stopFlag;
+		this.generationsPerStep = generationsPerStep;
+		this.representation = representation;
+		this.viewportFrames = viewportFrames;
+		this.viewport = viewport;
+		this.engineSelector = engineSelector;
+		this.mapWidth = model.getCellMapDimension().width;
+		this.mapHeight = model.getCellMapDimension().height;
+	}
+	
+	/**
+	 * Estimates the memory of the lists a producer keeps for a run, before creating it.
+	 * 
+	 * @param mapDimension
+	 * 		the dimension of the cell map
+	 * @return the approximate size of the lists, in bytes.
+	 */
+	public static long estimateBytes(final Dimension mapDimension) {
+		final long tiles = ConwayCellMapImpl.getTilesNumber(mapDimension.width, mapDimension.height);
+		// Tiles and their reused points, and the cells (or the tiles) reordered with the visible region first
+		return ConwayCellMapImpl.estimateListBytes(tiles, true) + ConwayCellMapImpl.estimateListBytes(tiles, false)
+				+ ConwayCellMapImpl.estimateListBytes((long) mapDimension.width * mapDimension.height, false);
+	}
+	
+	/*
+	 * Fills the list with the tiles of the cell map that the alive cells can reach within a step
+	 * (the others stay empty), reusing the points of the previous steps.
+	 */
+	private void tilesOf(final List<Point> tiles, final List<Point> points, final Rectangle box) {
+		if (this.model.getLiveBox(box)) {
+			Tiles.listReachable(box, this.generationsPerStep, this.mapWidth, this.mapHeight, this.model.getTileSize(),
+					tiles, points);
+		} else {
+			tiles.clear();
+		}
+	}
+	
+	/*
+	 * Tells whether the next generation is computed by whole tiles.
+	 */
+	private boolean usesTiles() {
+		return this.generationsPerStep > 1
+				|| this.engineSelector.isPresent() && this.engineSelector.get().getEngine() == ComputeEngine.TILES;
+	}
+	
+	/*
+	 * Fills the ordered list with the cells (or the tiles) inside the region (bounds included) first,
+	 * then with the others, each part keeping the order by row, and returns the size of the first part.
+	 */
+	private static int prioritize(final List<Point> cells, final List<Point> ordered,
+			final int x0, final int y0, final int x1, final int y1) {
+		ordered.clear();
+		for (int i = 0; i < cells.size(); i++) {
+			final Point p = cells.get(i);
+			if (p.x >= x0 && p.x <= x1 && p.y >= y0 && p.y <= y1) {
+				ordered.add(p);
+			}
+		}
+		final int res = ordered.size();
+		for (int i = 0; i < cells.size(); i++) {
+			final Point p = cells.get(i);
+			if (p.x < x0 || p.x > x1 || p.y < y0 || p.y > y1) {
+				ordered.add(p);
+			}
+		}
+		return res;
+	}
+	
+	/*
+	 * Runs the tasks on a range of their cells (or tiles), merging their population statistics,
+	 * and returns the memory allocated by the workers meanwhile.
+	 */
+	private long runRange(final WorkerGang gang, final List<Point> cells, final int from, final int to, final int rows,
+			final int chunkSize, final List<PopulationAccumulator> accumulators, final PopulationAccumulator statistics)
+			throws ExecutionException {
+		for (int i = 0; i < accumulators.size(); i++) {
+			accumulators.get(i).reset();
+		}
+		this.scheduler.prepare(cells, from, to, rows, chunkSize);
+		gang.runGeneration(statistics);
+		return gang.getAllocatedBytes();
+	}
+	
+	/*
+	 * Clips the visible region to the cell map, returning false if nothing is left.
+	 */
+	private boolean clipToMap(final Rectangle visible, final Rectangle region) {
+		final int x0 = Math.max(visible.x, 0);
+		final int y0 = Math.max(visible.y, 0);
+		final int x1 = Math.min(visible.x + visible.width, this.mapWidth);
+		final int y1 = Math.min(visible.y + visible.height, this.mapHeight);
+		if (x1 <= x0 || y1 <= y0) {
+			return false;
+		}
+		region.setBounds(x0, y0, x1 - x0, y1 - y0);
+		return true;
+	}
+	
+	/*
+	 * Publishes the states of the visible region in the generation being computed,
+	 * once the cells inside the region (clipped to the cell map) have been computed.
+	 * Cells of the visible region outside the cell map are off.
+	 */
+	private void publishViewport(final Rectangle visible, final Rectangle region) {
+		final boolean[][] states = new boolean[visible.height][visible.width];
+		this.model.copyNextRegion(region, states, region.x - visible.x, region.y - visible.y);
+		this.viewportFrames.get().publish(new ViewportResult(this.model.getGenerationNumber() + this.generationsPerStep,
+				visible, states));
+	}
+	
+	/*
+	 * Accounts for the alive cells of the current generation of the model,
+	 * as the totals to which the changes of the following generations are merged.
+	 */
+	private void accountAliveCells(final PopulationAccumulator statistics) {
+		statistics.reset();
+		try (CellMapSnapshot snapshot = this.model.acquireSnapshot()) {
+			snapshot.getLiveBox().ifPresent(box -> snapshot.forEachAliveCell(box, (x, y) -> statistics.add(x, y, true, true)));
+		}
+	}
+	
+	/*
+	 * Adds two allocation measures, negative if any of them is not available.
+	 */
+	private static long sumAllocations(final long a, final long b) {
+		return a < 0 || b < 0 ? -1 : a + b;
 	}
 	
 	@Override
 	public void run() {
 		try {
+			loop(Long.MAX_VALUE, Optional.empty(), false);
+		} catch (InterruptedException ie) {
+			// Being interrupted after a stop is the expected way to leave a wait early
+			if (!stopFlag.isOn()) {
+				view.showAlert("Thread error", "Someone killed the producer when was waiting for something. Please reset.\n\n" + ie.getMessage());
+			}
+		} catch (ExecutionException ie) {
+			view.showAlert("Thread error", "Someone killed the producer when was waiting for something. Please reset.\n\n" + ie.getMessage());
+		}
+	}
+	
+	/**
+	 * Runs a batch of generations on the calling thread, with the same workers and buffers as a game,
+	 * but without publishing the intermediate generations for the snapshots, updating the density pyramid
+	 * or putting results on the queue: only the last generation is published, and its statistics returned.
+	 * The batch ends early when the stop flag is turned on, the generations computed so far being kept.
+	 * 
+	 * @param generations
+	 * 		the maximum number of steps to compute
+	 * @param until
+	 * 		the condition, checked on the statistics of each new generation, which ends the batch when met
+	 * @return the statistics of the last generation, empty if the batch has been stopped.
+	 * @throws InterruptedException
+	 * 		if the calling thread is interrupted
+	 * @throws ExecutionException
+	 * 		if a task failed
+	 */
+	public Optional<PopulationStatistics> runBatch(final long generations, final Optional<Predicate<PopulationStatistics>> until)
+			throws InterruptedException, ExecutionException {
+		if (generations < 1) {
+			throw new IllegalArgumentException("At least one generation must be computed");
+		}
+		return loop(generations, until, true);
+	}
+	
+	/*
+	 * Computes the generations until the stop flag is turned on, the maximum number of steps
+	 * is reached or the condition is met, returning the statistics of the last generation
+	 * if it has not been stopped. In a batch, the generations are published only at the end.
+	 */
+	private Optional<PopulationStatistics> loop(final long maxSteps, final Optional<Predicate<PopulationStatistics>> until,
+			final boolean batch) throws InterruptedException, ExecutionException {
+		WorkerGang gang = null;
+		boolean unpublished = false;
+		try {
+			// Discards the partial results of a generation abandoned by a previous stop
+			this.model.rollbackGeneration();
+			
+			final int tileSize = this.model.getTileSize();
+			final int tileRows = (this.mapHeight + tileSize - 1) / tileSize;
 			final Chrono cron = new Chrono();
-			long cellsAlive;
-			while (!stopFlag.isOn()) {
+			final PopulationAccumulator statistics = new PopulationAccumulator(this.model.getCellMapDimension(), tileSize);
+			if (this.generationsPerStep == 1) {
+				accountAliveCells(statistics);
+			}
+			
+			/*
+			 * Prepares a task for each worker, with its own population statistics, reused at every generation:
+			 * the tasks claim the cells (or the tiles) from bands of rows, one for each thread.
+			 * The list of the cells to evaluate is refilled in place by the model, and the list of the tiles
+			 * by the producer.
+			 */
+			final List<Point> tiles = new ArrayList<>();
+			final List<Point> tilePoints = new ArrayList<>();
+			final Rectangle liveBox = new Rectangle();
+			// With the visible region first, the tasks read the cells (or the tiles) reordered by the producer
+			final boolean viewportFirst = this.viewportFrames.isPresent();
+			final List<Point> ordered = new ArrayList<>();
+			final Rectangle region = new Rectangle();
+			final List<Point> listCells = viewportFirst ? ordered : this.model.getCellsToEvaluate();
+			final List<Point> tileCells = viewportFirst ? ordered : tiles;
+			final List<PopulationAccumulator> accumulators = new ArrayList<>();
+			final List<Callable<PopulationAccumulator>> tasks = new ArrayList<>();
+			for (int i = 0; i < this.workers; i++) {
+				final PopulationAccumulator accumulator = new PopulationAccumulator(this.model.getCellMapDimension(), tileSize);
+				accumulators.add(accumulator);
+				final Callable<PopulationAccumulator> listTask = new ComputeListTask(this.model, listCells, this.scheduler, accumulator, this.stopFlag);
+				final Callable<PopulationAccumulator> tileTask = new ComputeTileTask(this.model, tileCells, this.scheduler,
+						this.generationsPerStep, accumulator, this.stopFlag);
+				if (this.engineSelector.isPresent()) {
+					// The engine is read by the workers once the generation has started, after the producer chose it
+					final EngineSelector selector = this.engineSelector.get();
+					tasks.add(() -> selector.getEngine() == ComputeEngine.TILES ? tileTask.call() : listTask.call());
+				} else {
+					tasks.add(this.generationsPerStep == 1 ? listTask : tileTask);
+				}
+			}
+			// Keeps a worker on each thread for the whole run, instead of submitting the tasks at each generation
+			gang = new WorkerGang(this.executor, tasks);
+			gang.start();
+			
+			for (long step = 1; step <= maxSteps && !stopFlag.isOn(); step++) {
 				cron.start();
-				cellsAlive = 0;
+				final long allocated = AllocationMeter.currentThreadAllocatedBytes();
+				// Memory of the visible region handed to the view, not counted with the loop
+				long handedOff = 0;
+				long workersAllocated = 0;
+				/*
+				 * Computed by whole tiles, a generation accounts for all its alive cells,
+				 * otherwise its changes are merged into the totals of the previous one.
+				 */
+				final boolean wholeTiles = usesTiles();
+				final long previousAlive = statistics.getAliveCells();
+				if (wholeTiles) {
+					statistics.reset();
+				} else {
+					statistics.resetChanges();
+				}
+				final List<Point> cells;
+				if (wholeTiles) {
+					tilesOf(tiles, tilePoints, liveBox);
+					cells = tiles;
+				} else {
+					cells = this.model.getCellsToEvaluate();
+				}
+				final List<Point> taskCells = viewportFirst ? ordered : cells;
+				final int rows = wholeTiles ? tileRows : this.mapHeight;
+				final int chunkSize = wholeTiles ? TILES_CHUNK_SIZE : CELLS_CHUNK_SIZE;
+				final long computeStart = System.nanoTime();
 				
-				// Creates the list for the management of computational tasks
-				final List<Callable<List<Boolean>>> tasks = new ArrayList<>();
-		        final List<Point> cellsToEvaluate = this.model.getCellsToEvaluate();
-		        final List<List<Point>> cellsChunks = new ArrayList<>();
-		        
-		        // Subdivides the work in chunks
-		        final int size = cellsToEvaluate.size();
-		        for (int i = 0; i < size; i+= CHUNK_SIZE) {
-		        	cellsChunks.add(cellsToEvaluate.subList(i, Math.min(i + CHUNK_SIZE, size)));
-		        }
-		        
-		        // Prepares a task for each chunk
-		        for (final List<Point> cellChunk : cellsChunks) {
-		        	tasks.add(new ComputeListTask(model, cellChunk));
-		        }
+				/*
+				 * Computes first the cells (or the tiles) under the visible region, if any, and publishes it.
+				 * A batch publishes no region: the tasks still read the cells (or the tiles) in the reordered list.
+				 */
+				int first = 0;
+				if (viewportFirst) {
+					final Optional<Rectangle> visible = batch ? Optional.empty() : this.viewport.get();
+					if (visible.isPresent() && clipToMap(visible.get(), region)) {
+						first = wholeTiles
+								? prioritize(cells, ordered, region.x / tileSize, region.y / tileSize,
+										(region.x + region.width - 1) / tileSize, (region.y + region.height - 1) / tileSize)
+								: prioritize(cells, ordered, region.x, region.y,
+										region.x + region.width - 1, region.y + region.height - 1);
+						workersAllocated = runRange(gang, ordered, 0, first, rows, chunkSize, accumulators, statistics);
+						if (!this.scheduler.isComplete() || stopFlag.isOn()) {
+							break;
+						}
+						final long publishing = AllocationMeter.currentThreadAllocatedBytes();
+						publishViewport(visible.get(), region);
+						handedOff = AllocationMeter.currentThreadAllocatedBytes() - publishing;
+					} else {
+						prioritize(cells, ordered, 0, 0, -1, -1);
+					}
+				}
 		        
-		        // Waits for tasks' results
-		        final List<Future<List<Boolean>>> res = this.executor.invokeAll(tasks);
+		        // Runs the tasks on the (remaining) cells and waits for their results, merging their population statistics
+		        workersAllocated = sumAllocations(workersAllocated,
+		        		runRange(gang, taskCells, first, taskCells.size(), rows, chunkSize, accumulators, statistics));
 		        
-		        // Counts the number of alive cells
-		        for (final Future<List<Boolean>> f : res) {
-		          for (final Boolean value : f.get()) {
-		            if (value) {
-		              cellsAlive++;
-		            }
-		          }
+		        /*
+		         * Abandons the generation if the tasks have been stopped before claiming every chunk,
+		         * or if the game has been stopped meanwhile: its partial results are rolled back
+		         * at the next start, and the transition to the next generation is not started.
+		         */
+		        if (!this.scheduler.isComplete() || stopFlag.isOn()) {
+		        	break;
 		        }
 				
 				cron.stop();
+				// Measures the generation for the engine selector, before the model moves to the next one
+				if (this.engineSelector.isPresent()) {
+					final long computeTime = System.nanoTime() - computeStart;
+					final boolean alive = this.model.getLiveBox(liveBox);
+					final long reachableCells = alive ? Tiles.countReachableCells(liveBox, this.generationsPerStep,
+							this.mapWidth, this.mapHeight, this.model.getTileSize()) : 0;
+					this.engineSelector.get().record(this.model.getGenerationNumber() + 1, computeTime,
+							this.model.getCellsToEvaluate().size(), reachableCells,
+							previousAlive, alive ? (long) liveBox.width * liveBox.height : 0);
+				}
+				
+				if (batch) {
+					// Keeps the generation to itself: only the statistics the caller needs are built
+					this.model.nextGeneration(this.generationsPerStep, false);
+					unpublished = true;
+					if (until.isPresent() || step == maxSteps) {
+						final long generation = this.model.getGenerationNumber();
+						final PopulationStatistics generationStatistics = wholeTiles
+								? statistics.toStatistics(generation) : statistics.toStatistics(generation, this.model.getLiveBox());
+						if (step == maxSteps || until.get().test(generationStatistics)) {
+							return Optional.of(generationStatistics);
+						}
+					}
+					continue;
+				}
 				
-				// Prepares the new generation of the game
-				this.model.nextGeneration();
-				// Saves the generation results and statistics
-				final GenerationResult generationResult = new GenerationResult(this.model.getGenerationNumber(),
-						this.model.getCellMapStates(), cellsAlive, cron.getTime());
+				// Prepares the new generation of the game, skipping the intermediate ones of the step
+				this.model.nextGeneration(this.generationsPerStep);
+				// Memory allocated by the loop, not counting the result handed to the consumer
+				final long end = AllocationMeter.currentThreadAllocatedBytes();
+				final long allocatedBytes = sumAllocations(allocated < 0 ? -1 : end - allocated - handedOff, workersAllocated);
+				
+				// Updates the density pyramid from the changed tiles only
+				this.density.update(this.model);
+				// Saves the generation results and statistics (the bounding box is not accumulated with the changes)
+				final long generation = this.model.getGenerationNumber();
+				final PopulationStatistics generationStatistics = wholeTiles
+						? statistics.toStatistics(generation) : statistics.toStatistics(generation, this.model.getLiveBox());
+				final PackedStates states;
+				try (CellMapSnapshot snapshot = this.model.acquireSnapshot()) {
+					states = PackedStates.of(snapshot, this.representation, generationStatistics.getAliveCells());
+				}
+				final GenerationResult generationResult = new GenerationResult(generation, states, generationStatistics,
+						cron.getTime(), allocatedBytes, this.density.snapshot());
 				/*
-				 * The put() method will block if the queue is full, waiting for space becomes available.
-				 * While waiting, it will throw InterruptedException if the current thread is interrupted.
+				 * Waits for space in the queue, giving up if the game is stopped meanwhile
+				 * (the consumer may be gone, so the queue could stay full forever).
 				 */
-				queue.put(generationResult);
+				while (!queue.offer(generationResult, POLL_PERIOD, TimeUnit.MILLISECONDS)) {
+					if (stopFlag.isOn()) {
+						return Optional.empty();
+					}
+				}
+				if (step == maxSteps) {
+					return Optional.of(generationStatistics);
+				}
+			}
+			return Optional.empty();
+		} finally {
+			// The workers are waiting for the next generation: they end without touching the model
+			if (gang != null) {
+				gang.close();
+			}
+			// Publishes the last generation of a batch, with the tiles changed since the previous published one
+			if (unpublished) {
+				this.model.publishGeneration();
+				this.density.update(this.model);
 			}
-		} catch (InterruptedException | ExecutionException ie) {
-			view.showAlert("Thread error", "Someone killed the producer when was waiting for something. Please reset.\n\n" + ie.getMessage());
 		}
 	}
 	
@@ -0,0 +1,118 @@
+package controller;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import model.GenerationResult;
+
+/**
+ * This class represents the producer / consumer queue of the generation results,
+ * bounded by the memory held by the queued results rather than by their number.
+ * A result larger than the whole budget is still accepted when the queue is empty,
+ * so that the game never blocks.
+ *
+ */
+public class GenerationQueue {
+
+	private final long byteBudget;
+	private final Queue<GenerationResult> results;
+	// Memory held by the queued results, guarded by this
+	private long bytes;
+
+
+	/**
+	 * Constructs an empty queue.
+	 *
+	 * @param byteBudget
+	 * 		the maximum memory held by the queued results, in bytes
+	 */
+	public GenerationQueue(final long byteBudget) {
+		if (byteBudget < 1) {
+			throw new IllegalArgumentException("Queue budget must be positive");
+		}
+		this.byteBudget = byteBudget;
+		this.results = new ArrayDeque<>();
+		this.bytes = 0;
+	}
+
+	/**
+	 * Inserts a result, waiting up to the specified time for enough memory to be released.
+	 *
+	 * @param result
+	 * 		the result to insert
+	 * @param timeout
+	 * 		the maximum time to wait
+	 * @param unit
+	 * 		the unit of the timeout
+	 * @return true if the result has been inserted, false if the time elapsed first.
+	 * @throws InterruptedException
+	 * 		if interrupted while waiting
+	 */
+	public synchronized boolean offer(final GenerationResult result, final long timeout, final TimeUnit unit)
+			throws InterruptedException {
+		final long size = result.getByteSize();
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (!this.results.isEmpty() && this.bytes + size > this.byteBudget) {
+			final long left = deadline - System.nanoTime();
+			if (left <= 0) {
+				return false;
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, left);
+		}
+		this.results.add(result);
+		this.bytes += size;
+		notifyAll();
+		return true;
+	}
+
+	/**
+	 * Retrieves and removes the oldest result, waiting up to the specified time for one to be inserted.
+	 *
+	 * @param timeout
+	 * 		the maximum time to wait
+	 * @param unit
+	 * 		the unit of the timeout
+	 * @return the oldest result, or null if the time elapsed first.
+	 * @throws InterruptedException
+	 * 		if interrupted while waiting
+	 */
+	public synchronized GenerationResult poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (this.results.isEmpty()) {
+			final long left = deadline - System.nanoTime();
+			if (left <= 0) {
+				return null;
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, left);
+		}
+		final GenerationResult res = this.results.remove();
+		this.bytes -= res.getByteSize();
+		notifyAll();
+		return res;
+	}
+
+	/**
+	 * @return true if there are no queued results.
+	 */
+	public synchronized boolean isEmpty() {
+		return this.results.isEmpty();
+	}
+
+	/**
+	 * @return the memory held by the queued results, in bytes.
+	 */
+	public synchronized long getBytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * Removes all the queued results.
+	 */
+	public synchronized void clear() {
+		this.results.clear();
+		this.bytes = 0;
+		notifyAll();
+	}
+
+}
@@ -0,0 +1,75 @@
+package controller;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class hands the frames of a single writer over to a single reader,
+ * keeping only the newest one: frames published before the reader takes
+ * them are dropped, and neither side ever waits for the other.
+ * It is a triple buffer: the writer fills its back buffer and swaps it with
+ * the ready one, while the reader swaps the ready buffer with its front one,
+ * both with a single atomic update of the indexes.
+ *
+ * @param <T>
+ * 		the type of the frames
+ */
+public class LatestFrameSlot<T> {
+
+	// Index bits of the back, ready and front buffers, and whether the ready buffer holds a new frame
+	private static final int INDEX_MASK = 3;
+	private static final int READY_SHIFT = 2;
+	private static final int FRONT_SHIFT = 4;
+	private static final int FRESH = 1 << 6;
+	// Frames referenced by the slot (package visible for the memory budget)
+	static final int BUFFERS = 3;
+
+	private final Object[] buffers;
+	private final AtomicInteger state;
+
+
+	/**
+	 * Constructs an empty slot.
+	 */
+	public LatestFrameSlot() {
+		this.buffers = new Object[BUFFERS];
+		// Back buffer 0, ready buffer 1, front buffer 2, no new frame
+		this.state = new AtomicInteger(1 << READY_SHIFT | 2 << FRONT_SHIFT);
+	}
+
+	/**
+	 * Publishes a frame, replacing the one not taken yet, if any.
+	 * It must be called by the writer only.
+	 *
+	 * @param frame
+	 * 		the frame to publish
+	 */
+	public void publish(final T frame) {
+		// The back buffer is changed by the writer only
+		this.buffers[this.state.get() & INDEX_MASK] = frame;
+		int s;
+		do {
+			s = this.state.get();
+		} while (!this.state.compareAndSet(s, (s >> READY_SHIFT & INDEX_MASK)
+				| (s & INDEX_MASK) << READY_SHIFT | (s & INDEX_MASK << FRONT_SHIFT) | FRESH));
+	}
+
+	/**
+	 * Takes the newest frame, if it has not been taken yet.
+	 * It must be called by the reader only.
+	 *
+	 * @return the newest frame, or null if no frame has been published since the last one taken.
+	 */
+	@SuppressWarnings("unchecked")
+	public T poll() {
+		int s;
+		do {
+			s = this.state.get();
+			if ((s & FRESH) == 0) {
+				return null;
+			}
+		} while (!this.state.compareAndSet(s, (s & INDEX_MASK)
+				| (s >> FRONT_SHIFT & INDEX_MASK) << READY_SHIFT | (s >> READY_SHIFT & INDEX_MASK) << FRONT_SHIFT));
+		return (T) this.buffers[s >> READY_SHIFT & INDEX_MASK];
+	}
+
+}
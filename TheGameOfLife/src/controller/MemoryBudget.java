@@ -0,0 +1,104 @@
+package controller;
+
+import java.awt.Dimension;
+import java.util.Objects;
+
+import model.ConwayCellMapImpl;
+import model.DensityPyramid;
+import model.StateRepresentation;
+
+/**
+ * This class checks, before creating a cell map, that the game fits in a memory budget.
+ * The fixed memory of the model, of the producers and of the results held by the consumers
+ * (the view and the remote viewers, which decode only the regions they show) is estimated
+ * first; the rest of the budget goes to the queued results, whose states are kept dense if
+ * at least a few of them fit, and compact (bit-packed or sparse) otherwise.
+ * Maps that do not fit even with compact states are rejected.
+ *
+ */
+public class MemoryBudget {
+
+	// Number of results the queue must be able to hold, and number above which it is not worth growing
+	private static final int MIN_QUEUED_RESULTS = 2;
+	private static final int MAX_QUEUED_RESULTS = 100;
+	private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+	// Results taken from the queue but still held: by the frame slot of the view (the drawn one included),
+	// by the buffers of the viewers (the newest published ones, shared by all of them) and being encoded
+	private static final int HELD_RESULTS = LatestFrameSlot.BUFFERS + ViewerServer.BUFFER_SIZE + 1;
+
+	private final long budget;
+
+
+	/**
+	 * Constructs a new memory budget.
+	 *
+	 * @param budget
+	 * 		the memory available to the game, in bytes
+	 */
+	public MemoryBudget(final long budget) {
+		if (budget < 1) {
+			throw new IllegalArgumentException("Memory budget must be positive");
+		}
+		this.budget = budget;
+	}
+
+	/**
+	 * Constructs a memory budget as a fraction of the maximum heap size.
+	 *
+	 * @param ratio
+	 * 		the fraction of the heap available to the game, between 0 and 1
+	 * @return the memory budget.
+	 */
+	public static MemoryBudget ofHeap(final double ratio) {
+		if (ratio <= 0 || ratio > 1) {
+			throw new IllegalArgumentException("Heap ratio must be between 0 and 1");
+		}
+		return new MemoryBudget((long) (Runtime.getRuntime().maxMemory() * ratio));
+	}
+
+	/**
+	 * @return the memory available to the game, in bytes.
+	 */
+	public long getBudget() {
+		return this.budget;
+	}
+
+	/**
+	 * Splits the budget for a cell map of the specified dimension.
+	 *
+	 * @param mapDimension
+	 * 		the dimension of the cell map
+	 * @return the plan of the memory.
+	 * @throws IllegalArgumentException
+	 * 		if the cell map has too many cells or does not fit in the budget
+	 */
+	public MemoryPlan plan(final Dimension mapDimension) {
+		Objects.requireNonNull(mapDimension);
+		final int width = mapDimension.width;
+		final int height = mapDimension.height;
+		final long cellsNumber = (long) width * height;
+		if (cellsNumber > ConwayCellMapImpl.MAX_CELLS) {
+			throw new IllegalArgumentException("A " + width + "x" + height + " map has " + cellsNumber
+					+ " cells, but at most " + ConwayCellMapImpl.MAX_CELLS + " are supported");
+		}
+		// Model and density pyramid, and working buffers of the heaviest producer
+		final long model = ConwayCellMapImpl.estimateBytes(width, height) + DensityPyramid.estimateBytes(mapDimension)
+				+ Math.max(DataflowProducer.estimateBytes(mapDimension), GameOfLifeProducer.estimateBytes(mapDimension));
+		for (final StateRepresentation representation : new StateRepresentation[] {
+				StateRepresentation.DENSE, StateRepresentation.BIT_PACKED }) {
+			// A full population is the worst case: sparse states are then never chosen
+			final long result = representation.estimateBytes(width, height, cellsNumber)
+					+ DensityPyramid.estimateBytes(mapDimension);
+			final long fixed = model + HELD_RESULTS * result;
+			if (fixed + MIN_QUEUED_RESULTS * result <= this.budget) {
+				return new MemoryPlan(representation, fixed, result,
+						Math.min(this.budget - fixed, MAX_QUEUED_RESULTS * result));
+			}
+		}
+		final long needed = model + (HELD_RESULTS + MIN_QUEUED_RESULTS)
+				* (StateRepresentation.BIT_PACKED.estimateBytes(width, height, cellsNumber) + DensityPyramid.estimateBytes(mapDimension));
+		throw new IllegalArgumentException("A " + width + "x" + height + " map needs about "
+				+ needed / BYTES_PER_MEGABYTE + " MB, but only " + this.budget / BYTES_PER_MEGABYTE + " MB are available");
+	}
+
+}
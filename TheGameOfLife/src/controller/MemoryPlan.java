@@ -0,0 +1,67 @@
+package controller;
+
+import model.StateRepresentation;
+
+/**
+ * This class represents how the memory budget is split for a cell map:
+ * the fixed memory of the model, of its producers and of the results held
+ * by the consumers, and the memory left to the queued generation results.
+ *
+ */
+public class MemoryPlan {
+
+	private final StateRepresentation representation;
+	private final long fixedBytes;
+	private final long resultBytes;
+	private final long queueBytes;
+
+
+	/**
+	 * Constructs a new memory plan.
+	 *
+	 * @param representation
+	 * 		the representation of the queued states
+	 * @param fixedBytes
+	 * 		the estimated memory of the model, of its producers and of the results held by the consumers, in bytes
+	 * @param resultBytes
+	 * 		the estimated memory of a queued result in the worst case, in bytes
+	 * @param queueBytes
+	 * 		the maximum memory held by the queued results, in bytes
+	 */
+	public MemoryPlan(final StateRepresentation representation, final long fixedBytes, final long resultBytes,
+			final long queueBytes) {
+		this.representation = representation;
+		this.fixedBytes = fixedBytes;
+		this.resultBytes = resultBytes;
+		this.queueBytes = queueBytes;
+	}
+
+	/**
+	 * @return the representation of the queued states.
+	 */
+	public StateRepresentation getRepresentation() {
+		return this.representation;
+	}
+
+	/**
+	 * @return the estimated memory of the model, of its producers and of the results held by the consumers, in bytes.
+	 */
+	public long getFixedBytes() {
+		return this.fixedBytes;
+	}
+
+	/**
+	 * @return the estimated memory of a queued result in the worst case, in bytes.
+	 */
+	public long getResultBytes() {
+		return this.resultBytes;
+	}
+
+	/**
+	 * @return the maximum memory held by the queued results, in bytes.
+	 */
+	public long getQueueBytes() {
+		return this.queueBytes;
+	}
+
+}
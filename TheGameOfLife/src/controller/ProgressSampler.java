@@ -0,0 +1,112 @@
+package controller;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+import model.ConwayCellMap;
+import view.GameOfLifeFrame;
+
+/**
+ * This class periodically samples the progress of the model (or of a producer computing
+ * outside of it) and shows it on the view, together with the instantaneous computation speed.
+ * A single sampling thread is shared by all the runs of the game.
+ *
+ */
+public class ProgressSampler {
+
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	private final ScheduledExecutorService scheduler;
+	private final int period;
+	private Optional<ScheduledFuture<?>> sampling;
+
+	// Last sample, only accessed by the sampling thread
+	private long lastCells;
+	private long lastTime;
+
+
+	/**
+	 * Constructs a new progress sampler.
+	 *
+	 * @param period
+	 * 		the sampling period, in milliseconds
+	 */
+	public ProgressSampler(final int period) {
+		this.period = period;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread t = new Thread(r, "Progress sampler");
+			t.setDaemon(true);
+			return t;
+		});
+		this.sampling = Optional.empty();
+	}
+
+	/**
+	 * Starts sampling a model, replacing the previous sampling if any.
+	 *
+	 * @param model
+	 * 		the model to sample
+	 * @param view
+	 * 		the view where to show the progress
+	 * @param queue
+	 * 		the producer / consumer queue (progress is shown only while the consumer waits)
+	 */
+	public void start(final ConwayCellMap model, final GameOfLifeFrame view, final GenerationQueue queue) {
+		Objects.requireNonNull(model);
+		start(model::getComputedCells, model::getPercentageCompletion, view, queue);
+	}
+
+	/**
+	 * Starts sampling the specified counters, replacing the previous sampling if any.
+	 *
+	 * @param computedCells
+	 * 		the total number of computed cells
+	 * @param completion
+	 * 		the completion of the current generation, between 0 and 1
+	 * @param view
+	 * 		the view where to show the progress
+	 * @param queue
+	 * 		the producer / consumer queue (progress is shown only while the consumer waits)
+	 */
+	public synchronized void start(final LongSupplier computedCells, final DoubleSupplier completion,
+			final GameOfLifeFrame view, final GenerationQueue queue) {
+		Objects.requireNonNull(computedCells);
+		Objects.requireNonNull(completion);
+		Objects.requireNonNull(view);
+		Objects.requireNonNull(queue);
+		stop();
+		this.sampling = Optional.of(this.scheduler.scheduleAtFixedRate(new Runnable() {
+			private boolean first = true;
+
+			@Override
+			public void run() {
+				final long cells = computedCells.getAsLong();
+				final long now = System.nanoTime();
+				if (!this.first && now > lastTime) {
+					view.setComputationSpeed((cells - lastCells) * NANOS_PER_SECOND / (now - lastTime));
+				}
+				this.first = false;
+				lastCells = cells;
+				lastTime = now;
+				if (queue.isEmpty()) {
+					view.updateProgress(completion.getAsDouble());
+				}
+			}
+		}, 0, this.period, TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * Stops the current sampling, if any.
+	 */
+	public synchronized void stop() {
+		this.sampling.ifPresent(s -> s.cancel(false));
+		this.sampling = Optional.empty();
+	}
+
+}
@@ -0,0 +1,200 @@
+package controller;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import model.CellMapSnapshot;
+import model.ConwayCellMap;
+import model.ConwayCellMapImpl;
+import model.PackedStates;
+import model.PopulationAccumulator;
+import model.Soups;
+import model.StateRepresentation;
+import model.Tiles;
+
+/**
+ * This class measures how the computation of the generations scales with the number of threads:
+ * for each engine and map size, it runs the same workload (the same random soup for the same
+ * generations) with 1, 2, 4... threads, up to the maximum, and times each phase of the generations
+ * as the producer runs them, without view or queue.
+ * Each run starts with some unmeasured generations, so that the code is compiled and the
+ * population is past its first, unusually active, generations.
+ *
+ */
+public class ScalingHarness {
+
+	private static final int WARMUP_GENERATIONS = 20;
+	private static final int CELLS_CHUNK_SIZE = 100;
+	private static final int TILES_CHUNK_SIZE = 1;
+
+	private final List<Dimension> mapDimensions;
+	private final List<ComputeEngine> engines;
+	private final int maxThreads;
+	private final long generations;
+	private final double density;
+	private final long seed;
+
+
+	/**
+	 * Constructs a new harness.
+	 *
+	 * @param mapDimensions
+	 * 		the dimensions of the cell maps to measure
+	 * @param engines
+	 * 		the engines to measure
+	 * @param maxThreads
+	 * 		the maximum number of threads
+	 * @param generations
+	 * 		the number of measured generations of each run
+	 * @param density
+	 * 		the fraction of alive cells of the soup
+	 * @param seed
+	 * 		the seed of the soup
+	 */
+	public ScalingHarness(final List<Dimension> mapDimensions, final List<ComputeEngine> engines, final int maxThreads,
+			final long generations, final double density, final long seed) {
+		Objects.requireNonNull(mapDimensions);
+		Objects.requireNonNull(engines);
+		if (mapDimensions.isEmpty() || engines.isEmpty()) {
+			throw new IllegalArgumentException("At least one map dimension and one engine must be measured");
+		}
+		if (maxThreads < 1) {
+			throw new IllegalArgumentException("Threads must be positive");
+		}
+		if (generations < 1) {
+			throw new IllegalArgumentException("At least one generation must be measured");
+		}
+		if (density < 0 || density > 1) {
+			throw new IllegalArgumentException("Density must be between 0 and 1");
+		}
+		this.mapDimensions = new ArrayList<>(mapDimensions);
+		this.engines = new ArrayList<>(engines);
+		this.maxThreads = maxThreads;
+		this.generations = generations;
+		this.density = density;
+		this.seed = seed;
+	}
+
+	/**
+	 * @return the measured numbers of threads: the powers of two below the maximum, then the maximum.
+	 */
+	public List<Integer> getThreadCounts() {
+		final List<Integer> res = new ArrayList<>();
+		for (int threads = 1; threads < this.maxThreads; threads *= 2) {
+			res.add(threads);
+		}
+		res.add(this.maxThreads);
+		return res;
+	}
+
+	/**
+	 * Runs the workload for every engine, map dimension and number of threads.
+	 *
+	 * @return the measures of every run, grouped by engine and map dimension, by increasing number of threads.
+	 * @throws ExecutionException
+	 * 		if a task failed
+	 */
+	public List<ScalingMeasure> run() throws ExecutionException {
+		final List<ScalingMeasure> res = new ArrayList<>();
+		for (final ComputeEngine engine : this.engines) {
+			for (final Dimension mapDimension : this.mapDimensions) {
+				// The same soup for every run of the map dimension
+				final boolean[][] soup = Soups.random(mapDimension, this.density, this.seed);
+				for (final int threads : getThreadCounts()) {
+					res.add(measure(engine, mapDimension, threads, soup));
+				}
+			}
+		}
+		return res;
+	}
+
+	/*
+	 * Runs the workload once, with the tasks and the phases of the producer.
+	 */
+	private ScalingMeasure measure(final ComputeEngine engine, final Dimension mapDimension, final int threads,
+			final boolean[][] soup) throws ExecutionException {
+		final ConwayCellMap model = new ConwayCellMapImpl(mapDimension.width, mapDimension.height);
+		model.loadGeneration(soup, 0);
+		final int tileSize = model.getTileSize();
+		final boolean wholeTiles = engine == ComputeEngine.TILES;
+		final int rows = wholeTiles ? (mapDimension.height + tileSize - 1) / tileSize : mapDimension.height;
+		final int chunkSize = wholeTiles ? TILES_CHUNK_SIZE : CELLS_CHUNK_SIZE;
+		final ExecutorService executor = Executors.newFixedThreadPool(threads,
+				ExecutionThreads.newFactory(ExecutionMode.PLATFORM_THREADS, "Scaling"));
+		final BandScheduler scheduler = new BandScheduler(threads);
+		final Flag stopFlag = new Flag();
+		final List<Point> tiles = new ArrayList<>();
+		final List<Point> tilePoints = new ArrayList<>();
+		final Rectangle liveBox = new Rectangle();
+		final List<PopulationAccumulator> accumulators = new ArrayList<>();
+		final List<Callable<PopulationAccumulator>> tasks = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			final PopulationAccumulator accumulator = new PopulationAccumulator(mapDimension, tileSize);
+			accumulators.add(accumulator);
+			tasks.add(wholeTiles
+					? new ComputeTileTask(model, tiles, scheduler, 1, accumulator, stopFlag)
+					: new ComputeListTask(model, model.getCellsToEvaluate(), scheduler, accumulator, stopFlag));
+		}
+		final PopulationAccumulator statistics = new PopulationAccumulator(mapDimension, tileSize);
+		final WorkerGang gang = new WorkerGang(executor, tasks);
+		gang.start();
+		long scheduleTime = 0;
+		long computeTime = 0;
+		long transitionTime = 0;
+		long cellsToEvaluateTime = 0;
+		long statesTime = 0;
+		try {
+			for (long g = 0; g < WARMUP_GENERATIONS + this.generations; g++) {
+				final long start = System.nanoTime();
+				final List<Point> cells;
+				if (wholeTiles) {
+					// The tiles of the producer with one generation per step
+					if (model.getLiveBox(liveBox)) {
+						Tiles.listReachable(liveBox, 1, mapDimension.width, mapDimension.height, tileSize, tiles, tilePoints);
+					} else {
+						tiles.clear();
+					}
+					cells = tiles;
+				} else {
+					cells = model.getCellsToEvaluate();
+				}
+				for (int i = 0; i < accumulators.size(); i++) {
+					accumulators.get(i).reset();
+				}
+				statistics.reset();
+				scheduler.prepare(cells, 0, cells.size(), rows, chunkSize);
+				final long scheduled = System.nanoTime();
+				gang.runGeneration(statistics);
+				final long computed = System.nanoTime();
+				model.nextGeneration();
+				final long transited = System.nanoTime();
+				// Copies the states as the producer does for the result of each generation
+				try (CellMapSnapshot snapshot = model.acquireSnapshot()) {
+					PackedStates.of(snapshot, StateRepresentation.DENSE, statistics.getAliveCells());
+				}
+				final long copied = System.nanoTime();
+				if (g >= WARMUP_GENERATIONS) {
+					scheduleTime += scheduled - start;
+					computeTime += computed - scheduled;
+					transitionTime += transited - computed - model.getCellsToEvaluateTime();
+					cellsToEvaluateTime += model.getCellsToEvaluateTime();
+					statesTime += copied - transited;
+				}
+			}
+		} finally {
+			gang.close();
+			executor.shutdown();
+		}
+		return new ScalingMeasure(engine, mapDimension, threads, this.generations,
+				scheduleTime, computeTime, transitionTime, cellsToEvaluateTime, statesTime);
+	}
+
+}
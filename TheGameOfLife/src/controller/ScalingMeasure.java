@@ -0,0 +1,140 @@
+package controller;
+
+import java.awt.Dimension;
+
+/**
+ * This class represents the measures of a fixed workload run with a number of threads:
+ * the time spent in each phase of the generations, the serial ones (done by the producer
+ * alone) and the parallel one (the tasks).
+ * It is immutable.
+ *
+ */
+public class ScalingMeasure {
+
+	private final ComputeEngine engine;
+	private final Dimension mapDimension;
+	private final int threads;
+	private final long generations;
+	private final long scheduleTime;
+	private final long computeTime;
+	private final long transitionTime;
+	private final long cellsToEvaluateTime;
+	private final long statesTime;
+
+
+	/**
+	 * Constructs new measures.
+	 *
+	 * @param engine
+	 * 		the engine computing the generations
+	 * @param mapDimension
+	 * 		the dimension of the cell map
+	 * @param threads
+	 * 		the number of threads computing the tasks
+	 * @param generations
+	 * 		the number of measured generations
+	 * @param scheduleTime
+	 * 		the serial time spent listing the work of the tasks and splitting it in bands, in nanoseconds
+	 * @param computeTime
+	 * 		the parallel time spent running the tasks, in nanoseconds
+	 * @param transitionTime
+	 * 		the serial time spent moving the model to the next generations, except calculating
+	 * the cells to evaluate, in nanoseconds
+	 * @param cellsToEvaluateTime
+	 * 		the serial time spent calculating the cells to evaluate, in nanoseconds
+	 * @param statesTime
+	 * 		the serial time spent copying the states of the generations for the view, in nanoseconds
+	 */
+	public ScalingMeasure(final ComputeEngine engine, final Dimension mapDimension, final int threads, final long generations,
+			final long scheduleTime, final long computeTime, final long transitionTime, final long cellsToEvaluateTime,
+			final long statesTime) {
+		this.engine = engine;
+		this.mapDimension = new Dimension(mapDimension);
+		this.threads = threads;
+		this.generations = generations;
+		this.scheduleTime = scheduleTime;
+		this.computeTime = computeTime;
+		this.transitionTime = transitionTime;
+		this.cellsToEvaluateTime = cellsToEvaluateTime;
+		this.statesTime = statesTime;
+	}
+
+	/**
+	 * @return the engine computing the generations.
+	 */
+	public ComputeEngine getEngine() {
+		return this.engine;
+	}
+
+	/**
+	 * @return the dimension of the cell map.
+	 */
+	public Dimension getMapDimension() {
+		return new Dimension(this.mapDimension);
+	}
+
+	/**
+	 * @return the number of threads computing the tasks.
+	 */
+	public int getThreads() {
+		return this.threads;
+	}
+
+	/**
+	 * @return the number of measured generations.
+	 */
+	public long getGenerations() {
+		return this.generations;
+	}
+
+	/**
+	 * @return the serial time spent listing the work of the tasks and splitting it in bands, in nanoseconds.
+	 */
+	public long getScheduleTime() {
+		return this.scheduleTime;
+	}
+
+	/**
+	 * @return the parallel time spent running the tasks, in nanoseconds.
+	 */
+	public long getComputeTime() {
+		return this.computeTime;
+	}
+
+	/**
+	 * @return the serial time spent moving the model to the next generations,
+	 * except calculating the cells to evaluate, in nanoseconds.
+	 */
+	public long getTransitionTime() {
+		return this.transitionTime;
+	}
+
+	/**
+	 * @return the serial time spent calculating the cells to evaluate, in nanoseconds.
+	 */
+	public long getCellsToEvaluateTime() {
+		return this.cellsToEvaluateTime;
+	}
+
+	/**
+	 * @return the serial time spent copying the states of the generations for the view, in nanoseconds.
+	 */
+	public long getStatesTime() {
+		return this.statesTime;
+	}
+
+	/**
+	 * @return the time spent in the serial phases, in nanoseconds.
+	 */
+	public long getSerialTime() {
+		return this.scheduleTime + this.transitionTime + this.cellsToEvaluateTime + this.statesTime;
+	}
+
+	/**
+	 * @return the time spent in all the phases, in nanoseconds.
+	 */
+	public long getTotalTime() {
+		return getSerialTime() + this.computeTime;
+	}
+
+}
@@ -0,0 +1,208 @@
+package controller;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * This class writes the measures of a {@link ScalingHarness} to a CSV file and to an HTML report,
+ * comparing each run to the run with a single thread of the same engine and map dimension:
+ * speedup, parallel efficiency and serial fraction.
+ * The serial fraction is estimated in two ways: measured, as the share of the serial phases
+ * in the single thread run, and experimentally determined (Karp-Flatt), from the speedup
+ * of each run, which also accounts for the overheads of the parallel phase (synchronization,
+ * imbalance, memory bandwidth). The measured fraction gives the Amdahl limit of the speedup.
+ *
+ */
+public class ScalingReport {
+
+	private static final String HEADER = "engine,width,height,threads,generations,total_ms,compute_ms,"
+			+ "schedule_ms,transition_ms,cells_to_evaluate_ms,states_ms,speedup,efficiency,"
+			+ "measured_serial_fraction,karp_flatt_serial_fraction,amdahl_speedup";
+	private static final double NANOS_PER_MILLI = 1e6;
+
+	private final List<ScalingMeasure> measures;
+
+
+	/**
+	 * Constructs a new report.
+	 *
+	 * @param measures
+	 * 		the measures of the harness, grouped by engine and map dimension,
+	 * each group starting with the run with a single thread
+	 */
+	public ScalingReport(final List<ScalingMeasure> measures) {
+		Objects.requireNonNull(measures);
+		this.measures = new ArrayList<>(measures);
+		for (int i = 0; i < this.measures.size(); i++) {
+			if (this.measures.get(i).getThreads() == 1) {
+				continue;
+			}
+			if (i == 0 || !sameWorkload(this.measures.get(i), this.measures.get(i - 1))) {
+				throw new IllegalArgumentException("Each workload must be measured first with a single thread");
+			}
+		}
+	}
+
+	private static boolean sameWorkload(final ScalingMeasure a, final ScalingMeasure b) {
+		return a.getEngine() == b.getEngine() && a.getMapDimension().equals(b.getMapDimension());
+	}
+
+	/*
+	 * Gets the run with a single thread of the workload of a measure.
+	 */
+	private ScalingMeasure baseline(final int index) {
+		int i = index;
+		while (this.measures.get(i).getThreads() != 1) {
+			i--;
+		}
+		return this.measures.get(i);
+	}
+
+	/**
+	 * @param index
+	 * 		the index of a measure
+	 * @return the ratio between the time of the single thread run and the time of the measured run.
+	 */
+	public double getSpeedup(final int index) {
+		final long time = this.measures.get(index).getTotalTime();
+		return time == 0 ? 0 : (double) baseline(index).getTotalTime() / time;
+	}
+
+	/**
+	 * @param index
+	 * 		the index of a measure
+	 * @return the speedup for each thread of the measured run.
+	 */
+	public double getEfficiency(final int index) {
+		return getSpeedup(index) / this.measures.get(index).getThreads();
+	}
+
+	/**
+	 * @param index
+	 * 		the index of a measure
+	 * @return the share of the serial phases in the single thread run of the workload.
+	 */
+	public double getMeasuredSerialFraction(final int index) {
+		final ScalingMeasure base = baseline(index);
+		return base.getTotalTime() == 0 ? 0 : (double) base.getSerialTime() / base.getTotalTime();
+	}
+
+	/**
+	 * @param index
+	 * 		the index of a measure
+	 * @return the serial fraction determined from the speedup of the measured run (Karp-Flatt metric),
+	 * not a number for a single thread run.
+	 */
+	public double getKarpFlattSerialFraction(final int index) {
+		final int threads = this.measures.get(index).getThreads();
+		final double speedup = getSpeedup(index);
+		if (threads == 1 || speedup == 0) {
+			return Double.NaN;
+		}
+		return (1 / speedup - 1.0 / threads) / (1 - 1.0 / threads);
+	}
+
+	/**
+	 * @param index
+	 * 		the index of a measure
+	 * @return the speedup predicted by Amdahl's law for the threads of the measured run,
+	 * from the measured serial fraction.
+	 */
+	public double getAmdahlSpeedup(final int index) {
+		final double serial = getMeasuredSerialFraction(index);
+		return 1 / (serial + (1 - serial) / this.measures.get(index).getThreads());
+	}
+
+	private static String millis(final long nanos) {
+		return String.format(Locale.ROOT, "%.1f", nanos / NANOS_PER_MILLI);
+	}
+
+	private static String ratio(final double value) {
+		return Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.3f", value);
+	}
+
+	/**
+	 * Writes a row for each measure to a CSV file.
+	 *
+	 * @param file
+	 * 		the file where to write the measures (replaced if it exists)
+	 * @throws IOException
+	 * 		if the file cannot be written
+	 */
+	public void writeCsv(final File file) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			writer.write(HEADER + System.lineSeparator());
+			for (int i = 0; i < this.measures.size(); i++) {
+				final ScalingMeasure m = this.measures.get(i);
+				writer.write(String.join(",", m.getEngine().toString(), Integer.toString(m.getMapDimension().width),
+						Integer.toString(m.getMapDimension().height), Integer.toString(m.getThreads()),
+						Long.toString(m.getGenerations()), millis(m.getTotalTime()), millis(m.getComputeTime()),
+						millis(m.getScheduleTime()), millis(m.getTransitionTime()), millis(m.getCellsToEvaluateTime()),
+						millis(m.getStatesTime()), ratio(getSpeedup(i)), ratio(getEfficiency(i)),
+						ratio(getMeasuredSerialFraction(i)), ratio(getKarpFlattSerialFraction(i)), ratio(getAmdahlSpeedup(i)))
+						+ System.lineSeparator());
+			}
+		}
+	}
+
+	/**
+	 * Writes an HTML report, with a table for each engine and map dimension.
+	 *
+	 * @param file
+	 * 		the file where to write the report (replaced if it exists)
+	 * @throws IOException
+	 * 		if the file cannot be written
+	 */
+	public void writeHtml(final File file) throws IOException {
+		final StringBuilder html = new StringBuilder();
+		html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>Thread scaling</title>\n")
+				.append("<style>body { font-family: sans-serif; } table { border-collapse: collapse; margin-bottom: 2em; }\n")
+				.append("th, td { border: 1px solid #999; padding: 4px 8px; text-align: right; }</style>\n")
+				.append("</head>\n<body>\n<h1>Thread scaling</h1>\n")
+				.append("<p>Times are in milliseconds. The serial phases run on the producer alone: listing and scheduling ")
+				.append("the work, the transition to the next generation, calculating the cells to evaluate, copying the states.</p>\n");
+		for (int i = 0; i < this.measures.size(); i++) {
+			final ScalingMeasure m = this.measures.get(i);
+			if (m.getThreads() == 1) {
+				if (i > 0) {
+					html.append("</table>\n");
+				}
+				final Dimension d = m.getMapDimension();
+				final double serial = getMeasuredSerialFraction(i);
+				html.append(String.format(Locale.ROOT, "<h2>%s, %dx%d, %d generations</h2>\n", m.getEngine(), d.width, d.height,
+						m.getGenerations()))
+						.append(String.format(Locale.ROOT, "<p>Measured serial fraction %.3f: Amdahl limit of the speedup %s.</p>\n",
+								serial, serial == 0 ? "none" : String.format(Locale.ROOT, "%.1f", 1 / serial)))
+						.append("<table>\n<tr><th>Threads</th><th>Total</th><th>Parallel</th><th>Schedule</th><th>Transition</th>")
+						.append("<th>Cells to evaluate</th><th>States</th><th>Speedup</th><th>Amdahl speedup</th>")
+						.append("<th>Efficiency</th><th>Karp-Flatt serial fraction</th></tr>\n");
+			}
+			html.append("<tr><td>").append(m.getThreads())
+					.append("</td><td>").append(millis(m.getTotalTime()))
+					.append("</td><td>").append(millis(m.getComputeTime()))
+					.append("</td><td>").append(millis(m.getScheduleTime()))
+					.append("</td><td>").append(millis(m.getTransitionTime()))
+					.append("</td><td>").append(millis(m.getCellsToEvaluateTime()))
+					.append("</td><td>").append(millis(m.getStatesTime()))
+					.append("</td><td>").append(ratio(getSpeedup(i)))
+					.append("</td><td>").append(ratio(getAmdahlSpeedup(i)))
+					.append("</td><td>").append(ratio(getEfficiency(i)))
+					.append("</td><td>").append(ratio(getKarpFlattSerialFraction(i)))
+					.append("</td></tr>\n");
+		}
+		if (!this.measures.isEmpty()) {
+			html.append("</table>\n");
+		}
+		html.append("</body>\n</html>\n");
+		Files.write(file.toPath(), html.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,30 @@
+package controller;
+
+/**
+ * This enumeration represents how the computation of the generations
+ * is scheduled on the thread pool of the controller.
+ *
+ */
+public enum SchedulingMode {
+
+	/**
+	 * Every generation is computed by a batch of tasks, and the next one starts
+	 * only when all of them are over.
+	 */
+	GENERATION_BARRIER,
+
+	/**
+	 * Like {@link #GENERATION_BARRIER}, but the cells under the visible region of the view
+	 * are computed first and published as soon as they are done, while the rest
+	 * of the map completes before the next generation starts.
+	 */
+	VIEWPORT_FIRST,
+
+	/**
+	 * Every tile of the map is computed for the next generation as soon as it and
+	 * its neighbor tiles have computed the current one, so that different regions
+	 * of the map can be at different generations (no global barrier).
+	 */
+	DATAFLOW
+
+}
@@ -0,0 +1,65 @@
+package controller;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * This class runs operations one at a time, in the order they are submitted,
+ * each one on a thread obtained from another executor when its turn comes.
+ * Submitting never waits: an operation submitted while another is running is queued,
+ * and runs after it on a thread of its own, so each operation sees all the effects
+ * of the previous ones.
+ *
+ */
+public class SerialExecutor implements Executor {
+
+	private final Executor threads;
+	private final Queue<Runnable> operations;
+	private Runnable active;
+
+
+	/**
+	 * Constructs a new serial executor.
+	 *
+	 * @param threads
+	 * 		the executor running each operation when its turn comes
+	 */
+	public SerialExecutor(final Executor threads) {
+		this.threads = Objects.requireNonNull(threads);
+		this.operations = new ArrayDeque<>();
+	}
+
+	/**
+	 * Queues an operation, to be run after all the operations submitted before it.
+	 *
+	 * @param operation
+	 * 		the operation to run
+	 */
+	@Override
+	public synchronized void execute(final Runnable operation) {
+		Objects.requireNonNull(operation);
+		this.operations.add(() -> {
+			try {
+				operation.run();
+			} finally {
+				runNext();
+			}
+		});
+		if (this.active == null) {
+			runNext();
+		}
+	}
+
+	/*
+	 * Hands the next queued operation, if any, to the executor of the threads.
+	 */
+	private synchronized void runNext() {
+		this.active = this.operations.poll();
+		if (this.active != null) {
+			this.threads.execute(this.active);
+		}
+	}
+
+}
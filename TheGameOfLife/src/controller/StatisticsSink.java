@@ -0,0 +1,42 @@
+package controller;
+
+import java.io.IOException;
+
+import model.PopulationStatistics;
+
+/**
+ * This interface represents a destination of the time series of the
+ * population statistics, fed by a {@link StatisticsStream}.
+ *
+ */
+public interface StatisticsSink {
+
+	/**
+	 * Receives the statistics of a generation.
+	 *
+	 * @param statistics
+	 * 		the statistics of the generation
+	 * @throws IOException
+	 * 		if the statistics cannot be written
+	 */
+	void accept(PopulationStatistics statistics) throws IOException;
+
+	/**
+	 * Receives a switch between the engines computing the generations. It is ignored by default.
+	 *
+	 * @param engineSwitch
+	 * 		the switch, with its measured payoff
+	 * @throws IOException
+	 * 		if the switch cannot be written
+	 */
+	default void acceptSwitch(final EngineSwitch engineSwitch) throws IOException { }
+
+	/**
+	 * Releases the resources of the sink. No more statistics are received after it.
+	 *
+	 * @throws IOException
+	 * 		if the sink cannot be closed
+	 */
+	default void close() throws IOException { }
+
+}
@@ -0,0 +1,170 @@
+package controller;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import model.PopulationStatistics;
+import view.GameOfLifeFrame;
+
+/**
+ * This class streams the population statistics of the generations to a set of sinks.
+ * Statistics are delivered in order on a dedicated thread, so that slow sinks
+ * (e.g. files) never delay the consumer: when too many statistics are waiting,
+ * the new ones are dropped (and counted) until the sinks catch up. A sink that
+ * fails is removed from the stream and the failure is shown on the view.
+ *
+ */
+public class StatisticsStream {
+
+	// Maximum time waited for the pending statistics to be written when the stream is closed
+	private static final int CLOSE_TIMEOUT = 5;
+	// Maximum number of statistics waiting to be delivered
+	private static final int MAX_PENDING = 256;
+
+	private final List<StatisticsSink> sinks;
+	private final ExecutorService writer;
+	private final GameOfLifeFrame view;
+	private final AtomicInteger pending;
+	private final LongAdder dropped;
+
+
+	/**
+	 * Constructs a new stream without sinks.
+	 *
+	 * @param mode
+	 * 		the execution mode of the writing thread
+	 * @param view
+	 * 		the view where to show the failures of the sinks
+	 */
+	public StatisticsStream(final ExecutionMode mode, final GameOfLifeFrame view) {
+		Objects.requireNonNull(view);
+		this.view = view;
+		this.sinks = new CopyOnWriteArrayList<>();
+		this.writer = Executors.newSingleThreadExecutor(ExecutionThreads.newFactory(mode, "Statistics"));
+		this.pending = new AtomicInteger();
+		this.dropped = new LongAdder();
+	}
+
+	/**
+	 * Adds a sink, which receives the statistics published from now on.
+	 *
+	 * @param sink
+	 * 		the sink to add
+	 */
+	public void addSink(final StatisticsSink sink) {
+		Objects.requireNonNull(sink);
+		this.sinks.add(sink);
+	}
+
+	/*
+	 * Removes a failed sink, closing it and showing the cause on the view.
+	 */
+	private void fail(final StatisticsSink sink, final IOException cause) {
+		this.sinks.remove(sink);
+		try {
+			sink.close();
+		} catch (IOException e) {
+			// The sink is discarded anyway
+		}
+		this.view.showAlert("Statistics not recorded", "A statistics sink failed and has been removed.\n\n" + cause.getMessage());
+	}
+
+	/**
+	 * Publishes the statistics of a generation to every sink, asynchronously.
+	 * They are dropped if too many statistics are still waiting to be delivered.
+	 *
+	 * @param statistics
+	 * 		the statistics of the generation
+	 */
+	public void publish(final PopulationStatistics statistics) {
+		Objects.requireNonNull(statistics);
+		if (this.sinks.isEmpty() || this.writer.isShutdown()) {
+			return;
+		}
+		if (this.pending.incrementAndGet() > MAX_PENDING) {
+			this.pending.decrementAndGet();
+			this.dropped.increment();
+			return;
+		}
+		this.writer.execute(() -> {
+			try {
+				for (final StatisticsSink sink : this.sinks) {
+					try {
+						sink.accept(statistics);
+					} catch (IOException e) {
+						fail(sink, e);
+					}
+				}
+			} finally {
+				this.pending.decrementAndGet();
+			}
+		});
+	}
+
+	/**
+	 * @return the number of statistics dropped because the sinks fell behind.
+	 */
+	public long getDroppedStatistics() {
+		return this.dropped.sum();
+	}
+
+	/**
+	 * Publishes a switch between the engines to every sink, asynchronously,
+	 * in order with the statistics.
+	 *
+	 * @param engineSwitch
+	 * 		the switch, with its measured payoff
+	 */
+	public void publishSwitch(final EngineSwitch engineSwitch) {
+		Objects.requireNonNull(engineSwitch);
+		if (this.sinks.isEmpty() || this.writer.isShutdown()) {
+			return;
+		}
+		this.writer.execute(() -> {
+			for (final StatisticsSink sink : this.sinks) {
+				try {
+					sink.acceptSwitch(engineSwitch);
+				} catch (IOException e) {
+					fail(sink, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Delivers the statistics already published, then closes every sink,
+	 * showing on the view how many statistics have been dropped, if any.
+	 * Statistics published afterwards are discarded.
+	 */
+	public void close() {
+		this.writer.execute(() -> {
+			for (final StatisticsSink sink : this.sinks) {
+				try {
+					sink.close();
+				} catch (IOException e) {
+					fail(sink, e);
+				}
+			}
+			this.sinks.clear();
+			final long lost = this.dropped.sum();
+			if (lost > 0) {
+				this.view.showAlert("Statistics not recorded", "The statistics sinks fell behind: the statistics of "
+						+ lost + " generations have been dropped.");
+			}
+		});
+		this.writer.shutdown();
+		try {
+			this.writer.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
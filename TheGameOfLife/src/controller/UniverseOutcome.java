@@ -0,0 +1,24 @@
+package controller;
+
+/**
+ * This enumeration represents how the run of a universe of a batch ended.
+ *
+ */
+public enum UniverseOutcome {
+
+	/**
+	 * Every cell died.
+	 */
+	EXTINCT,
+
+	/**
+	 * The universe reached a state already seen: it is stable or periodic from then on.
+	 */
+	CYCLE,
+
+	/**
+	 * The maximum number of generations has been computed without extinction or cycles.
+	 */
+	GENERATION_LIMIT
+
+}
@@ -0,0 +1,105 @@
+package controller;
+
+/**
+ * This class represents the result of the run of a universe of a batch.
+ * It is immutable.
+ *
+ */
+public class UniverseResult {
+
+	private final int universe;
+	private final long seed;
+	private final double density;
+	private final UniverseOutcome outcome;
+	private final long lifespan;
+	private final long finalPopulation;
+	private final long period;
+
+
+	/**
+	 * Constructs a new universe result.
+	 *
+	 * @param universe
+	 * 		the index of the universe in the batch
+	 * @param seed
+	 * 		the seed of the random soup of the universe
+	 * @param density
+	 * 		the fraction of alive cells of the soup
+	 * @param outcome
+	 * 		how the run ended
+	 * @param lifespan
+	 * 		the generation of the extinction or of the first state of the cycle,
+	 * 		the number of computed generations if the limit has been reached
+	 * @param finalPopulation
+	 * 		the number of alive cells when the run ended
+	 * @param period
+	 * 		the period of the cycle (1 for still lifes, 0 if there is no cycle)
+	 */
+	public UniverseResult(final int universe, final long seed, final double density, final UniverseOutcome outcome,
+			final long lifespan, final long finalPopulation, final long period) {
+		this.universe = universe;
+		this.seed = seed;
+		this.density = density;
+		this.outcome = outcome;
+		this.lifespan = lifespan;
+		this.finalPopulation = finalPopulation;
+		this.period = period;
+	}
+
+	/**
+	 * @return the index of the universe in the batch.
+	 */
+	public int getUniverse() {
+		return this.universe;
+	}
+
+	/**
+	 * @return the seed of the random soup of the universe.
+	 */
+	public long getSeed() {
+		return this.seed;
+	}
+
+	/**
+	 * @return the fraction of alive cells of the soup.
+	 */
+	public double getDensity() {
+		return this.density;
+	}
+
+	/**
+	 * @return how the run ended.
+	 */
+	public UniverseOutcome getOutcome() {
+		return this.outcome;
+	}
+
+	/**
+	 * @return the generation of the extinction or of the first state of the cycle,
+	 * the number of computed generations if the limit has been reached.
+	 */
+	public long getLifespan() {
+		return this.lifespan;
+	}
+
+	/**
+	 * @return the number of alive cells when the run ended.
+	 */
+	public long getFinalPopulation() {
+		return this.finalPopulation;
+	}
+
+	/**
+	 * @return the period of the cycle (1 for still lifes, 0 if there is no cycle).
+	 */
+	public long getPeriod() {
+		return this.period;
+	}
+
+	@Override
+	public String toString() {
+		return "Universe " + this.universe + " (seed " + this.seed + "): " + this.outcome + " at generation "
+				+ this.lifespan + ", " + this.finalPopulation + " alive, period " + this.period;
+	}
+
+}
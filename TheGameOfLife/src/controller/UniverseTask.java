@@ -0,0 +1,191 @@
+package controller;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+import model.ConwayCellMap;
+import model.ConwayCellMapImpl;
+import model.LifeRule;
+import model.PopulationAccumulator;
+import model.Soups;
+import model.Tiles;
+
+/**
+ * This class represents a task aimed at running a whole universe of a batch,
+ * from a random soup until extinction, a cycle or the generation limit.
+ * The universe is computed by the thread of the task only, tile by tile.
+ * Cycles are detected by remembering a hash of every state seen, updated with the changes
+ * of each generation: a state whose hash was seen a period ago is saved, and the cycle is
+ * reported only if the same states come back after another period.
+ *
+ */
+public class UniverseTask implements Callable<UniverseResult> {
+
+	private final int universe;
+	private final Dimension mapDimension;
+	private final LifeRule rule;
+	private final double density;
+	private final long seed;
+	private final long maxGenerations;
+	private final Flag stopFlag;
+
+
+	/**
+	 * Constructs a new universe task.
+	 *
+	 * @param universe
+	 * 		the index of the universe in the batch
+	 * @param mapDimension
+	 * 		the dimension of the cell map of the universe
+	 * @param rule
+	 * 		the rule of the universe
+	 * @param density
+	 * 		the fraction of alive cells of the soup, between 0 and 1
+	 * @param seed
+	 * 		the seed of the random soup
+	 * @param maxGenerations
+	 * 		the maximum number of generations to compute
+	 * @param stopFlag
+	 * 		the stop flag of the batch
+	 */
+	public UniverseTask(final int universe, final Dimension mapDimension, final LifeRule rule, final double density,
+			final long seed, final long maxGenerations, final Flag stopFlag) {
+		if (density < 0 || density > 1) {
+			throw new IllegalArgumentException("Density must be between 0 and 1");
+		}
+		if (maxGenerations < 1) {
+			throw new IllegalArgumentException("At least one generation must be computed");
+		}
+		this.universe = universe;
+		this.mapDimension = new Dimension(mapDimension);
+		this.rule = rule;
+		this.density = density;
+		this.seed = seed;
+		this.maxGenerations = maxGenerations;
+		this.stopFlag = stopFlag;
+	}
+
+	/*
+	 * Copies the current states of the live box.
+	 */
+	private static boolean[][] saveStates(final ConwayCellMap model, final Rectangle box) {
+		final boolean[][] res = new boolean[box.height][box.width];
+		for (int i = 0; i < box.height; i++) {
+			for (int j = 0; j < box.width; j++) {
+				res[i][j] = model.getCellState(box.x + j, box.y + i);
+			}
+		}
+		return res;
+	}
+
+	/*
+	 * Checks that the current states are the saved ones.
+	 */
+	private static boolean hasStates(final ConwayCellMap model, final Rectangle box, final boolean[][] saved) {
+		final Optional<Rectangle> liveBox = model.getLiveBox();
+		if (!liveBox.isPresent() || !liveBox.get().equals(box)) {
+			return false;
+		}
+		for (int i = 0; i < box.height; i++) {
+			for (int j = 0; j < box.width; j++) {
+				if (model.getCellState(box.x + j, box.y + i) != saved[i][j]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Advances the universe by one generation, computing only the tiles
+	 * the alive cells can reach.
+	 */
+	private void step(final ConwayCellMap model, final Rectangle liveBox, final List<Point> tiles,
+			final List<Point> points, final PopulationAccumulator statistics) {
+		final int tileSize = model.getTileSize();
+		Tiles.listReachable(liveBox, 1, this.mapDimension.width, this.mapDimension.height, tileSize, tiles, points);
+		statistics.reset();
+		for (final Point tile : tiles) {
+			final int x = tile.x * tileSize;
+			final int y = tile.y * tileSize;
+			model.computeTile(x, y, Math.min(tileSize, this.mapDimension.width - x),
+					Math.min(tileSize, this.mapDimension.height - y), 1, statistics);
+		}
+		// The batch reads no snapshot, and the tiles need no list of the cells to evaluate
+		model.nextGeneration(1, false);
+	}
+
+	/**
+	 * @return the result of the run.
+	 * @throws CancellationException
+	 * 		if the batch is stopped before the end of the run
+	 */
+	@Override
+	public UniverseResult call() {
+		final boolean[][] soup = Soups.random(this.mapDimension, this.density, this.seed);
+		final ConwayCellMap model = new ConwayCellMapImpl(this.mapDimension.width, this.mapDimension.height, this.rule);
+		model.loadGeneration(soup, 0);
+		final PopulationAccumulator statistics = new PopulationAccumulator(this.mapDimension, model.getTileSize());
+		// The soup is born from nothing: the hash of its changes is the one of its states
+		for (int i = 0; i < this.mapDimension.height; i++) {
+			for (int j = 0; j < this.mapDimension.width; j++) {
+				statistics.add(j, i, false, soup[i][j]);
+			}
+		}
+		long hash = statistics.getChangesHash();
+		// Tiles to compute and their reused points
+		final List<Point> tiles = new ArrayList<>();
+		final List<Point> points = new ArrayList<>();
+		// Generation when each state has been seen for the first time
+		final Map<Long, Long> seen = new HashMap<>();
+		// Cycle waiting for its confirmation: first generation, confirmation generation, saved states
+		long cycleStart = -1;
+		long confirmation = -1;
+		Rectangle savedBox = null;
+		boolean[][] saved = null;
+		while (true) {
+			final long generation = model.getGenerationNumber();
+			final Optional<Rectangle> liveBox = model.getLiveBox();
+			if (!liveBox.isPresent()) {
+				return new UniverseResult(this.universe, this.seed, this.density, UniverseOutcome.EXTINCT,
+						generation, 0, 0);
+			}
+			if (generation == confirmation) {
+				final long period = (confirmation - cycleStart) / 2;
+				if (hasStates(model, savedBox, saved)) {
+					return new UniverseResult(this.universe, this.seed, this.density, UniverseOutcome.CYCLE,
+							cycleStart, statistics.getAliveCells(), period);
+				}
+				// Two different states with the same hash: the search goes on
+				confirmation = -1;
+			}
+			final Long first = seen.putIfAbsent(hash, generation);
+			if (first != null && confirmation < 0) {
+				// Saves the states, to compare them with the ones a period later
+				savedBox = liveBox.get();
+				saved = saveStates(model, savedBox);
+				cycleStart = first;
+				confirmation = generation + (generation - first);
+			}
+			// A cycle found before the limit is confirmed even beyond it
+			if (generation >= this.maxGenerations && confirmation < 0) {
+				return new UniverseResult(this.universe, this.seed, this.density, UniverseOutcome.GENERATION_LIMIT,
+						generation, statistics.getAliveCells(), 0);
+			}
+			if (this.stopFlag.isOn()) {
+				throw new CancellationException("Batch stopped");
+			}
+			step(model, liveBox.get(), tiles, points, statistics);
+			hash += statistics.getChangesHash();
+		}
+	}
+
+}
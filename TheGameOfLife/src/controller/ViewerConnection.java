@@ -0,0 +1,274 @@
+package controller;
+
+import java.awt.Rectangle;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import model.GenerationResult;
+
+/**
+ * This class represents the WebSocket connection of a remote viewer.
+ * Generations are offered to a small buffer of the connection without ever waiting:
+ * when the viewer falls behind, the oldest buffered generations are dropped.
+ * A sender thread encodes the buffered generations as delta frames of the viewport
+ * (relative to the last frame actually sent) and writes them, while a reader thread
+ * receives the viewport changes, as text messages "x,y,width,height".
+ *
+ */
+public class ViewerConnection {
+
+	private static final int OPCODE_TEXT = 0x1;
+	private static final int OPCODE_BINARY = 0x2;
+	private static final int OPCODE_CLOSE = 0x8;
+	private static final int OPCODE_PING = 0x9;
+	private static final int OPCODE_PONG = 0xA;
+	private static final int MAX_MESSAGE_SIZE = 1024;
+	// Maximum time waited for a generation before checking for viewport changes and closing
+	private static final int POLL_PERIOD = 100;
+
+	private final Socket socket;
+	private final DataInputStream in;
+	private final OutputStream out;
+	private final BlockingQueue<GenerationResult> buffer;
+	private final ThreadFactory threads;
+	private final Supplier<Optional<GenerationResult>> latest;
+	private final Consumer<ViewerConnection> onClose;
+	private final AtomicBoolean closed;
+	private volatile Rectangle viewport;
+
+	private final LongAdder sentFrames;
+	private final LongAdder droppedFrames;
+
+
+	/**
+	 * Constructs a new connection on a socket whose WebSocket handshake is complete.
+	 *
+	 * @param socket
+	 * 		the socket of the viewer
+	 * @param viewport
+	 * 		the region of the map initially requested by the viewer
+	 * @param bufferSize
+	 * 		the maximum number of generations waiting to be sent
+	 * @param threads
+	 * 		the factory of the sender and reader threads
+	 * @param latest
+	 * 		the newest published generation, sent again after a change of viewport
+	 * @param onClose
+	 * 		the operation run on the connection once it is closed
+	 * @throws IOException
+	 * 		if the streams of the socket cannot be opened
+	 */
+	public ViewerConnection(final Socket socket, final Rectangle viewport, final int bufferSize,
+			final ThreadFactory threads, final Supplier<Optional<GenerationResult>> latest,
+			final Consumer<ViewerConnection> onClose) throws IOException {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size must be positive");
+		}
+		this.socket = socket;
+		this.in = new DataInputStream(socket.getInputStream());
+		this.out = new BufferedOutputStream(socket.getOutputStream());
+		this.buffer = new ArrayBlockingQueue<>(bufferSize);
+		this.threads = threads;
+		this.latest = latest;
+		this.onClose = onClose;
+		this.closed = new AtomicBoolean();
+		this.viewport = new Rectangle(viewport);
+		this.sentFrames = new LongAdder();
+		this.droppedFrames = new LongAdder();
+	}
+
+	/**
+	 * Starts the sender and the reader threads.
+	 *
+	 * @param first
+	 * 		the generation to send first, if any
+	 */
+	public void start(final Optional<GenerationResult> first) {
+		first.ifPresent(this::offer);
+		this.threads.newThread(this::send).start();
+		this.threads.newThread(this::receive).start();
+	}
+
+	/**
+	 * Offers a generation to the viewer, dropping the oldest buffered ones if the buffer is full.
+	 * It never waits.
+	 *
+	 * @param generation
+	 * 		the generation to send
+	 */
+	public void offer(final GenerationResult generation) {
+		while (!this.buffer.offer(generation)) {
+			if (this.buffer.poll() != null) {
+				this.droppedFrames.increment();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of frames sent to the viewer.
+	 */
+	public long getSentFrames() {
+		return this.sentFrames.sum();
+	}
+
+	/**
+	 * @return the number of generations dropped because the viewer fell behind.
+	 */
+	public long getDroppedFrames() {
+		return this.droppedFrames.sum();
+	}
+
+	/**
+	 * @return true if the connection has been closed.
+	 */
+	public boolean isClosed() {
+		return this.closed.get();
+	}
+
+	/*
+	 * Writes a WebSocket frame (unmasked, as required from servers).
+	 */
+	private void writeFrame(final int opcode, final byte[] payload) throws IOException {
+		final byte[] header;
+		if (payload.length < 126) {
+			header = new byte[] { (byte) (0x80 | opcode), (byte) payload.length };
+		} else if (payload.length <= 0xFFFF) {
+			header = new byte[] { (byte) (0x80 | opcode), 126, (byte) (payload.length >>> 8), (byte) payload.length };
+		} else {
+			header = new byte[10];
+			header[0] = (byte) (0x80 | opcode);
+			header[1] = 127;
+			for (int i = 0; i < Long.BYTES; i++) {
+				header[2 + i] = (byte) ((long) payload.length >>> (Long.SIZE - Byte.SIZE * (i + 1)));
+			}
+		}
+		synchronized (this.out) {
+			this.out.write(header);
+			this.out.write(payload);
+			this.out.flush();
+		}
+	}
+
+	/*
+	 * Sends the buffered generations until the connection is closed. After a change of viewport
+	 * with no buffered generation, the newest published one (the last sent, unless a newer one
+	 * is being offered) is sent again: the connection keeps no generation of its own.
+	 */
+	private void send() {
+		Rectangle encoded = this.viewport;
+		final DeltaFrameEncoder encoder = new DeltaFrameEncoder(encoded);
+		try {
+			while (!isClosed()) {
+				GenerationResult next = this.buffer.poll(POLL_PERIOD, TimeUnit.MILLISECONDS);
+				final Rectangle requested = this.viewport;
+				if (!requested.equals(encoded)) {
+					encoded = requested;
+					encoder.setViewport(encoded);
+					if (next == null) {
+						next = this.latest.get().orElse(null);
+					}
+				}
+				if (next != null) {
+					writeFrame(OPCODE_BINARY, encoder.encode(next.getGenerationNumber(), next.getStates()));
+					this.sentFrames.increment();
+				}
+			}
+		} catch (IOException | InterruptedException e) {
+			// The viewer is gone
+		} finally {
+			close();
+		}
+	}
+
+	/*
+	 * Receives the messages of the viewer until the connection is closed.
+	 */
+	private void receive() {
+		try {
+			while (!isClosed()) {
+				final int first = this.in.readUnsignedByte();
+				final int second = this.in.readUnsignedByte();
+				final int opcode = first & 0x0F;
+				long length = second & 0x7F;
+				if (length == 126) {
+					length = this.in.readUnsignedShort();
+				} else if (length == 127) {
+					length = this.in.readLong();
+				}
+				if ((second & 0x80) == 0 || (first & 0x80) == 0 || length < 0 || length > MAX_MESSAGE_SIZE) {
+					// Client frames must be masked; fragmented and big messages are not expected
+					break;
+				}
+				final byte[] mask = new byte[4];
+				this.in.readFully(mask);
+				final byte[] payload = new byte[(int) length];
+				this.in.readFully(payload);
+				for (int i = 0; i < payload.length; i++) {
+					payload[i] ^= mask[i % mask.length];
+				}
+				if (opcode == OPCODE_CLOSE) {
+					writeFrame(OPCODE_CLOSE, new byte[0]);
+					break;
+				} else if (opcode == OPCODE_PING) {
+					writeFrame(OPCODE_PONG, payload);
+				} else if (opcode == OPCODE_TEXT) {
+					parseViewport(new String(payload, StandardCharsets.UTF_8)).ifPresent(v -> this.viewport = v);
+				}
+			}
+		} catch (IOException e) {
+			// The viewer is gone or closed the connection
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Parses a viewport in the form "x,y,width,height".
+	 *
+	 * @param text
+	 * 		the text to parse
+	 * @return the viewport, empty if the text is malformed or the viewport is empty.
+	 */
+	public static Optional<Rectangle> parseViewport(final String text) {
+		final String[] parts = text.trim().split(",");
+		if (parts.length != 4) {
+			return Optional.empty();
+		}
+		try {
+			final Rectangle res = new Rectangle(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+					Integer.parseInt(parts[2].trim()), Integer.parseInt(parts[3].trim()));
+			return res.width > 0 && res.height > 0 ? Optional.of(res) : Optional.empty();
+		} catch (NumberFormatException e) {
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Closes the connection.
+	 */
+	public void close() {
+		if (this.closed.compareAndSet(false, true)) {
+			try {
+				this.socket.close();
+			} catch (IOException e) {
+				// Already closed
+			}
+			this.buffer.clear();
+			this.onClose.accept(this);
+		}
+	}
+
+}
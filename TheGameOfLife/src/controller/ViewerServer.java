@@ -0,0 +1,279 @@
+package controller;
+
+import java.awt.Rectangle;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+
+import model.GenerationResult;
+
+/**
+ * This class represents an embedded HTTP server for remote viewers of the game.
+ * It serves a browser viewer page on "/" and streams the published generations
+ * over WebSocket on "/stream?x=..&amp;y=..&amp;w=..&amp;h=..", as delta frames of
+ * the requested viewport (see {@link DeltaFrameEncoder}).
+ * Publishing a generation never waits for the viewers: each one has its own
+ * bounded buffer, which drops frames when the viewer falls behind.
+ *
+ */
+public class ViewerServer {
+
+	private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+	private static final String PAGE = "viewer.html";
+	// Generations buffered for each viewer (package visible for the memory budget)
+	static final int BUFFER_SIZE = 4;
+	private static final int DEFAULT_VIEWPORT_SIZE = 256;
+	// Maximum time waited for the request of a new connection
+	private static final int REQUEST_TIMEOUT = 5000;
+	private static final int MAX_LINE_LENGTH = 8192;
+
+	private final ServerSocket serverSocket;
+	private final ThreadFactory threads;
+	private final List<ViewerConnection> viewers;
+	private volatile Optional<GenerationResult> latest;
+
+
+	/**
+	 * Constructs a new server, bound to the specified address.
+	 *
+	 * @param address
+	 * 		the local address and port to listen on (port 0 for any free port)
+	 * @param mode
+	 * 		the execution mode of the threads of the server
+	 * @throws IOException
+	 * 		if the server cannot listen on the port
+	 */
+	public ViewerServer(final InetSocketAddress address, final ExecutionMode mode) throws IOException {
+		this.serverSocket = new ServerSocket();
+		this.serverSocket.setReuseAddress(true);
+		this.serverSocket.bind(address);
+		this.threads = ExecutionThreads.newFactory(mode, "Viewer");
+		this.viewers = new CopyOnWriteArrayList<>();
+		this.latest = Optional.empty();
+	}
+
+	/**
+	 * @return the port the server listens on.
+	 */
+	public int getPort() {
+		return this.serverSocket.getLocalPort();
+	}
+
+	/**
+	 * @return the number of connected viewers.
+	 */
+	public int getViewers() {
+		return this.viewers.size();
+	}
+
+	/**
+	 * @return the number of generations dropped by all the connected viewers.
+	 */
+	public long getDroppedFrames() {
+		return this.viewers.stream().mapToLong(ViewerConnection::getDroppedFrames).sum();
+	}
+
+	/**
+	 * Starts accepting connections.
+	 */
+	public void start() {
+		this.threads.newThread(this::accept).start();
+	}
+
+	/**
+	 * Publishes a generation to every viewer. It never waits.
+	 *
+	 * @param generation
+	 * 		the generation to publish
+	 */
+	public void publish(final GenerationResult generation) {
+		this.latest = Optional.of(generation);
+		for (final ViewerConnection viewer : this.viewers) {
+			viewer.offer(generation);
+		}
+	}
+
+	/**
+	 * Stops the server, closing every connection.
+	 */
+	public void close() {
+		try {
+			this.serverSocket.close();
+		} catch (IOException e) {
+			// Already closed
+		}
+		for (final ViewerConnection viewer : this.viewers) {
+			viewer.close();
+		}
+	}
+
+	/*
+	 * Accepts connections until the server is closed, handling each one on its own thread.
+	 */
+	private void accept() {
+		while (!this.serverSocket.isClosed()) {
+			try {
+				final Socket socket = this.serverSocket.accept();
+				this.threads.newThread(() -> handle(socket)).start();
+			} catch (SocketException e) {
+				// The server has been closed
+			} catch (IOException e) {
+				// Failed connection, keeps accepting the others
+			}
+		}
+	}
+
+	/*
+	 * Reads an HTTP request and serves the page or upgrades the connection to WebSocket.
+	 */
+	private void handle(final Socket socket) {
+		try {
+			socket.setSoTimeout(REQUEST_TIMEOUT);
+			socket.setTcpNoDelay(true);
+			final InputStream in = socket.getInputStream();
+			final String[] requestLine = readLine(in).orElse("").split(" ");
+			final Map<String, String> headers = new HashMap<>();
+			for (Optional<String> line = readLine(in); line.isPresent() && !line.get().isEmpty(); line = readLine(in)) {
+				final int colon = line.get().indexOf(':');
+				if (colon > 0) {
+					headers.put(line.get().substring(0, colon).trim().toLowerCase(Locale.ROOT),
+							line.get().substring(colon + 1).trim());
+				}
+			}
+			final OutputStream out = socket.getOutputStream();
+			if (requestLine.length < 2 || !"GET".equals(requestLine[0])) {
+				respond(out, "405 Method Not Allowed", "text/plain", "Only GET is supported".getBytes(StandardCharsets.UTF_8));
+			} else if (requestLine[1].equals("/") || requestLine[1].startsWith("/?")) {
+				respond(out, "200 OK", "text/html; charset=utf-8", readPage());
+			} else if (requestLine[1].startsWith("/stream") && headers.containsKey("sec-websocket-key")
+					&& "websocket".equalsIgnoreCase(headers.get("upgrade"))) {
+				upgrade(socket, out, headers.get("sec-websocket-key"), requestLine[1]);
+				return;
+			} else {
+				respond(out, "404 Not Found", "text/plain", "Not found".getBytes(StandardCharsets.UTF_8));
+			}
+			socket.close();
+		} catch (IOException e) {
+			try {
+				socket.close();
+			} catch (IOException ce) {
+				// Already closed
+			}
+		}
+	}
+
+	/*
+	 * Completes the WebSocket handshake and registers the viewer.
+	 */
+	private void upgrade(final Socket socket, final OutputStream out, final String key, final String target)
+			throws IOException {
+		final String accept;
+		try {
+			accept = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-1")
+					.digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.ISO_8859_1)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+				+ "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+		out.flush();
+		socket.setSoTimeout(0);
+		final ViewerConnection viewer = new ViewerConnection(socket, viewportOf(target), BUFFER_SIZE, this.threads,
+				() -> this.latest, this.viewers::remove);
+		this.viewers.add(viewer);
+		viewer.start(this.latest);
+		if (this.serverSocket.isClosed()) {
+			viewer.close();
+		}
+	}
+
+	/*
+	 * Reads the viewport from the query of a stream request.
+	 */
+	private static Rectangle viewportOf(final String target) {
+		final Map<String, Integer> query = new HashMap<>();
+		final int start = target.indexOf('?');
+		if (start >= 0) {
+			for (final String parameter : target.substring(start + 1).split("&")) {
+				final String[] pair = parameter.split("=", 2);
+				if (pair.length == 2) {
+					try {
+						query.put(pair[0], Integer.parseInt(pair[1]));
+					} catch (NumberFormatException e) {
+						// Ignores the parameter
+					}
+				}
+			}
+		}
+		final Rectangle res = new Rectangle(Math.max(query.getOrDefault("x", 0), 0), Math.max(query.getOrDefault("y", 0), 0),
+				query.getOrDefault("w", DEFAULT_VIEWPORT_SIZE), query.getOrDefault("h", DEFAULT_VIEWPORT_SIZE));
+		if (res.width < 1 || res.height < 1) {
+			res.setSize(DEFAULT_VIEWPORT_SIZE, DEFAULT_VIEWPORT_SIZE);
+		}
+		return res;
+	}
+
+	/*
+	 * Reads the viewer page from the resources.
+	 */
+	private static byte[] readPage() throws IOException {
+		try (InputStream page = ViewerServer.class.getResourceAsStream(PAGE)) {
+			if (page == null) {
+				throw new IOException("Missing resource " + PAGE);
+			}
+			final ByteArrayOutputStream res = new ByteArrayOutputStream();
+			final byte[] chunk = new byte[4096];
+			for (int read = page.read(chunk); read >= 0; read = page.read(chunk)) {
+				res.write(chunk, 0, read);
+			}
+			return res.toByteArray();
+		}
+	}
+
+	/*
+	 * Writes a complete HTTP response.
+	 */
+	private static void respond(final OutputStream out, final String status, final String contentType,
+			final byte[] body) throws IOException {
+		out.write(("HTTP/1.1 " + status + "\r\nContent-Type: " + contentType + "\r\nContent-Length: " + body.length
+				+ "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+		out.write(body);
+		out.flush();
+	}
+
+	/*
+	 * Reads a line of the request headers, one byte at a time, so that nothing
+	 * after the headers (the first WebSocket frames) is consumed.
+	 */
+	private static Optional<String> readLine(final InputStream in) throws IOException {
+		final StringBuilder res = new StringBuilder();
+		for (int c = in.read(); c >= 0; c = in.read()) {
+			if (c == '\n') {
+				final int length = res.length();
+				return Optional.of(length > 0 && res.charAt(length - 1) == '\r' ? res.substring(0, length - 1) : res.toString());
+			}
+			if (res.length() >= MAX_LINE_LENGTH) {
+				throw new IOException("Request line too long");
+			}
+			res.append((char) c);
+		}
+		return Optional.empty();
+	}
+
+}
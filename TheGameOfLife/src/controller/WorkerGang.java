@@ -0,0 +1,175 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import model.PopulationAccumulator;
+
+/**
+ * This class runs the same tasks at each generation on threads kept for the whole run,
+ * so that a generation submits nothing to the executor and allocates nothing:
+ * each worker waits for the start of a generation, calls its task, and reports its end.
+ * It also measures the memory allocated by the workers while running their tasks.
+ * The executor must have a free thread for each task.
+ *
+ */
+public class WorkerGang {
+
+	private final Executor executor;
+	private final List<Callable<PopulationAccumulator>> tasks;
+	private final List<PopulationAccumulator> results;
+
+	private final Object lock;
+	// Number of the current generation, and workers still running it
+	private long phase;
+	private int running;
+	private boolean closed;
+	private Throwable failure;
+	// Bytes allocated by the workers during the last generation (negative if not available)
+	private long allocatedBytes;
+
+
+	/**
+	 * Constructs a new gang.
+	 *
+	 * @param executor
+	 * 		the executor running the workers, with a free thread for each task
+	 * @param tasks
+	 * 		the tasks called at each generation, one for each worker
+	 */
+	public WorkerGang(final Executor executor, final List<Callable<PopulationAccumulator>> tasks) {
+		if (tasks.isEmpty()) {
+			throw new IllegalArgumentException("At least one task must be run");
+		}
+		this.executor = executor;
+		this.tasks = new ArrayList<>(tasks);
+		this.results = new ArrayList<>(tasks.size());
+		for (int i = 0; i < tasks.size(); i++) {
+			this.results.add(null);
+		}
+		this.lock = new Object();
+		this.phase = 0;
+		this.running = 0;
+		this.closed = false;
+	}
+
+	/**
+	 * Starts the workers, waiting for the first generation.
+	 */
+	public void start() {
+		for (int i = 0; i < this.tasks.size(); i++) {
+			final int worker = i;
+			this.executor.execute(() -> work(worker));
+		}
+	}
+
+	/*
+	 * Runs the task of a worker once for each generation, until the gang is closed.
+	 */
+	private void work(final int worker) {
+		final Callable<PopulationAccumulator> task = this.tasks.get(worker);
+		long seen = 0;
+		while (true) {
+			synchronized (this.lock) {
+				while (this.phase == seen && !this.closed) {
+					try {
+						this.lock.wait();
+					} catch (InterruptedException e) {
+						// Only closing the gang ends a worker
+					}
+				}
+				if (this.closed) {
+					return;
+				}
+				seen = this.phase;
+			}
+			final long allocated = AllocationMeter.currentThreadAllocatedBytes();
+			PopulationAccumulator result = null;
+			Throwable error = null;
+			try {
+				result = task.call();
+			} catch (Exception | Error e) {
+				// Reported to the generation, which would otherwise wait for this worker forever
+				error = e;
+			}
+			final long end = AllocationMeter.currentThreadAllocatedBytes();
+			synchronized (this.lock) {
+				this.results.set(worker, result);
+				if (error != null && this.failure == null) {
+					this.failure = error;
+				}
+				this.allocatedBytes = allocated < 0 || this.allocatedBytes < 0 ? -1 : this.allocatedBytes + end - allocated;
+				this.running--;
+				if (this.running == 0) {
+					this.lock.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the tasks for a generation and waits for all of them, merging their results.
+	 * An interrupt does not abandon the wait, since tasks stop by themselves within one chunk
+	 * once the stop flag is on, and no task must outlive the generation: the interrupt status
+	 * is restored afterwards.
+	 *
+	 * @param res
+	 * 		the accumulator in which the results of the tasks are merged
+	 * @throws ExecutionException
+	 * 		if a task failed
+	 */
+	public void runGeneration(final PopulationAccumulator res) throws ExecutionException {
+		boolean interrupted = false;
+		synchronized (this.lock) {
+			if (this.closed) {
+				throw new IllegalStateException("Gang is closed");
+			}
+			this.allocatedBytes = 0;
+			this.running = this.tasks.size();
+			this.phase++;
+			this.lock.notifyAll();
+			while (this.running > 0) {
+				try {
+					this.lock.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (this.failure != null) {
+				final Throwable failure = this.failure;
+				this.failure = null;
+				throw new ExecutionException(failure);
+			}
+			for (int i = 0; i < this.results.size(); i++) {
+				res.merge(this.results.get(i));
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the memory allocated by the workers during the last generation, in bytes
+	 * (a negative value if it is not available).
+	 */
+	public long getAllocatedBytes() {
+		synchronized (this.lock) {
+			return this.allocatedBytes;
+		}
+	}
+
+	/**
+	 * Ends the workers once they are waiting for the next generation.
+	 */
+	public void close() {
+		synchronized (this.lock) {
+			this.closed = true;
+			this.lock.notifyAll();
+		}
+	}
+
+}
@@ -0,0 +1,187 @@
+package main;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+
+import model.ConwayCellMap;
+import model.ConwayCellMapImpl;
+import model.LifeRule;
+import model.PopulationAccumulator;
+import model.Soups;
+import model.TileKernelType;
+
+
+/**
+ * This is the launcher of the kernel benchmark, without user interface: on the same
+ * random soup, it compares on a single thread the time of a generation computed from the
+ * cells to evaluate ({@link ConwayCellMap#computeCells}) with the time of a generation
+ * computed by whole tiles with each tile kernel, one generation at a time and by steps
+ * of several generations. Each measure is the median of repeated runs of the same
+ * generation (rolled back after each run), after some unmeasured runs.
+ * Before measuring, it checks that every kernel computes the same generations as
+ * {@link ConwayCellMap#computeCells}, under Conway's rule and HighLife, and stops at the first mismatch.
+ *
+ * Usage: KernelBenchmark width height [generations per step [density [settling generations [seed]]]]
+ */
+public final class KernelBenchmark {
+
+	private static final int DEFAULT_STEP = 4;
+	private static final double DEFAULT_DENSITY = 0.375;
+	private static final int DEFAULT_SETTLING = 50;
+	private static final long DEFAULT_SEED = 1;
+	private static final int WARMUP_RUNS = 10;
+	private static final int MEASURED_RUNS = 21;
+	// Steps computed to check the kernels, and the rules they are checked under
+	private static final int CHECKED_STEPS = 8;
+	private static final LifeRule[] CHECKED_RULES = { LifeRule.CONWAY, LifeRule.HIGHLIFE };
+
+	private KernelBenchmark() { }
+
+	/*
+	 * Creates a cell map from the soup, and computes some generations so that
+	 * the population is past its first, unusually active, generations.
+	 */
+	private static ConwayCellMap settle(final boolean[][] soup, final TileKernelType kernel, final int generations) {
+		final ConwayCellMap res = new ConwayCellMapImpl(soup[0].length, soup.length, LifeRule.CONWAY, kernel);
+		res.loadGeneration(soup, 0);
+		final PopulationAccumulator statistics = new PopulationAccumulator(res.getCellMapDimension(), res.getTileSize());
+		for (int g = 0; g < generations; g++) {
+			final List<Point> cells = res.getCellsToEvaluate();
+			res.computeCells(cells, 0, cells.size(), statistics);
+			res.nextGeneration();
+		}
+		return res;
+	}
+
+	/*
+	 * Computes the next generation from the cells to evaluate.
+	 */
+	private static void computeCells(final ConwayCellMap model, final PopulationAccumulator statistics) {
+		final List<Point> cells = model.getCellsToEvaluate();
+		model.computeCells(cells, 0, cells.size(), statistics);
+	}
+
+	/*
+	 * Computes the next step by whole tiles, covering the cell map.
+	 */
+	private static void computeTiles(final ConwayCellMap model, final int generations, final PopulationAccumulator statistics) {
+		final int tileSize = model.getTileSize();
+		final int width = model.getCellMapDimension().width;
+		final int height = model.getCellMapDimension().height;
+		for (int y = 0; y < height; y += tileSize) {
+			for (int x = 0; x < width; x += tileSize) {
+				model.computeTile(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y), generations, statistics);
+			}
+		}
+	}
+
+	/*
+	 * Computes some generations of the soup from the cells to evaluate.
+	 */
+	private static boolean[][] evolveCells(final boolean[][] soup, final LifeRule rule, final int generations) {
+		final ConwayCellMap model = new ConwayCellMapImpl(soup[0].length, soup.length, rule);
+		model.loadGeneration(soup, 0);
+		final PopulationAccumulator statistics = new PopulationAccumulator(model.getCellMapDimension(), model.getTileSize());
+		for (int g = 0; g < generations; g++) {
+			computeCells(model, statistics);
+			model.nextGeneration();
+		}
+		return model.getCellMapStates();
+	}
+
+	/*
+	 * Computes some generations of the soup by whole tiles, with a kernel and by steps.
+	 */
+	private static boolean[][] evolveTiles(final boolean[][] soup, final LifeRule rule, final TileKernelType kernel,
+			final int step, final int generations) {
+		final ConwayCellMap model = new ConwayCellMapImpl(soup[0].length, soup.length, rule, kernel);
+		model.loadGeneration(soup, 0);
+		final PopulationAccumulator statistics = new PopulationAccumulator(model.getCellMapDimension(), model.getTileSize());
+		for (int g = 0; g < generations; g += step) {
+			computeTiles(model, step, statistics);
+			model.nextGeneration(step);
+		}
+		return model.getCellMapStates();
+	}
+
+	/*
+	 * Checks that every kernel, one generation at a time and by steps, computes the same
+	 * generations as computeCells under each checked rule: a wrong kernel would still look fast.
+	 */
+	private static void check(final boolean[][] soup, final int step) {
+		final int generations = step * CHECKED_STEPS;
+		for (final LifeRule rule : CHECKED_RULES) {
+			final boolean[][] expected = evolveCells(soup, rule, generations);
+			for (final TileKernelType kernel : TileKernelType.values()) {
+				for (final int generationsPerStep : step > 1 ? new int[] { 1, step } : new int[] { 1 }) {
+					if (!Arrays.deepEquals(expected, evolveTiles(soup, rule, kernel, generationsPerStep, generations))) {
+						throw new IllegalStateException(kernel + " tiles, " + generationsPerStep
+								+ " generations per step, differ from computeCells after " + generations + " generations of " + rule);
+					}
+				}
+			}
+		}
+		System.out.println("Every kernel matches computeCells after " + generations + " generations of "
+				+ Arrays.toString(CHECKED_RULES));
+	}
+
+	/*
+	 * Measures the median time of a computation of the next step, in nanoseconds.
+	 */
+	private static long measure(final ConwayCellMap model, final Runnable computation) {
+		final long[] times = new long[MEASURED_RUNS];
+		for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+			final long start = System.nanoTime();
+			computation.run();
+			final long time = System.nanoTime() - start;
+			model.rollbackGeneration();
+			if (i >= WARMUP_RUNS) {
+				times[i - WARMUP_RUNS] = time;
+			}
+		}
+		Arrays.sort(times);
+		return times[MEASURED_RUNS / 2];
+	}
+
+	private static void print(final String name, final long nanosPerGeneration, final long cells, final long reference) {
+		System.out.println(String.format("%-48s %10.3f ms per generation %8.2f ns per cell  x%.2f", name,
+				nanosPerGeneration / 1e6, (double) nanosPerGeneration / cells, (double) reference / nanosPerGeneration));
+	}
+
+	public static void main(final String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: KernelBenchmark width height [generations per step [density [settling generations [seed]]]]");
+			System.exit(1);
+		}
+		final int width = Integer.parseInt(args[0]);
+		final int height = Integer.parseInt(args[1]);
+		final int step = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_STEP;
+		final double density = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_DENSITY;
+		final int settling = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_SETTLING;
+		final long seed = args.length > 5 ? Long.parseLong(args[5]) : DEFAULT_SEED;
+
+		final boolean[][] soup = Soups.random(new Dimension(width, height), density, seed);
+		final long cells = (long) width * height;
+		System.out.println("Generation " + settling + " of a " + width + "x" + height + " soup (density " + density
+				+ ", seed " + seed + "), single thread, speedups against computeCells");
+		check(soup, step);
+
+		final ConwayCellMap list = settle(soup, TileKernelType.NEIGHBOR_COUNT, settling);
+		final PopulationAccumulator statistics = new PopulationAccumulator(list.getCellMapDimension(), list.getTileSize());
+		final int candidates = list.getCellsToEvaluate().size();
+		final long reference = measure(list, () -> computeCells(list, statistics));
+		System.out.println(String.format("%-48s %10.3f ms per generation %8.2f ns per cell to evaluate (%d)", "computeCells",
+				reference / 1e6, (double) reference / candidates, candidates));
+		for (final TileKernelType kernel : TileKernelType.values()) {
+			final ConwayCellMap model = settle(soup, kernel, settling);
+			print(kernel + " tiles", measure(model, () -> computeTiles(model, 1, statistics)), cells, reference);
+			if (step > 1) {
+				print(kernel + " tiles, " + step + " generations per step",
+						measure(model, () -> computeTiles(model, step, statistics)) / step, cells, reference);
+			}
+		}
+	}
+
+}
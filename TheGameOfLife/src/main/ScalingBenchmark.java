@@ -0,0 +1,70 @@
+package main;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+
+import controller.ComputeEngine;
+import controller.ScalingHarness;
+import controller.ScalingReport;
+
+
+/**
+ * This is the launcher of the thread scaling harness, without user interface: it runs
+ * the same workload with more and more threads and writes the measures to a CSV file
+ * and to an HTML report, estimating the serial fraction of each engine and map size.
+ *
+ * Usage: ScalingBenchmark sizes generations [max threads [engines [density [seed]]]]
+ * where sizes is a comma separated list of dimensions (e.g. 500x500,2000x2000)
+ * and engines a comma separated list of engines (e.g. change_list,tiles).
+ * The maximum number of threads defaults to the one used by the game.
+ */
+public final class ScalingBenchmark {
+
+	private static final String DEFAULT_ENGINES = "change_list,tiles";
+	private static final double DEFAULT_DENSITY = 0.375;
+	private static final long DEFAULT_SEED = 1;
+
+	private ScalingBenchmark() { }
+
+	public static void main(final String[] args) throws IOException, ExecutionException {
+		if (args.length < 2) {
+			System.err.println("Usage: ScalingBenchmark sizes generations [max threads [engines [density [seed]]]]");
+			System.exit(1);
+		}
+		final List<Dimension> sizes = new ArrayList<>();
+		for (final String size : args[0].split(",")) {
+			final String[] sides = size.toLowerCase(Locale.ROOT).split("x");
+			if (sides.length != 2) {
+				throw new IllegalArgumentException("Invalid size: " + size);
+			}
+			sizes.add(new Dimension(Integer.parseInt(sides[0]), Integer.parseInt(sides[1])));
+		}
+		final long generations = Long.parseLong(args[1]);
+		// The game uses a thread more than the processors
+		final int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors() + 1;
+		final List<ComputeEngine> engines = new ArrayList<>();
+		for (final String engine : (args.length > 3 ? args[3] : DEFAULT_ENGINES).split(",")) {
+			engines.add(ComputeEngine.valueOf(engine.toUpperCase(Locale.ROOT)));
+		}
+		final double density = args.length > 4 ? Double.parseDouble(args[4]) : DEFAULT_DENSITY;
+		final long seed = args.length > 5 ? Long.parseLong(args[5]) : DEFAULT_SEED;
+
+		final ScalingHarness harness = new ScalingHarness(sizes, engines, maxThreads, generations, density, seed);
+		final String name = "scaling-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+		final File csv = new File(System.getProperty("user.dir"), name + ".csv");
+		final File html = new File(System.getProperty("user.dir"), name + ".html");
+		System.out.println("Running " + generations + " generations with " + harness.getThreadCounts() + " threads"
+				+ " (density " + density + ", seed " + seed + ") to " + csv + " and " + html);
+		final ScalingReport report = new ScalingReport(harness.run());
+		report.writeCsv(csv);
+		report.writeHtml(html);
+	}
+
+}
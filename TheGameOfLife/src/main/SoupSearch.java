@@ -0,0 +1,52 @@
+package main;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+import controller.BatchRunner;
+import controller.BatchSummary;
+import model.LifeRule;
+
+
+/**
+ * This is the launcher of the batch mode, without user interface: it runs many
+ * independent random soups in parallel and writes their results to a CSV file.
+ *
+ * Usage: SoupSearch width height universes [densities [max generations [rule [seed]]]]
+ * where densities is a comma separated list (e.g. 0.25,0.375,0.5).
+ */
+public final class SoupSearch {
+
+	private static final String DEFAULT_DENSITIES = "0.375";
+	private static final long DEFAULT_MAX_GENERATIONS = 100000;
+
+	private SoupSearch() { }
+
+	public static void main(final String[] args) throws IOException, InterruptedException {
+		if (args.length < 3) {
+			System.err.println("Usage: SoupSearch width height universes [densities [max generations [rule [seed]]]]");
+			System.exit(1);
+		}
+		final Dimension mapDimension = new Dimension(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+		final int universes = Integer.parseInt(args[2]);
+		final double[] densities = Arrays.stream((args.length > 3 ? args[3] : DEFAULT_DENSITIES).split(","))
+				.mapToDouble(Double::parseDouble).toArray();
+		final long maxGenerations = args.length > 4 ? Long.parseLong(args[4]) : DEFAULT_MAX_GENERATIONS;
+		final LifeRule rule = args.length > 5 ? LifeRule.parse(args[5]) : LifeRule.CONWAY;
+		final long seed = args.length > 6 ? Long.parseLong(args[6]) : System.currentTimeMillis();
+
+		final BatchRunner batch = new BatchRunner(mapDimension, rule, densities, universes, maxGenerations, seed,
+				Runtime.getRuntime().availableProcessors());
+		final File results = new File(System.getProperty("user.dir"),
+				"soups-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv");
+		System.out.println("Running " + universes + " universes " + mapDimension.width + "x" + mapDimension.height
+				+ " (" + rule + ", seed " + seed + ") to " + results);
+		final BatchSummary summary = batch.run(results);
+		System.out.println(summary);
+	}
+
+}
@@ -0,0 +1,453 @@
+package main;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+
+import controller.DeltaFrameEncoder;
+import controller.ExecutionMode;
+import controller.ViewerServer;
+import model.DensityPyramid;
+import model.GenerationResult;
+import model.PackedStates;
+import model.PopulationAccumulator;
+import model.Soups;
+import model.StateRepresentation;
+
+
+/**
+ * This is the launcher of the check of the remote viewers, without user interface: it starts
+ * a viewer server on a free loopback port and talks to it over plain sockets, as a browser would.
+ * It checks the WebSocket handshake, the unmasking of client frames in the three length forms,
+ * the key and delta frames against the published states, and that a viewer which never reads
+ * makes the server drop generations without delaying their publication.
+ * It stops with an exception at the first failed check.
+ *
+ * Usage: ViewerCheck [width height [seed]]
+ */
+public final class ViewerCheck {
+
+	private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+	private static final int OPCODE_TEXT = 0x1;
+	private static final int OPCODE_BINARY = 0x2;
+	private static final int OPCODE_CLOSE = 0x8;
+	private static final int OPCODE_PING = 0x9;
+	private static final int OPCODE_PONG = 0xA;
+	private static final int SHORT_LENGTH = 126;
+	private static final int LONG_LENGTH = 127;
+	private static final int HEADER_SIZE = 33;
+	// The key frame of the whole default map takes the 8 bytes length form
+	private static final int DEFAULT_WIDTH = 1100;
+	private static final int DEFAULT_HEIGHT = 700;
+	private static final double DENSITY = 0.375;
+	private static final int REGION_SIZE = 64;
+	// The key frame of the first viewport takes the 2 bytes length form
+	private static final Rectangle VIEWPORT = new Rectangle(100, 50, 64, 64);
+	private static final int TOGGLED_CELLS = 10;
+	private static final int PING_SIZE = 200;
+	private static final int STALLED_RECEIVE_BUFFER = 4096;
+	private static final int STALLED_GENERATIONS = 1000;
+	private static final int TIMEOUT = 10000;
+
+	private ViewerCheck() { }
+
+	public static void main(final String[] args) throws IOException, InterruptedException {
+		if (args.length == 1 || args.length > 3) {
+			System.err.println("Usage: ViewerCheck [width height [seed]]");
+			System.exit(1);
+		}
+		final Dimension mapDimension = args.length > 1
+				? new Dimension(Integer.parseInt(args[0]), Integer.parseInt(args[1]))
+				: new Dimension(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+		if (mapDimension.width < VIEWPORT.x + VIEWPORT.width || mapDimension.height < VIEWPORT.y + VIEWPORT.height) {
+			System.err.println("The map must contain the viewport " + VIEWPORT);
+			System.exit(1);
+		}
+		final long seed = args.length > 2 ? Long.parseLong(args[2]) : System.currentTimeMillis();
+		final Random random = new Random(seed);
+
+		final boolean[][] soup = Soups.random(mapDimension, DENSITY, seed);
+		final boolean[][] toggled = new boolean[soup.length][];
+		final boolean[][] inverted = new boolean[soup.length][];
+		for (int y = 0; y < soup.length; y++) {
+			toggled[y] = soup[y].clone();
+			inverted[y] = new boolean[soup[y].length];
+			for (int x = 0; x < soup[y].length; x++) {
+				inverted[y][x] = !soup[y][x];
+			}
+		}
+		// Few changes in the viewport, so that the next frame is a delta
+		for (int t = 0; t < TOGGLED_CELLS; t++) {
+			final int x = VIEWPORT.x + random.nextInt(VIEWPORT.width);
+			final int y = VIEWPORT.y + random.nextInt(VIEWPORT.height);
+			toggled[y][x] = !toggled[y][x];
+		}
+
+		System.out.println("Checking the viewers of a map " + mapDimension.width + "x" + mapDimension.height
+				+ " (seed " + seed + ")");
+		final ViewerServer server = new ViewerServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+				ExecutionMode.PLATFORM_THREADS);
+		server.start();
+		try {
+			checkFrames(server, mapDimension, soup, toggled, random);
+			checkStalledViewer(server, mapDimension, soup, inverted);
+		} finally {
+			server.close();
+		}
+		System.out.println("Every check passed");
+	}
+
+	/*
+	 * Checks the handshake, the frames of both directions and the decoding of the generations of one viewer.
+	 */
+	private static void checkFrames(final ViewerServer server, final Dimension mapDimension, final boolean[][] soup,
+			final boolean[][] toggled, final Random random) throws IOException, InterruptedException {
+		try (Socket socket = new Socket()) {
+			socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+			socket.setSoTimeout(TIMEOUT);
+			handshake(socket, VIEWPORT, random);
+			System.out.println("Handshake accepted with the expected Sec-WebSocket-Accept");
+			awaitViewers(server, 1);
+			final DataInputStream in = new DataInputStream(socket.getInputStream());
+			final OutputStream out = socket.getOutputStream();
+
+			server.publish(result(0, soup));
+			Frame frame = readFrame(in);
+			require(frame.opcode == OPCODE_BINARY && frame.lengthForm == SHORT_LENGTH,
+					"The first frame is not binary in the 2 bytes length form");
+			final Decoded key = decode(frame.payload, Optional.empty());
+			require(key.type == DeltaFrameEncoder.KEY_FRAME && key.generation == 0, "The first frame is not the key frame of generation 0");
+			require(key.mapDimension.equals(mapDimension) && key.area.equals(VIEWPORT), "The first frame does not cover the viewport");
+			require(Arrays.deepEquals(key.states, region(soup, VIEWPORT)), "The key frame differs from generation 0");
+			System.out.println("Key frame of generation 0 decoded (" + frame.payload.length + " bytes)");
+
+			server.publish(result(1, toggled));
+			frame = readFrame(in);
+			require(frame.opcode == OPCODE_BINARY, "The second frame is not binary");
+			final Decoded delta = decode(frame.payload, Optional.of(key));
+			require(delta.type == DeltaFrameEncoder.DELTA_FRAME && delta.generation == 1,
+					"The second frame is not the delta frame of generation 1");
+			require(Arrays.deepEquals(delta.states, region(toggled, VIEWPORT)), "The delta frame differs from generation 1");
+			System.out.println("Delta frame of generation 1 decoded (" + frame.payload.length + " bytes)");
+
+			// A ping in the 2 bytes length form, then the whole map in the (oversized) 8 bytes form
+			final byte[] ping = new byte[PING_SIZE];
+			random.nextBytes(ping);
+			writeFrame(out, OPCODE_PING, ping, SHORT_LENGTH, random);
+			final Rectangle whole = new Rectangle(mapDimension);
+			writeFrame(out, OPCODE_TEXT, (whole.x + "," + whole.y + "," + whole.width + "," + whole.height)
+					.getBytes(StandardCharsets.UTF_8), LONG_LENGTH, random);
+			boolean ponged = false;
+			Decoded resent = null;
+			while (!ponged || resent == null) {
+				frame = readFrame(in);
+				if (frame.opcode == OPCODE_PONG) {
+					require(Arrays.equals(frame.payload, ping), "The pong does not echo the ping");
+					ponged = true;
+				} else {
+					require(frame.opcode == OPCODE_BINARY && frame.lengthForm == LONG_LENGTH,
+							"The frame of the whole map is not binary in the 8 bytes length form");
+					resent = decode(frame.payload, Optional.empty());
+				}
+			}
+			System.out.println("Masked ping unmasked and answered");
+			require(resent.type == DeltaFrameEncoder.KEY_FRAME && resent.generation == 1 && resent.area.equals(whole),
+					"The viewport change did not resend generation 1 as a key frame of the whole map");
+			require(Arrays.deepEquals(resent.states, toggled), "The key frame of the whole map differs from generation 1");
+			System.out.println("Masked viewport applied, key frame of the whole map decoded (" + resent.states.length
+					+ " rows)");
+
+			writeFrame(out, OPCODE_CLOSE, new byte[0], 0, random);
+			do {
+				frame = readFrame(in);
+			} while (frame.opcode != OPCODE_CLOSE);
+			System.out.println("Close acknowledged");
+		}
+		awaitViewers(server, 0);
+	}
+
+	/*
+	 * Checks that a viewer which never reads loses generations, oldest first, and never delays the publisher.
+	 */
+	private static void checkStalledViewer(final ViewerServer server, final Dimension mapDimension,
+			final boolean[][] soup, final boolean[][] inverted) throws IOException, InterruptedException {
+		final GenerationResult[] results = { result(0, soup), result(1, inverted) };
+		try (Socket socket = new Socket()) {
+			socket.setReceiveBufferSize(STALLED_RECEIVE_BUFFER);
+			socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+			socket.setSoTimeout(TIMEOUT);
+			handshake(socket, new Rectangle(mapDimension), new Random());
+			awaitViewers(server, 1);
+
+			final long[] longest = new long[1];
+			final Thread publisher = new Thread(() -> {
+				for (int g = 0; g < STALLED_GENERATIONS; g++) {
+					final GenerationResult alternate = results[g % results.length];
+					final long start = System.nanoTime();
+					server.publish(new GenerationResult(g, alternate.getStates(), alternate.getStatistics(), 0, -1,
+							alternate.getDensity()));
+					longest[0] = Math.max(longest[0], System.nanoTime() - start);
+				}
+			}, "Publisher");
+			final long start = System.nanoTime();
+			publisher.start();
+			publisher.join(TIMEOUT);
+			final long elapsed = System.nanoTime() - start;
+			require(!publisher.isAlive(), "Publishing is blocked by a viewer which does not read");
+			final long dropped = server.getDroppedFrames();
+			require(dropped > 0, "A viewer which does not read dropped no generation");
+			System.out.println(String.format(Locale.ROOT,
+					"Stalled viewer: %d generations published in %.1f ms (longest %.3f ms), %d dropped",
+					STALLED_GENERATIONS, elapsed / 1e6, longest[0] / 1e6, dropped));
+		}
+	}
+
+	/*
+	 * Requests the stream of a viewport and checks the answer of the server.
+	 */
+	private static void handshake(final Socket socket, final Rectangle viewport, final Random random) throws IOException {
+		final byte[] nonce = new byte[16];
+		random.nextBytes(nonce);
+		final String key = Base64.getEncoder().encodeToString(nonce);
+		final OutputStream out = socket.getOutputStream();
+		out.write(("GET /stream?x=" + viewport.x + "&y=" + viewport.y + "&w=" + viewport.width + "&h=" + viewport.height
+				+ " HTTP/1.1\r\nHost: localhost:" + socket.getPort() + "\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+				+ "Sec-WebSocket-Key: " + key + "\r\nSec-WebSocket-Version: 13\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+		out.flush();
+
+		final InputStream in = socket.getInputStream();
+		final String status = readLine(in);
+		require(status.startsWith("HTTP/1.1 101 "), "Handshake refused: " + status);
+		String accept = null;
+		for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+			final int colon = line.indexOf(':');
+			if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Accept")) {
+				accept = line.substring(colon + 1).trim();
+			}
+		}
+		final String expected;
+		try {
+			expected = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-1")
+					.digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.ISO_8859_1)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		require(expected.equals(accept), "Wrong Sec-WebSocket-Accept " + accept + " instead of " + expected);
+	}
+
+	/*
+	 * Reads a line of the handshake answer, byte by byte so that no frame is consumed.
+	 */
+	private static String readLine(final InputStream in) throws IOException {
+		final StringBuilder res = new StringBuilder();
+		for (int c = in.read(); c != '\n'; c = in.read()) {
+			if (c < 0) {
+				throw new IOException("Connection closed during the handshake");
+			}
+			if (c != '\r') {
+				res.append((char) c);
+			}
+		}
+		return res.toString();
+	}
+
+	/*
+	 * Waits until the server counts the specified number of viewers.
+	 */
+	private static void awaitViewers(final ViewerServer server, final int viewers) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (server.getViewers() != viewers && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		require(server.getViewers() == viewers, "The server counts " + server.getViewers() + " viewers instead of " + viewers);
+	}
+
+	/*
+	 * Writes a masked client frame, with the length in the specified form (0 for the 7 bits form).
+	 */
+	private static void writeFrame(final OutputStream out, final int opcode, final byte[] payload, final int lengthForm,
+			final Random random) throws IOException {
+		final ByteBuffer frame = ByteBuffer.allocate(2 + Long.BYTES + 4 + payload.length);
+		frame.put((byte) (0x80 | opcode));
+		if (lengthForm == SHORT_LENGTH) {
+			frame.put((byte) (0x80 | SHORT_LENGTH)).putShort((short) payload.length);
+		} else if (lengthForm == LONG_LENGTH) {
+			frame.put((byte) (0x80 | LONG_LENGTH)).putLong(payload.length);
+		} else {
+			frame.put((byte) (0x80 | payload.length));
+		}
+		final byte[] mask = new byte[4];
+		random.nextBytes(mask);
+		frame.put(mask);
+		for (int i = 0; i < payload.length; i++) {
+			frame.put((byte) (payload[i] ^ mask[i % mask.length]));
+		}
+		out.write(frame.array(), 0, frame.position());
+		out.flush();
+	}
+
+	/*
+	 * Reads a server frame, which must be final and unmasked.
+	 */
+	private static Frame readFrame(final DataInputStream in) throws IOException {
+		final int first = in.readUnsignedByte();
+		final int second = in.readUnsignedByte();
+		require((first & 0x80) != 0 && (second & 0x80) == 0, "Server frames must be final and unmasked");
+		final int lengthForm = second & 0x7F;
+		final long length;
+		if (lengthForm == SHORT_LENGTH) {
+			length = in.readUnsignedShort();
+			require(length >= SHORT_LENGTH, "Length " + length + " should take the 7 bits form");
+		} else if (lengthForm == LONG_LENGTH) {
+			length = in.readLong();
+			require(length > 0xFFFF && length <= Integer.MAX_VALUE, "Length " + length + " should take the 2 bytes form");
+		} else {
+			length = lengthForm;
+		}
+		final byte[] payload = new byte[(int) length];
+		in.readFully(payload);
+		return new Frame(first & 0x0F, payload, lengthForm < SHORT_LENGTH ? 0 : lengthForm);
+	}
+
+	/*
+	 * Decodes a frame of generation, applying a delta to the states of the previous frame.
+	 */
+	private static Decoded decode(final byte[] payload, final Optional<Decoded> previous) {
+		require(payload.length >= HEADER_SIZE, "Frame shorter than its header");
+		final ByteBuffer in = ByteBuffer.wrap(payload);
+		final byte type = in.get();
+		final long generation = in.getLong();
+		final Dimension mapDimension = new Dimension(in.getInt(), in.getInt());
+		final Rectangle area = new Rectangle(in.getInt(), in.getInt(), in.getInt(), in.getInt());
+		final boolean[][] states = new boolean[area.height][area.width];
+		if (type == DeltaFrameEncoder.KEY_FRAME) {
+			final int size = area.width * area.height;
+			require(in.remaining() == (size + 7) / 8, "Key frame of " + in.remaining() + " bytes for " + size + " cells");
+			for (int i = 0; i < size; i++) {
+				states[i / area.width][i % area.width] = (payload[HEADER_SIZE + i / 8] >>> (i % 8) & 1) != 0;
+			}
+		} else {
+			require(type == DeltaFrameEncoder.DELTA_FRAME, "Unknown frame type " + type);
+			require(previous.isPresent() && previous.get().area.equals(area), "Delta frame without a key frame of its area");
+			for (int y = 0; y < area.height; y++) {
+				states[y] = previous.get().states[y].clone();
+			}
+			final int count = in.getInt();
+			int index = -1;
+			for (int t = 0; t < count; t++) {
+				int gap = 0;
+				for (int shift = 0;; shift += 7) {
+					final int b = in.get();
+					gap |= (b & 0x7F) << shift;
+					if ((b & 0x80) == 0) {
+						break;
+					}
+				}
+				index += gap;
+				states[index / area.width][index % area.width] ^= true;
+			}
+			require(!in.hasRemaining(), "Delta frame longer than its " + count + " toggled cells");
+		}
+		return new Decoded(type, generation, mapDimension, area, states);
+	}
+
+	/*
+	 * Copies the states of a region of the map.
+	 */
+	private static boolean[][] region(final boolean[][] cells, final Rectangle area) {
+		final boolean[][] res = new boolean[area.height][];
+		for (int y = 0; y < area.height; y++) {
+			res[y] = Arrays.copyOfRange(cells[area.y + y], area.x, area.x + area.width);
+		}
+		return res;
+	}
+
+	/*
+	 * Builds the result of a generation, as the producer would publish it.
+	 */
+	private static GenerationResult result(final long generation, final boolean[][] cells) {
+		final Dimension mapDimension = new Dimension(cells[0].length, cells.length);
+		final PopulationAccumulator statistics = new PopulationAccumulator(mapDimension, REGION_SIZE);
+		long aliveCells = 0;
+		for (int y = 0; y < mapDimension.height; y++) {
+			for (int x = 0; x < mapDimension.width; x++) {
+				statistics.add(x, y, false, cells[y][x]);
+				if (cells[y][x]) {
+					aliveCells++;
+				}
+			}
+		}
+		final BitSet tiles = new BitSet();
+		tiles.set(0, ((mapDimension.width + REGION_SIZE - 1) / REGION_SIZE)
+				* ((mapDimension.height + REGION_SIZE - 1) / REGION_SIZE));
+		final DensityPyramid density = new DensityPyramid(mapDimension);
+		density.update(cells, tiles, REGION_SIZE);
+		return new GenerationResult(generation, PackedStates.of(cells, StateRepresentation.BIT_PACKED, aliveCells),
+				statistics.toStatistics(generation), 0, -1, density.snapshot());
+	}
+
+	/*
+	 * Fails the check with the specified message if the condition does not hold.
+	 */
+	private static void require(final boolean condition, final String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	/*
+	 * A frame received from the server.
+	 */
+	private static final class Frame {
+
+		private final int opcode;
+		private final byte[] payload;
+		private final int lengthForm;
+
+		Frame(final int opcode, final byte[] payload, final int lengthForm) {
+			this.opcode = opcode;
+			this.payload = payload;
+			this.lengthForm = lengthForm;
+		}
+
+	}
+
+	/*
+	 * A decoded frame of generation.
+	 */
+	private static final class Decoded {
+
+		private final byte type;
+		private final long generation;
+		private final Dimension mapDimension;
+		private final Rectangle area;
+		private final boolean[][] states;
+
+		Decoded(final byte type, final long generation, final Dimension mapDimension, final Rectangle area,
+				final boolean[][] states) {
+			this.type = type;
+			this.generation = generation;
+			this.mapDimension = mapDimension;
+			this.area = area;
+			this.states = states;
+		}
+
+	}
+
+}
@@ -0,0 +1,237 @@
+package model;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class represents a read-only view of a published generation of the cell map.
+ * It does not copy the states: all the snapshots of a generation share the same
+ * immutable buffer, which is kept alive until every snapshot is closed, while the
+ * model keeps computing the following generations on its own arrays.
+ * A snapshot must be closed once it is no longer needed (e.g. with try-with-resources);
+ * it can be read by several threads until then.
+ *
+ */
+public final class CellMapSnapshot implements AutoCloseable {
+
+	/**
+	 * This interface represents an operation applied to the alive cells of a region.
+	 */
+	@FunctionalInterface
+	public interface CellVisitor {
+
+		/**
+		 * Visits an alive cell.
+		 *
+		 * @param x
+		 * 		the column of the cell
+		 * @param y
+		 * 		the row of the cell
+		 */
+		void visit(int x, int y);
+
+	}
+
+	private final GenerationBuffer buffer;
+	private final AtomicBoolean closed;
+
+
+	/*
+	 * Constructs a snapshot on a buffer already retained for it.
+	 */
+	CellMapSnapshot(final GenerationBuffer buffer) {
+		this.buffer = buffer;
+		this.closed = new AtomicBoolean();
+	}
+
+	/*
+	 * Checks that the snapshot is still open and returns its states.
+	 */
+	private boolean[] cells() {
+		if (this.closed.get()) {
+			throw new IllegalStateException("Snapshot is closed");
+		}
+		return this.buffer.getCells();
+	}
+
+	/*
+	 * Checks that a region lies inside the cell map.
+	 */
+	private void checkRegion(final Rectangle region) {
+		Objects.requireNonNull(region);
+		if (region.x < 0 || region.y < 0 || region.width < 0 || region.height < 0
+				|| region.x + region.width > this.buffer.getWidth() || region.y + region.height > this.buffer.getHeight()) {
+			throw new IllegalArgumentException("Region must lie inside the cell map");
+		}
+	}
+
+	/**
+	 * @return the number of the generation of the snapshot.
+	 */
+	public long getGeneration() {
+		return this.buffer.getGeneration();
+	}
+
+	/**
+	 * @return the dimension (width and height) of the cell map.
+	 */
+	public Dimension getCellMapDimension() {
+		return new Dimension(this.buffer.getWidth(), this.buffer.getHeight());
+	}
+
+	/**
+	 * @return the smallest rectangle containing the alive cells, empty if there are no alive cells.
+	 */
+	public Optional<Rectangle> getLiveBox() {
+		if (this.buffer.getMaxX() < this.buffer.getMinX()) {
+			return Optional.empty();
+		}
+		return Optional.of(new Rectangle(this.buffer.getMinX(), this.buffer.getMinY(),
+				this.buffer.getMaxX() - this.buffer.getMinX() + 1, this.buffer.getMaxY() - this.buffer.getMinY() + 1));
+	}
+
+	/**
+	 * @param x
+	 * 		the column of the cell
+	 * @param y
+	 * 		the row of the cell
+	 * @return the state of the cell.
+	 */
+	public boolean getCell(final int x, final int y) {
+		if (x < 0 || x >= this.buffer.getWidth() || y < 0 || y >= this.buffer.getHeight()) {
+			throw new IllegalArgumentException("Cell (" + x + ", " + y + ") is outside the cell map");
+		}
+		return cells()[y * this.buffer.getWidth() + x];
+	}
+
+	/**
+	 * Applies an operation to every alive cell of a region, row by row.
+	 * Only the part of the region inside the bounding box of the alive cells is scanned.
+	 *
+	 * @param region
+	 * 		the region to visit, inside the cell map
+	 * @param visitor
+	 * 		the operation to apply
+	 */
+	public void forEachAliveCell(final Rectangle region, final CellVisitor visitor) {
+		checkRegion(region);
+		final boolean[] cells = cells();
+		final int width = this.buffer.getWidth();
+		final int x1 = Math.min(region.x + region.width - 1, this.buffer.getMaxX());
+		final int y1 = Math.min(region.y + region.height - 1, this.buffer.getMaxY());
+		for (int i = Math.max(region.y, this.buffer.getMinY()); i <= y1; i++) {
+			for (int j = Math.max(region.x, this.buffer.getMinX()); j <= x1; j++) {
+				if (cells[i * width + j]) {
+					visitor.visit(j, i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Iterates over the alive cells of a region, row by row.
+	 *
+	 * @param region
+	 * 		the region to iterate, inside the cell map
+	 * @return an iterator over the positions of the alive cells.
+	 */
+	public Iterator<Point> aliveCells(final Rectangle region) {
+		checkRegion(region);
+		final boolean[] cells = cells();
+		final int width = this.buffer.getWidth();
+		final int x0 = Math.max(region.x, this.buffer.getMinX());
+		final int x1 = Math.min(region.x + region.width - 1, this.buffer.getMaxX());
+		final int y1 = Math.min(region.y + region.height - 1, this.buffer.getMaxY());
+		return new Iterator<Point>() {
+			private int x = x0;
+			private int y = Math.max(region.y, buffer.getMinY());
+
+			/*
+			 * Moves to the next alive cell, if any.
+			 */
+			private boolean advance() {
+				for (; y <= y1; y++, x = x0) {
+					for (; x <= x1; x++) {
+						if (cells[y * width + x]) {
+							return true;
+						}
+					}
+				}
+				return false;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return advance();
+			}
+
+			@Override
+			public Point next() {
+				if (!advance()) {
+					throw new NoSuchElementException();
+				}
+				return new Point(x++, y);
+			}
+		};
+	}
+
+	/**
+	 * Copies the states of a region into a flat buffer supplied by the caller:
+	 * the cell (x, y) of the region goes to target[offset + (y - region.y) * stride + (x - region.x)].
+	 *
+	 * @param region
+	 * 		the region to copy, inside the cell map
+	 * @param target
+	 * 		the buffer to fill
+	 * @param offset
+	 * 		the position of the first cell of the region in the buffer
+	 * @param stride
+	 * 		the distance between two rows in the buffer (at least the width of the region)
+	 */
+	public void copyRegion(final Rectangle region, final boolean[] target, final int offset, final int stride) {
+		checkRegion(region);
+		if (stride < region.width) {
+			throw new IllegalArgumentException("Stride must not be less than the width of the region");
+		}
+		final boolean[] cells = cells();
+		final int width = this.buffer.getWidth();
+		for (int i = 0; i < region.height; i++) {
+			System.arraycopy(cells, (region.y + i) * width + region.x, target, offset + i * stride, region.width);
+		}
+	}
+
+	/**
+	 * Copies the states of a region into rows supplied by the caller:
+	 * the cell (x, y) of the region goes to target[y - region.y][x - region.x].
+	 *
+	 * @param region
+	 * 		the region to copy, inside the cell map
+	 * @param target
+	 * 		the rows to fill, at least as many and as long as the ones of the region
+	 */
+	public void copyRegion(final Rectangle region, final boolean[][] target) {
+		checkRegion(region);
+		final boolean[] cells = cells();
+		final int width = this.buffer.getWidth();
+		for (int i = 0; i < region.height; i++) {
+			System.arraycopy(cells, (region.y + i) * width + region.x, target[i], 0, region.width);
+		}
+	}
+
+	/**
+	 * Releases the snapshot. It can be called more than once.
+	 */
+	@Override
+	public void close() {
+		if (this.closed.compareAndSet(false, true)) {
+			this.buffer.release();
+		}
+	}
+
+}
@@ -2,7 +2,10 @@ package model;
 
 import java.awt.Dimension;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * This interface handles a cell map for the Game Of Life.
@@ -14,6 +17,16 @@ public interface ConwayCellMap {
 	 * @return the dimension (width and height) of the cell map.
 	 */
 	Dimension getCellMapDimension();
+	
+	/**
+	 * @return the Life-like rule applied at each generation.
+	 */
+	LifeRule getRule();
+	
+	/**
+	 * @return the kernel computing the tiles of the cell map.
+	 */
+	TileKernelType getTileKernelType();
 
 	/**
 	 * @return current generation number.
@@ -26,9 +39,81 @@ public interface ConwayCellMap {
 	boolean[][] getCellMapStates();
 	
 	/**
-	 * @return the cells to evaluate for current generation completion.
+	 * @return the smallest rectangle containing the alive cells of the current
+	 * generation, empty if there are no alive cells.
+	 */
+	Optional<Rectangle> getLiveBox();
+	
+	/**
+	 * Copies the smallest rectangle containing the alive cells of the current
+	 * generation into the specified one, allocating nothing.
+	 * 
+	 * @param box
+	 * 		the rectangle to set, left unchanged if there are no alive cells
+	 * @return false if there are no alive cells.
+	 */
+	boolean getLiveBox(Rectangle box);
+	
+	/**
+	 * Copies the states that a region will have in the next generation, while it is being computed:
+	 * the cell (x, y) goes to target[targetY + y - region.y][targetX + x - region.x].
+	 * The cells of the region to evaluate must have been computed already.
+	 * 
+	 * @param region
+	 * 		the region to copy, inside the cell map
+	 * @param target
+	 * 		the rows to fill
+	 * @param targetX
+	 * 		the column of the target where the region starts
+	 * @param targetY
+	 * 		the row of the target where the region starts
+	 */
+	void copyNextRegion(Rectangle region, boolean[][] target, int targetX, int targetY);
+	
+	/**
+	 * Acquires a read-only view of the last published generation, which stays
+	 * consistent while the following generations are computed.
+	 * It never waits for the computation and does not copy the states.
+	 * 
+	 * @return the snapshot, which must be closed once it is no longer needed.
+	 */
+	CellMapSnapshot acquireSnapshot();
+	
+	/**
+	 * @param x
+	 * 		the column of the cell
+	 * @param y
+	 * 		the row of the cell
+	 * @return the state (alive or death) of the cell in current generation.
+	 */
+	boolean getCellState(int x, int y);
+	
+	/**
+	 * @return the side (in cells) of the square tiles used to track changes.
+	 */
+	int getTileSize();
+	
+	/**
+	 * @return the row-major indexes of the tiles containing at least one cell
+	 * that changed since the previous published generation (in the last transition,
+	 * unless some generations have not been published). It is valid until the next generation.
+	 */
+	BitSet getChangedTiles();
+	
+	/**
+	 * @return the cells to evaluate for current generation completion, sorted by row:
+	 * after a single generation transition, only the cells around the ones which
+	 * changed state, since the others cannot change. The list and its points are
+	 * reused by the following generations, so they are valid until the next one.
+	 * After an unpublished generation, the list is calculated by the first call.
 	 */
 	List<Point> getCellsToEvaluate();
+	
+	/**
+	 * @return the time spent calculating the cells to evaluate during the last transition
+	 * to a new generation, in nanoseconds.
+	 */
+	long getCellsToEvaluateTime();
 
 	/**
 	 * Applies game of life rules to the specified list of cells.
@@ -39,17 +124,119 @@ public interface ConwayCellMap {
 	 */
 	List<Boolean> computeCells(final List<Point> cells);
 	
+	/**
+	 * Applies game of life rules to the specified list of cells,
+	 * accounting for each cell which changes state in the population statistics
+	 * (see {@link PopulationAccumulator#addChange}).
+	 * 
+	 * @param cells
+	 * 		the cells to compute
+	 * @param statistics
+	 * 		the accumulator of the population statistics of the calling worker
+	 * @return the next status of the cells after the computation.
+	 */
+	List<Boolean> computeCells(List<Point> cells, PopulationAccumulator statistics);
+	
+	/**
+	 * Applies game of life rules to a range of the specified list of cells,
+	 * accounting for each cell which changes state in the population statistics,
+	 * without collecting their next states: it allocates nothing.
+	 * 
+	 * @param cells
+	 * 		the cells to compute
+	 * @param from
+	 * 		the index of the first cell to compute
+	 * @param to
+	 * 		the index after the last cell to compute
+	 * @param statistics
+	 * 		the accumulator of the population statistics of the calling worker
+	 */
+	void computeCells(List<Point> cells, int from, int to, PopulationAccumulator statistics);
+	
+	/**
+	 * Advances a rectangular tile of cells by several generations at once,
+	 * storing its states as the ones of the next step.
+	 * Tiles covering the whole map must be computed before going to the next step
+	 * with {@link #nextGeneration(int)} and the same number of generations.
+	 * 
+	 * @param x
+	 * 		the first column of the tile
+	 * @param y
+	 * 		the first row of the tile
+	 * @param width
+	 * 		the width of the tile
+	 * @param height
+	 * 		the height of the tile
+	 * @param generations
+	 * 		the number of generations to compute
+	 * @param statistics
+	 * 		the accumulator of the population statistics of the calling worker
+	 * @return the number of alive cells in the tile after the generations.
+	 */
+	long computeTile(int x, int y, int width, int height, int generations, PopulationAccumulator statistics);
+	
 	/**
 	 * @return the number of computed cells on the total expected for the
 	 * current generation.
 	 */
 	double getPercentageCompletion();
 	
+	/**
+	 * @return the total number of cells computed since the creation
+	 * (or the last reset) of the cell map.
+	 */
+	long getComputedCells();
+	
+	/**
+	 * Discards the results of the cells computed so far for the current generation,
+	 * so that it can be computed again from scratch after an abandoned computation.
+	 * Its cost is proportional to the cells changed before the abandon.
+	 */
+	void rollbackGeneration();
+	
 	/**
 	 * Goes to the next generation of the game.
 	 */
 	void nextGeneration();
 	
+	/**
+	 * Goes to the next step of the game, after computing the specified number of generations
+	 * (intermediate generations are not stored).
+	 * 
+	 * @param generations
+	 * 		the number of generations computed in the step
+	 */
+	void nextGeneration(int generations);
+	
+	/**
+	 * Goes to the next step of the game, as {@link #nextGeneration(int)}, optionally
+	 * without publishing the new generation for the snapshots: an unpublished generation
+	 * costs no copy of the states, and the snapshots keep showing the last published one.
+	 * Its cells to evaluate are not listed either, until they are requested.
+	 * 
+	 * @param generations
+	 * 		the number of generations computed in the step
+	 * @param publish
+	 * 		whether to publish the new generation
+	 */
+	void nextGeneration(int generations, boolean publish);
+	
+	/**
+	 * Publishes the current generation for the snapshots, after some unpublished ones.
+	 */
+	void publishGeneration();
+	
+	/**
+	 * Replaces the current generation with the specified states, computed elsewhere.
+	 * Any result computed for the next generation is discarded.
+	 * 
+	 * @param states
+	 * 		the states of the cells, which must have the dimension of the cell map
+	 * @param generationNumber
+	 * 		the number of the generation
+	 */
+	void loadGeneration(boolean[][] states, long generationNumber);
+	
 	/**
 	 * Resets all data.
 	 */
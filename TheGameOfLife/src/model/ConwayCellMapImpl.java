@@ -2,11 +2,19 @@ package model;
 
 import java.awt.Dimension;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This class represents the Model, as it contains all game of life elements.
@@ -16,18 +24,71 @@ import java.util.concurrent.atomic.AtomicIntegerArray;
 public class ConwayCellMapImpl implements ConwayCellMap {
 	
 	private final Dimension mapDimension;
+	private final LifeRule rule;
 	private long generation;
 	
-	private static final int MIN_NEIGHBORS = 0;
-	private static final int MAX_NEIGHBORS = 8;
+	private static final int TILE_SIZE = 64;
+	/**
+	 * The maximum number of cells of a cell map, whose states are indexed by an int
+	 * (the largest array length accepted by the virtual machines).
+	 */
+	public static final long MAX_CELLS = Integer.MAX_VALUE - 8;
+	// Released snapshot buffers kept for reuse
+	private static final int SNAPSHOT_POOL_SIZE = 4;
+	// Approximate sizes of a point (header and coordinates) and of a compressed reference, in bytes
+	private static final long POINT_BYTES = 24;
+	private static final long REFERENCE_BYTES = 4;
 	
+	// Current and next buffers, swapped at each transition
 	private boolean[] cells;
 	private boolean[] nextCells;
-	private byte[] neighbors;
+	private AtomicIntegerArray neighbors;
 	private AtomicIntegerArray nextNeighbors;
+	// Guards the random initialization of the next states
+	private final Object initLock;
+	
+	private final List<Point> cellsToEvaluate;
+	// Points of the cells to evaluate, reused by the following generations
+	private final List<Point> points;
+	// Whether the cells to evaluate have been listed for the current generation (unpublished ones list them on use)
+	private boolean cellsToEvaluateListed;
+	
+	// Indexes of the cells changed by the transition being computed, each logged once
+	private final int[] changedCells;
+	private final AtomicInteger changesNumber;
+	// Cells already added to the candidates of the new generation (cleared after use)
+	private final BitSet candidateMarks;
+	private int[] candidateIndexes;
+	// Number of candidates of each row, then the next position of each row in the list (all zero between uses)
+	private final int[] rowPositions;
+	
+	// Bounding box of the alive cells of the current generation (empty if max < min)
+	private int liveMinX, liveMinY, liveMaxX, liveMaxY;
+	// Whether the next states may have been written outside the reach of a transition
+	private boolean fullyChanged;
 	
-	private List<Point> cellsToEvaluate;
-	private long computedCells;
+	// Striped counter of the computed cells, updated once per computed list
+	private final LongAdder computedCells;
+	// Values published for the progress sampler
+	private volatile long generationStartCells;
+	private volatile int cellsToEvaluateNumber;
+	private volatile int stepGenerations;
+	// Time spent calculating the cells to evaluate in the last transition
+	private long cellsToEvaluateTime;
+	
+	// Kernel of each thread computing tiles
+	private final TileKernelType kernelType;
+	private final ThreadLocal<TileKernel> kernels;
+	
+	// Buffer of the last published generation, and released buffers ready to be rewritten
+	private volatile GenerationBuffer published;
+	private final Queue<GenerationBuffer> snapshotPool;
+	
+	private final int tilesPerRow;
+	private boolean[] nextChangedTiles;
+	private final BitSet changedTiles;
+	// Whether the changed tiles went out with a published generation, so that the next transition restarts them
+	private boolean changedTilesPublished;
 	
 	
 	/**
@@ -39,6 +100,38 @@ public class ConwayCellMapImpl implements ConwayCellMap {
 	 * 		the height of the cell map
 	 */
 	public ConwayCellMapImpl(final int width, final int height) {
+		this(width, height, LifeRule.CONWAY);
+	}
+	
+	/**
+	 * Life-like cell map constructor.
+	 * 
+	 * @param width
+	 * 		the width of the cell map
+	 * @param height
+	 * 		the height of the cell map
+	 * @param rule
+	 * 		the rule applied at each generation
+	 */
+	public ConwayCellMapImpl(final int width, final int height, final LifeRule rule) {
+		this(width, height, rule, TileKernelType.NEIGHBOR_COUNT);
+	}
+	
+	/**
+	 * Life-like cell map constructor, with the kernel computing its tiles.
+	 * 
+	 * @param width
+	 * 		the width of the cell map
+	 * @param height
+	 * 		the height of the cell map
+	 * @param rule
+	 * 		the rule applied at each generation
+	 * @param kernelType
+	 * 		the kernel computing the tiles
+	 */
+	public ConwayCellMapImpl(final int width, final int height, final LifeRule rule, final TileKernelType kernelType) {
+		Objects.requireNonNull(rule);
+		Objects.requireNonNull(kernelType);
 		// Checks cell map dimension
 		if (width < 1) {
 			throw new IllegalArgumentException("Cell map width must be positive");
@@ -46,10 +139,16 @@ public class ConwayCellMapImpl implements ConwayCellMap {
 		if (height < 1) {
 			throw new IllegalArgumentException("Cell map height must be positive");
 		}
+		if ((long) width * height > MAX_CELLS) {
+			throw new IllegalArgumentException("Cell map cannot have more than " + MAX_CELLS + " cells");
+		}
 		
 		// Sets cell map dimension
 		this.mapDimension = new Dimension(width, height);
 		
+		// Sets the rule of the game
+		this.rule = rule;
+		
 		final int cellsNumber = width * height;
 		
 		// Creates the cell map
@@ -59,17 +158,98 @@ public class ConwayCellMapImpl implements ConwayCellMap {
 		this.nextCells = new boolean[cellsNumber];
 		
 		// Creates the structure for on-neighbors memorization and its unaltered version
-		this.neighbors = new byte[cellsNumber];
+		this.neighbors = new AtomicIntegerArray(cellsNumber);
 		this.nextNeighbors = new AtomicIntegerArray(cellsNumber);
+		this.initLock = new Object();
 		
 		// Creates the list with the cells to evaluate for the current generation
 		this.cellsToEvaluate = new ArrayList<>();
+		this.points = new ArrayList<>();
+		
+		// Creates the structures for the cells changed by a transition and their surroundings
+		this.changedCells = new int[cellsNumber];
+		this.changesNumber = new AtomicInteger();
+		this.candidateMarks = new BitSet(cellsNumber);
+		this.candidateIndexes = new int[0];
+		this.rowPositions = new int[height];
+		
+		// No alive cells yet
+		setLiveBoxEmpty();
+		this.fullyChanged = false;
+		
+		// Creates the structures for changed tiles tracking
+		this.tilesPerRow = (width + TILE_SIZE - 1) / TILE_SIZE;
+		this.nextChangedTiles = new boolean[getTilesNumber(width, height)];
+		this.changedTiles = new BitSet(this.nextChangedTiles.length);
+		this.changedTilesPublished = true;
 				
 		// Initializes number of generations
 		this.generation = 0;
 		
 		// Initializes number of computed cells
-		this.computedCells = 0;
+		this.computedCells = new LongAdder();
+		this.generationStartCells = 0;
+		this.cellsToEvaluateNumber = 0;
+		this.cellsToEvaluateListed = true;
+		this.stepGenerations = 1;
+		
+		this.kernelType = kernelType;
+		this.kernels = ThreadLocal.withInitial(kernelType.newFactory(rule));
+		
+		// Publishes the empty generation
+		// Bounded, so that giving a buffer back allocates no node (a buffer beyond the bound is dropped)
+		this.snapshotPool = new ArrayBlockingQueue<>(SNAPSHOT_POOL_SIZE);
+		publishGeneration();
+	}
+	
+	/**
+	 * Estimates the memory needed by a cell map, before creating it.
+	 * 
+	 * @param width
+	 * 		the width of the cell map
+	 * @param height
+	 * 		the height of the cell map
+	 * @return the approximate size of the cell map, in bytes.
+	 */
+	public static long estimateBytes(final int width, final int height) {
+		final long cellsNumber = (long) width * height;
+		// Current and next states and neighbor counts, change log, candidate marks and indexes, row positions
+		final long buffers = 2 * cellsNumber + 2 * Integer.BYTES * cellsNumber + Integer.BYTES * cellsNumber
+				+ cellsNumber / Byte.SIZE + Integer.BYTES * cellsNumber + Integer.BYTES * height;
+		// Cells to evaluate and their reused points: in a dense soup, nearly every cell is a candidate
+		final long candidates = estimateListBytes(cellsNumber, true) + estimateListBytes(cellsNumber, false);
+		// Published generation and the one being written, while a snapshot is still open
+		final long snapshots = 2 * cellsNumber;
+		return buffers + candidates + snapshots;
+	}
+	
+	/**
+	 * Estimates the memory of a list of points, grown one point at a time.
+	 * 
+	 * @param size
+	 * 		the number of points of the list
+	 * @param withPoints
+	 * 		true if the list holds the only references to its points, false if it
+	 * shares them with another list
+	 * @return the approximate size of the list, in bytes.
+	 */
+	public static long estimateListBytes(final long size, final boolean withPoints) {
+		// The capacity of an array list is up to half its size larger
+		final long references = REFERENCE_BYTES * (size + size / 2);
+		return withPoints ? references + POINT_BYTES * size : references;
+	}
+	
+	/**
+	 * Gets the number of tiles of a cell map.
+	 * 
+	 * @param width
+	 * 		the width of the cell map
+	 * @param height
+	 * 		the height of the cell map
+	 * @return the number of tiles covering the cell map.
+	 */
+	public static int getTilesNumber(final int width, final int height) {
+		return ((width + TILE_SIZE - 1) / TILE_SIZE) * ((height + TILE_SIZE - 1) / TILE_SIZE);
 	}
 	
 	@Override
@@ -77,6 +257,16 @@ public class ConwayCellMapImpl implements ConwayCellMap {
 		return new Dimension(this.mapDimension);
 	}
 	
+	@Override
+	public LifeRule getRule() {
+		return this.rule;
+	}
+	
+	@Override
+	public TileKernelType getTileKernelType() {
+		return this.kernelType;
+	}
+	
 	@Override
 	public long getGenerationNumber() {
 		return this.generation;
@@ -89,43 +279,207 @@ public class ConwayCellMapImpl implements ConwayCellMap {
 		return y * this.mapDimension.width + x;
 	}
 	
+	/*
+	 * Empties the bounding box of the alive cells.
+	 */
+	private void setLiveBoxEmpty() {
+		this.liveMinX = this.mapDimension.width;
+		this.liveMinY = this.mapDimension.height;
+		this.liveMaxX = -1;
+		this.liveMaxY = -1;
+	}
+	
+	/*
+	 * Checks if the current generation has alive cells.
+	 */
+	private boolean isLiveBoxEmpty() {
+		return this.liveMaxX < this.liveMinX;
+	}
+	
+	@Override
+	public Optional<Rectangle> getLiveBox() {
+		if (isLiveBoxEmpty()) {
+			return Optional.empty();
+		}
+		return Optional.of(new Rectangle(this.liveMinX, this.liveMinY,
+				this.liveMaxX - this.liveMinX + 1, this.liveMaxY - this.liveMinY + 1));
+	}
+	
+	@Override
+	public boolean getLiveBox(final Rectangle box) {
+		if (isLiveBoxEmpty()) {
+			return false;
+		}
+		box.setBounds(this.liveMinX, this.liveMinY, this.liveMaxX - this.liveMinX + 1, this.liveMaxY - this.liveMinY + 1);
+		return true;
+	}
+	
 	@Override
 	public boolean[][] getCellMapStates() {
-		final int height = this.mapDimension.height;
-		final int width = this.mapDimension.width;
-		final boolean[][] res = new boolean[height][width];
-		for (int i = 0; i < height; i++) {
-			for (int j = 0; j < width; j++) {
-				res[i][j] = this.cells[encode(j, i)];
-			}
+		final boolean[][] res = new boolean[this.mapDimension.height][this.mapDimension.width];
+		// Reads the last published generation, so that any thread gets consistent states
+		try (CellMapSnapshot snapshot = acquireSnapshot()) {
+			// Cells outside the live box are all off, as in the new array
+			snapshot.getLiveBox().ifPresent(box -> {
+				for (int i = box.y; i < box.y + box.height; i++) {
+					snapshot.copyRegion(new Rectangle(box.x, i, box.width, 1), res[i], box.x, box.width);
+				}
+			});
 		}
 		return res;
 	}
 	
+	@Override
+	public CellMapSnapshot acquireSnapshot() {
+		while (true) {
+			final GenerationBuffer buffer = this.published;
+			// Fails only if the buffer has been released meanwhile: a newer one has been published
+			if (buffer.retain()) {
+				return new CellMapSnapshot(buffer);
+			}
+		}
+	}
+	
+	/*
+	 * Publishes the current states for the snapshots, writing them into a released
+	 * buffer (or a new one if every buffer is still in use), so that readers never
+	 * wait and never see a buffer being written.
+	 */
+	private void publishSnapshot() {
+		GenerationBuffer buffer = this.snapshotPool.poll();
+		if (buffer == null) {
+			buffer = new GenerationBuffer(this.mapDimension.width, this.mapDimension.height, this.snapshotPool);
+		}
+		buffer.write(this.generation, this.cells, this.liveMinX, this.liveMinY, this.liveMaxX, this.liveMaxY);
+		final GenerationBuffer previous = this.published;
+		this.published = buffer;
+		if (previous != null) {
+			previous.release();
+		}
+	}
+	
+	/*
+	 * Resizes the list of the cells to evaluate, filling it with the points
+	 * of the previous generations (new ones only when it grows beyond them).
+	 */
+	private void resizeCellsToEvaluate(final int size) {
+		this.cellsToEvaluate.clear();
+		while (this.points.size() < size) {
+			this.points.add(new Point());
+		}
+		for (int i = 0; i < size; i++) {
+			this.cellsToEvaluate.add(this.points.get(i));
+		}
+	}
+	
+	/*
+	 * Appends a cell to the cells to evaluate, reusing a point of the previous generations.
+	 */
+	private void addCellToEvaluate(final int x, final int y) {
+		final int position = this.cellsToEvaluate.size();
+		if (position == this.points.size()) {
+			this.points.add(new Point());
+		}
+		final Point p = this.points.get(position);
+		p.x = x;
+		p.y = y;
+		this.cellsToEvaluate.add(p);
+	}
+	
 	/*
 	 * Calculates the cells to evaluate for the current generation
-	 * (it excludes off-cells with no alive neighbor).
+	 * (it excludes off-cells with no alive neighbor), if requested, and the bounding box
+	 * of the alive cells, scanning only the specified region (bounds included),
+	 * outside of which every cell is off and has no alive neighbor.
 	 */
-	private void calculatesCellsToEvaluate() {
+	private void calculatesCellsToEvaluate(final int x0, final int y0, final int x1, final int y1,
+			final boolean listCells) {
 		this.cellsToEvaluate.clear();
-		final int height = this.mapDimension.height;
-		final int width = this.mapDimension.width;
-		for (int i = 0; i < height; i++) {
-			for (int j = 0; j < width; j++) {
+		setLiveBoxEmpty();
+		for (int i = y0; i <= y1; i++) {
+			for (int j = x0; j <= x1; j++) {
 				final int cellIndex = encode(j, i);
 				final boolean state = this.cells[cellIndex];
-				if (state || (!state && this.neighbors[cellIndex] > 0)) {
-					this.cellsToEvaluate.add(new Point(j, i));
+				if (listCells && (state || this.neighbors.get(cellIndex) > 0)) {
+					addCellToEvaluate(j, i);
+				}
+				if (state) {
+					this.liveMinX = Math.min(this.liveMinX, j);
+					this.liveMaxX = Math.max(this.liveMaxX, j);
+					this.liveMinY = Math.min(this.liveMinY, i);
+					this.liveMaxY = i;
 				}
 			}
 		}
 	}
 	
+	@Override
+	public void copyNextRegion(final Rectangle region, final boolean[][] target, final int targetX, final int targetY) {
+		if (region.width < 0 || region.height < 0 || (!region.isEmpty() && (!isInsideCellMap(region.x, region.y)
+				|| !isInsideCellMap(region.x + region.width - 1, region.y + region.height - 1)))) {
+			throw new IllegalArgumentException("Region must lie inside the cell map");
+		}
+		// The next states of the computed cells are final, and the others keep their current state
+		for (int i = 0; i < region.height; i++) {
+			System.arraycopy(this.nextCells, encode(region.x, region.y + i), target[targetY + i], targetX, region.width);
+		}
+	}
+	
 	@Override
 	public List<Point> getCellsToEvaluate() {
+		if (!this.cellsToEvaluateListed) {
+			// Every candidate lies in the live box grown by one cell
+			final long start = System.nanoTime();
+			if (isLiveBoxEmpty()) {
+				this.cellsToEvaluate.clear();
+			} else {
+				calculatesCellsToEvaluate(Math.max(this.liveMinX - 1, 0), Math.max(this.liveMinY - 1, 0),
+						Math.min(this.liveMaxX + 1, this.mapDimension.width - 1),
+						Math.min(this.liveMaxY + 1, this.mapDimension.height - 1), true);
+			}
+			this.cellsToEvaluateTime += System.nanoTime() - start;
+			this.cellsToEvaluateNumber = this.cellsToEvaluate.size();
+			this.cellsToEvaluateListed = true;
+		}
 		return this.cellsToEvaluate;
 	}
 	
+	@Override
+	public long getCellsToEvaluateTime() {
+		return this.cellsToEvaluateTime;
+	}
+	
+	@Override
+	public boolean getCellState(final int x, final int y) {
+		return this.cells[encode(x, y)];
+	}
+	
+	@Override
+	public int getTileSize() {
+		return TILE_SIZE;
+	}
+	
+	@Override
+	public BitSet getChangedTiles() {
+		return this.changedTiles;
+	}
+	
+	/*
+	 * Marks the tile containing the specified cell as changed in the next generation.
+	 * Concurrent writers can only store true, so no synchronization is needed.
+	 */
+	private void markTileChanged(final int x, final int y) {
+		this.nextChangedTiles[(y / TILE_SIZE) * this.tilesPerRow + x / TILE_SIZE] = true;
+	}
+	
+	/*
+	 * Logs a cell changed in the next generation. A cell changes at most once
+	 * in a transition, so the log cannot overflow.
+	 */
+	private void logChange(final int cellIndex) {
+		this.changedCells[this.changesNumber.getAndIncrement()] = cellIndex;
+	}
+	
 	/*
 	* Check if a specified position is inside the cell map.
 	*/
@@ -143,13 +497,14 @@ public class ConwayCellMapImpl implements ConwayCellMap {
 		if (!state) {
 			// Turns on the cell
 			this.nextCells[cellIndex] = true;
-			// Increments the on-neighbor count for each neighbor
+			markTileChanged(x, y);
+			logChange(cellIndex);
+			// Increments the on-neighbor count for each neighbor, atomically since threads share borders
 			for (int i = y - 1; i <= y + 1; i++) {
 				for (int j = x - 1; j <= x + 1; j++) {
 					if (isInsideCellMap(j, i) && (i != y || j != x)) {
 						final int neighborIndex = encode(j, i);
-						this.nextNeighbors.set(neighborIndex,
-								Math.min(this.nextNeighbors.incrementAndGet(neighborIndex), MAX_NEIGHBORS));
+						this.nextNeighbors.incrementAndGet(neighborIndex);
 					}
 				}
 			}
@@ -166,13 +521,14 @@ public class ConwayCellMapImpl implements ConwayCellMap {
 		if (state) {
 			// Turns off the cell
 			this.nextCells[cellIndex] = false;
-			// Decrements the on-neighbor count for each neighbor
+			markTileChanged(x, y);
+			logChange(cellIndex);
+			// Decrements the on-neighbor count for each neighbor, atomically since threads share borders
 			for (int i = y - 1; i <= y + 1; i++) {
 				for (int j = x - 1; j <= x + 1; j++) {
 					if (isInsideCellMap(j, i) && (i != y || j != x)) {
 						final int neighborIndex = encode(j, i);
-						this.nextNeighbors.set(neighborIndex,
-								Math.max(this.nextNeighbors.decrementAndGet(neighborIndex), MIN_NEIGHBORS));
+						this.nextNeighbors.decrementAndGet(neighborIndex);
 					}
 				}
 			}
@@ -181,69 +537,478 @@ public class ConwayCellMapImpl implements ConwayCellMap {
 	
 	@Override
 	public List<Boolean> computeCells(final List<Point> cells) {
+		return computeCells(cells, Optional.empty());
+	}
+	
+	@Override
+	public List<Boolean> computeCells(final List<Point> cells, final PopulationAccumulator statistics) {
+		Objects.requireNonNull(statistics);
+		return computeCells(cells, Optional.of(statistics));
+	}
+	
+	@Override
+	public void computeCells(final List<Point> cells, final int from, final int to, final PopulationAccumulator statistics) {
+		Objects.requireNonNull(statistics);
+		if (from < 0 || to > cells.size() || from > to) {
+			throw new IllegalArgumentException("Range must lie inside the list of cells");
+		}
+		computeCells(cells, from, to, statistics, null);
+	}
+	
+	/*
+	 * Computes the cells, accounting for them in the statistics if present.
+	 */
+	private List<Boolean> computeCells(final List<Point> cells, final Optional<PopulationAccumulator> statistics) {
 		final List<Boolean> res = new ArrayList<>();
-		for (final Point p : cells) {        
+		computeCells(cells, 0, cells.size(), statistics.orElse(null), res);
+		return res;
+	}
+	
+	/*
+	 * Computes a range of the cells, accounting for them in the statistics and
+	 * collecting their next states in the list if they are not null.
+	 */
+	private void computeCells(final List<Point> cells, final int from, final int to,
+			final PopulationAccumulator accumulator, final List<Boolean> res) {
+		for (int c = from; c < to; c++) {
+			final Point p = cells.get(c);
 			final int cellIndex = encode(p.x, p.y);
 	  		final boolean state = this.cells[cellIndex];
-	  		boolean nextState = state;
-	  		byte onNeighborCount = this.neighbors[cellIndex];
-	  		if (state) {
-	  			if ((onNeighborCount < 2) || (onNeighborCount > 3)) {
+	  		// Looks up the next state in the compiled rule table
+	  		final boolean nextState = this.rule.nextState(state, this.neighbors.get(cellIndex));
+	  		if (nextState != state) {
+	  			if (nextState) {
+	  				setCellStateOn(p.x, p.y);
+	  			} else {
 	  				setCellStateOff(p.x, p.y);
-	  				nextState = false;
 	  			}
-	  		} else {
-	  			if (onNeighborCount == 3) {
-	  				setCellStateOn(p.x, p.y);
-	  				nextState = true;
+	  			if (accumulator != null) {
+	  				accumulator.addChange(p.x, p.y, nextState);
 	  			}
 	  		}
-	  		this.computedCells++;
-	  		res.add(nextState);
+	  		if (res != null) {
+	  			res.add(nextState);
+	  		}
 		}
-		return res;
+		this.computedCells.add(to - from);
+		if (this.stepGenerations != 1) {
+			this.stepGenerations = 1;
+		}
+	}
+	
+	@Override
+	public long computeTile(final int x, final int y, final int width, final int height, final int generations,
+			final PopulationAccumulator statistics) {
+		Objects.requireNonNull(statistics);
+		if (generations < 1) {
+			throw new IllegalArgumentException("At least one generation must be computed");
+		}
+		if (width < 1 || height < 1 || !isInsideCellMap(x, y) || !isInsideCellMap(x + width - 1, y + height - 1)) {
+			throw new IllegalArgumentException("Tile must be a non-empty region inside the cell map");
+		}
+		final TileKernel kernel = this.kernels.get();
+		kernel.advance(this.cells, this.mapDimension.width, this.mapDimension.height, x, y, width, height, generations);
+		long alive = 0;
+		int candidates = 0;
+		for (int i = y; i < y + height; i++) {
+			for (int j = x; j < x + width; j++) {
+				final int cellIndex = encode(j, i);
+				final boolean state = this.cells[cellIndex];
+				final boolean nextState = kernel.getState(j, i);
+				if (nextState != state) {
+					if (nextState) {
+						setCellStateOn(j, i);
+					} else {
+						setCellStateOff(j, i);
+					}
+				}
+				if (nextState) {
+					alive++;
+				}
+				statistics.add(j, i, state, nextState);
+				if (state || this.neighbors.get(cellIndex) > 0) {
+					candidates++;
+				}
+			}
+		}
+		// Counts the candidates of the first generation once for each computed generation
+		this.computedCells.add((long) candidates * generations);
+		if (this.stepGenerations != generations) {
+			this.stepGenerations = generations;
+		}
+		return alive;
 	}
 	
 	@Override
 	public double getPercentageCompletion() {
-		return (double) this.computedCells / (double) this.cellsToEvaluate.size();
+		final int total = this.cellsToEvaluateNumber;
+		if (total == 0) {
+			return 0;
+		}
+		final long computed = this.computedCells.sum() - this.generationStartCells;
+		return Math.max(0, Math.min(1, (double) computed / ((double) total * this.stepGenerations)));
+	}
+	
+	@Override
+	public long getComputedCells() {
+		return this.computedCells.sum();
+	}
+	
+	@Override
+	public void rollbackGeneration() {
+		final int width = this.mapDimension.width;
+		final int height = this.mapDimension.height;
+		for (int t = 0; t < this.nextChangedTiles.length; t++) {
+			if (this.nextChangedTiles[t]) {
+				final int x0 = (t % this.tilesPerRow) * TILE_SIZE;
+				final int y0 = (t / this.tilesPerRow) * TILE_SIZE;
+				final int x1 = Math.min(x0 + TILE_SIZE, width);
+				final int y1 = Math.min(y0 + TILE_SIZE, height);
+				// Restores the states of the cells of the tile
+				for (int i = y0; i < y1; i++) {
+					System.arraycopy(this.cells, encode(x0, i), this.nextCells, encode(x0, i), x1 - x0);
+				}
+				// Restores the neighbor counts of the tile and of its border
+				for (int i = Math.max(y0 - 1, 0); i < Math.min(y1 + 1, height); i++) {
+					for (int j = Math.max(x0 - 1, 0); j < Math.min(x1 + 1, width); j++) {
+						final int cellIndex = encode(j, i);
+						this.nextNeighbors.set(cellIndex, this.neighbors.get(cellIndex));
+					}
+				}
+				this.nextChangedTiles[t] = false;
+			}
+		}
+		this.changesNumber.set(0);
+		this.generationStartCells = this.computedCells.sum();
 	}
 	
 	@Override
 	public void nextGeneration() {
-		this.computedCells = 0;
-		// Sets current cell map states = next cell map states
-		System.arraycopy(this.nextCells, 0, this.cells, 0, this.cells.length);
-		// Sets current cell map neighbors = next cell map neighbors
-		for (int i = 0; i < this.nextNeighbors.length(); i++) {
-			this.neighbors[i] = (byte) this.nextNeighbors.get(i);
+		nextGeneration(1);
+	}
+	
+	@Override
+	public void nextGeneration(final int generations) {
+		nextGeneration(generations, true);
+	}
+	
+	@Override
+	public void nextGeneration(final int generations, final boolean publish) {
+		if (generations < 1) {
+			throw new IllegalArgumentException("At least one generation must be computed");
 		}
-		// Calculates cells to evaluate in the new generation
-		calculatesCellsToEvaluate();
+		publishNextCells(generations, publish);
 		// Increments generation number
-		this.generation++;
+		this.generation += generations;
+		if (publish) {
+			publishGeneration();
+		}
+	}
+	
+	@Override
+	public void publishGeneration() {
+		publishSnapshot();
+		this.changedTilesPublished = true;
+	}
+	
+	@Override
+	public void loadGeneration(final boolean[][] states, final long generationNumber) {
+		Objects.requireNonNull(states);
+		final int height = this.mapDimension.height;
+		final int width = this.mapDimension.width;
+		if (states.length != height || (height > 0 && states[0].length != width)) {
+			throw new IllegalArgumentException("States must have the dimension of the cell map");
+		}
+		rollbackGeneration();
+		this.fullyChanged = true;
+		// Applies the differences as the results of a transition
+		for (int i = 0; i < height; i++) {
+			for (int j = 0; j < width; j++) {
+				if (states[i][j] != this.cells[encode(j, i)]) {
+					if (states[i][j]) {
+						setCellStateOn(j, i);
+					} else {
+						setCellStateOff(j, i);
+					}
+				}
+			}
+		}
+		publishNextCells(0, true);
+		this.generation = generationNumber;
+		publishGeneration();
+	}
+	
+	/*
+	 * Makes the next states the current ones by swapping the buffers, then brings
+	 * the new next buffer (which holds the previous generation) up to date by replaying
+	 * the logged changes, publishes the changed tiles and calculates the cells to evaluate
+	 * (if requested, otherwise only the live box, and they are listed on use).
+	 * After a single generation, only the surroundings of the logged changes are scanned.
+	 * Otherwise, a transition of some generations changes states at most that many cells
+	 * away from the live box, and neighbor counts one cell further: only this region is
+	 * scanned, unless states have been written anywhere.
+	 */
+	private void publishNextCells(final int generations, final boolean listCells) {
+		this.cellsToEvaluateNumber = 0;
+		final boolean[] previousCells = this.cells;
+		this.cells = this.nextCells;
+		this.nextCells = previousCells;
+		final AtomicIntegerArray previousNeighbors = this.neighbors;
+		this.neighbors = this.nextNeighbors;
+		this.nextNeighbors = previousNeighbors;
+		replayChanges();
+		final long start = System.nanoTime();
+		if (generations == 1 && !this.fullyChanged) {
+			publishChanges(listCells);
+		} else {
+			publishRegion(generations, listCells);
+		}
+		this.cellsToEvaluateTime = System.nanoTime() - start;
+		this.fullyChanged = false;
+		this.changesNumber.set(0);
+		// Publishes the tiles changed by the transition, added to the ones of the unpublished generations
+		if (this.changedTilesPublished) {
+			this.changedTiles.clear();
+			this.changedTilesPublished = false;
+		}
+		for (int i = 0; i < this.nextChangedTiles.length; i++) {
+			if (this.nextChangedTiles[i]) {
+				this.changedTiles.set(i);
+			}
+		}
+		Arrays.fill(this.nextChangedTiles, false);
+		this.generationStartCells = this.computedCells.sum();
+		this.cellsToEvaluateListed = listCells;
+		// Until they are listed, the progress counts the cells around the live box, which bound them
+		this.cellsToEvaluateNumber = listCells ? this.cellsToEvaluate.size() : isLiveBoxEmpty() ? 0
+				: (Math.min(this.liveMaxX + 1, this.mapDimension.width - 1) - Math.max(this.liveMinX - 1, 0) + 1)
+				* (Math.min(this.liveMaxY + 1, this.mapDimension.height - 1) - Math.max(this.liveMinY - 1, 0) + 1);
+	}
+	
+	/*
+	 * Scans the region reachable by the transition to calculate the cells to evaluate, if requested,
+	 * and the live box.
+	 */
+	private void publishRegion(final int generations, final boolean listCells) {
+		final int width = this.mapDimension.width;
+		final int height = this.mapDimension.height;
+		final int x0, y0, x1, y1;
+		if (this.fullyChanged) {
+			x0 = 0;
+			y0 = 0;
+			x1 = width - 1;
+			y1 = height - 1;
+		} else if (isLiveBoxEmpty()) {
+			// Nothing can be born without alive neighbors
+			x0 = 0;
+			y0 = 0;
+			x1 = -1;
+			y1 = -1;
+		} else {
+			x0 = Math.max(this.liveMinX - generations - 1, 0);
+			y0 = Math.max(this.liveMinY - generations - 1, 0);
+			x1 = Math.min(this.liveMaxX + generations + 1, width - 1);
+			y1 = Math.min(this.liveMaxY + generations + 1, height - 1);
+		}
+		// Calculates cells to evaluate in the new generation
+		calculatesCellsToEvaluate(x0, y0, x1, y1, listCells);
+	}
+	
+	/*
+	 * Copies the states of the changed cells, and the neighbor counts around them,
+	 * into the next buffers, which are then equal to the current ones.
+	 */
+	private void replayChanges() {
+		final int width = this.mapDimension.width;
+		final int changes = this.changesNumber.get();
+		for (int c = 0; c < changes; c++) {
+			final int cellIndex = this.changedCells[c];
+			final int x = cellIndex % width;
+			final int y = cellIndex / width;
+			this.nextCells[cellIndex] = this.cells[cellIndex];
+			for (int i = y - 1; i <= y + 1; i++) {
+				for (int j = x - 1; j <= x + 1; j++) {
+					if (isInsideCellMap(j, i)) {
+						final int neighborIndex = encode(j, i);
+						this.nextNeighbors.set(neighborIndex, this.neighbors.get(neighborIndex));
+					}
+				}
+			}
+		}
+	}
+	
+	/*
+	 * Updates the bounding box of the alive cells with the changed cells, then collects
+	 * as cells to evaluate (if requested) the ones whose neighborhood changed: the others
+	 * cannot change in the new generation.
+	 * Its cost is proportional to the number of changes, not to the population.
+	 */
+	private void publishChanges(final boolean listCells) {
+		final int width = this.mapDimension.width;
+		final int changes = this.changesNumber.get();
+		boolean borderDeaths = false;
+		for (int c = 0; c < changes; c++) {
+			final int cellIndex = this.changedCells[c];
+			final int x = cellIndex % width;
+			final int y = cellIndex / width;
+			if (this.cells[cellIndex]) {
+				this.liveMinX = Math.min(this.liveMinX, x);
+				this.liveMaxX = Math.max(this.liveMaxX, x);
+				this.liveMinY = Math.min(this.liveMinY, y);
+				this.liveMaxY = Math.max(this.liveMaxY, y);
+			} else if (x == this.liveMinX || x == this.liveMaxX || y == this.liveMinY || y == this.liveMaxY) {
+				// The box only grows meanwhile, so inner deaths cannot end up on its border
+				borderDeaths = true;
+			}
+		}
+		if (borderDeaths) {
+			shrinkLiveBox();
+		}
+		if (!listCells) {
+			return;
+		}
+		
+		// Collects the cells around the changes, deduplicated, skipping off-cells with no alive neighbor
+		final int capacity = (int) Math.min(9L * changes, this.changedCells.length);
+		if (this.candidateIndexes.length < capacity) {
+			this.candidateIndexes = new int[capacity];
+		}
+		int candidates = 0;
+		for (int c = 0; c < changes; c++) {
+			final int cellIndex = this.changedCells[c];
+			final int x = cellIndex % width;
+			final int y = cellIndex / width;
+			for (int i = y - 1; i <= y + 1; i++) {
+				for (int j = x - 1; j <= x + 1; j++) {
+					if (isInsideCellMap(j, i)) {
+						final int neighborIndex = encode(j, i);
+						if (!this.candidateMarks.get(neighborIndex)
+								&& (this.cells[neighborIndex] || this.neighbors.get(neighborIndex) > 0)) {
+							this.candidateMarks.set(neighborIndex);
+							this.candidateIndexes[candidates++] = neighborIndex;
+						}
+					}
+				}
+			}
+		}
+		sortCandidatesByRow(candidates);
+	}
+	
+	/*
+	 * Fills the cells to evaluate with the candidates grouped by row, as the schedulers expect,
+	 * with a counting sort over the rows they span (a comparison sort could allocate):
+	 * the order of the cells of a row does not matter.
+	 */
+	private void sortCandidatesByRow(final int candidates) {
+		final int width = this.mapDimension.width;
+		int minRow = this.mapDimension.height;
+		int maxRow = -1;
+		for (int c = 0; c < candidates; c++) {
+			final int row = this.candidateIndexes[c] / width;
+			this.rowPositions[row]++;
+			minRow = Math.min(minRow, row);
+			maxRow = Math.max(maxRow, row);
+		}
+		// Turns the counts into the position of the first cell of each row
+		int position = 0;
+		for (int i = minRow; i <= maxRow; i++) {
+			final int count = this.rowPositions[i];
+			this.rowPositions[i] = position;
+			position += count;
+		}
+		resizeCellsToEvaluate(candidates);
+		for (int c = 0; c < candidates; c++) {
+			final int cellIndex = this.candidateIndexes[c];
+			this.candidateMarks.clear(cellIndex);
+			final Point p = this.cellsToEvaluate.get(this.rowPositions[cellIndex / width]++);
+			p.x = cellIndex % width;
+			p.y = cellIndex / width;
+		}
+		if (maxRow >= minRow) {
+			Arrays.fill(this.rowPositions, minRow, maxRow + 1, 0);
+		}
+	}
+	
+	/*
+	 * Shrinks the bounding box of the alive cells until each of its sides
+	 * touches an alive cell, or empties it if there are none.
+	 */
+	private void shrinkLiveBox() {
+		while (this.liveMinY <= this.liveMaxY && isRowEmpty(this.liveMinY)) {
+			this.liveMinY++;
+		}
+		if (this.liveMinY > this.liveMaxY) {
+			setLiveBoxEmpty();
+			return;
+		}
+		while (isRowEmpty(this.liveMaxY)) {
+			this.liveMaxY--;
+		}
+		while (isColumnEmpty(this.liveMinX)) {
+			this.liveMinX++;
+		}
+		while (isColumnEmpty(this.liveMaxX)) {
+			this.liveMaxX--;
+		}
+	}
+	
+	/*
+	 * Checks if a row of the live box has no alive cells.
+	 */
+	private boolean isRowEmpty(final int y) {
+		for (int j = this.liveMinX; j <= this.liveMaxX; j++) {
+			if (this.cells[encode(j, y)]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/*
+	 * Checks if a column of the live box has no alive cells.
+	 */
+	private boolean isColumnEmpty(final int x) {
+		for (int i = this.liveMinY; i <= this.liveMaxY; i++) {
+			if (this.cells[encode(x, i)]) {
+				return false;
+			}
+		}
+		return true;
 	}
 	
 	@Override
 	public void clear() {
 		Arrays.fill(this.cells, false);
 		Arrays.fill(this.nextCells, false);
-		Arrays.fill(this.neighbors, (byte) 0);
 		for (int i = 0; i < this.nextNeighbors.length(); i++) {
+			this.neighbors.set(i, 0);
 			this.nextNeighbors.set(i, 0);
 		}
 		this.cellsToEvaluate.clear();
+		this.cellsToEvaluateListed = true;
+		this.changesNumber.set(0);
+		setLiveBoxEmpty();
+		this.fullyChanged = true;
+		// Every tile may differ from its state before the reset
+		Arrays.fill(this.nextChangedTiles, true);
+		this.changedTiles.set(0, this.nextChangedTiles.length);
 		this.generation = 0;
-		this.computedCells = 0;
+		this.computedCells.reset();
+		this.generationStartCells = 0;
+		this.cellsToEvaluateNumber = 0;
+		publishGeneration();
 	}
 	
 	@Override
 	public void randomInitCell() {
 		final int x = ThreadLocalRandom.current().nextInt(0, this.mapDimension.width);
 		final int y = ThreadLocalRandom.current().nextInt(0, this.mapDimension.height);
-		synchronized (this.nextCells) {
+		synchronized (this.initLock) {
 			if (!this.nextCells[encode(x, y)]) {
 				setCellStateOn(x, y);
+				if (!this.fullyChanged) {
+					this.fullyChanged = true;
+				}
 			}
 		}
 	}
@@ -251,14 +1016,14 @@ public class ConwayCellMapImpl implements ConwayCellMap {
 	@Override
 	public String toString() {
 		final StringBuilder res = new StringBuilder();
-		res.append("Cell map at generation " + this.generation + "\n");
+		res.append("Cell map (" + this.rule + ") at generation " + this.generation + "\n");
 		final int height = this.mapDimension.height;
 		final int width = this.mapDimension.width;
 		for (int i = 0; i < height; i++) {
 			for (int j = 0; j < width; j++) {
 				final int cellIndex = encode(j, i);
 				res.append(" " + (this.cells[cellIndex] ? "O" : "X"));
-				res.append("(" + this.neighbors[cellIndex] + ")");
+				res.append("(" + this.neighbors.get(cellIndex) + ")");
 			}
 			res.append("\n");
 		}
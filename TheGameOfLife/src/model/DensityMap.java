@@ -0,0 +1,80 @@
+package model;
+
+/**
+ * This class represents an immutable snapshot of a {@link DensityPyramid}.
+ * Level k (starting from 1) stores the number of alive cells in each
+ * square block of 2^k x 2^k cells, so the whole map can be read at any
+ * scale with a cost that only depends on the number of blocks read.
+ *
+ */
+public final class DensityMap {
+
+	private final int[] widths;
+	private final int[] heights;
+	private final int[][][] pages;
+
+
+	DensityMap(final int[] widths, final int[] heights, final int[][][] pages) {
+		this.widths = widths;
+		this.heights = heights;
+		this.pages = pages;
+	}
+
+	/**
+	 * @return the approximate memory held by the snapshot, in bytes
+	 * (pages shared with other snapshots included).
+	 */
+	public long getByteSize() {
+		long res = 0;
+		for (int level = 1; level < this.pages.length; level++) {
+			for (final int[] page : this.pages[level]) {
+				if (page != null) {
+					res += (long) Integer.BYTES * page.length;
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * @return the number of levels (levels are numbered from 1 to this value).
+	 */
+	public int getLevelCount() {
+		return this.widths.length - 1;
+	}
+
+	/**
+	 * @param level
+	 * 		the level, between 0 (the cells) and {@link #getLevelCount()}
+	 * @return the number of blocks in width at the specified level.
+	 */
+	public int getLevelWidth(final int level) {
+		return this.widths[level];
+	}
+
+	/**
+	 * @param level
+	 * 		the level, between 0 (the cells) and {@link #getLevelCount()}
+	 * @return the number of blocks in height at the specified level.
+	 */
+	public int getLevelHeight(final int level) {
+		return this.heights[level];
+	}
+
+	/**
+	 * @param level
+	 * 		the level, between 1 and {@link #getLevelCount()}
+	 * @param x
+	 * 		the column of the block
+	 * @param y
+	 * 		the row of the block
+	 * @return the number of alive cells in the block, 0 if the block is outside the map.
+	 */
+	public int getCount(final int level, final int x, final int y) {
+		if (x < 0 || y < 0 || x >= this.widths[level] || y >= this.heights[level]) {
+			return 0;
+		}
+		return DensityPyramid.read(this.pages[level], this.widths[level], x, y);
+	}
+
+}
@@ -0,0 +1,206 @@
+package model;
+
+import java.awt.Dimension;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * This class handles a density pyramid (mipmap) of a cell map.
+ * Level 1 stores the number of alive cells in each 2x2 block of cells,
+ * and each following level stores the sum of each 2x2 block of the level below,
+ * up to a single block covering the whole map.
+ * The pyramid is updated incrementally from the tiles changed in the last generation,
+ * and its levels are split in pages that are copied on write, so that taking
+ * an immutable {@link DensityMap} snapshot only costs a copy of the page references.
+ * It is not thread safe: it must be updated and snapshotted by a single thread.
+ *
+ */
+public class DensityPyramid {
+
+	private static final int PAGE_BITS = 6;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	// Level 0 holds the dimension of the cell map
+	private final int[] widths;
+	private final int[] heights;
+	// Pages of each level, in row-major order (a null page only contains zeros)
+	private final int[][][] pages;
+	// Whether each page is referenced by a snapshot, and must be copied before writing
+	private final boolean[][] shared;
+
+	/*
+	 * Source of the states of the cells counted by the pyramid.
+	 */
+	private interface CellReader {
+		boolean isAlive(int x, int y);
+	}
+
+
+	/**
+	 * Constructs an empty density pyramid.
+	 *
+	 * @param mapDimension
+	 * 		the dimension of the cell map
+	 */
+	public DensityPyramid(final Dimension mapDimension) {
+		Objects.requireNonNull(mapDimension);
+		int levels = 1;
+		for (int w = mapDimension.width, h = mapDimension.height; w > 1 || h > 1; w = (w + 1) / 2, h = (h + 1) / 2) {
+			levels++;
+		}
+		this.widths = new int[levels];
+		this.heights = new int[levels];
+		this.pages = new int[levels][][];
+		this.shared = new boolean[levels][];
+		this.widths[0] = mapDimension.width;
+		this.heights[0] = mapDimension.height;
+		for (int level = 1; level < levels; level++) {
+			this.widths[level] = (this.widths[level - 1] + 1) / 2;
+			this.heights[level] = (this.heights[level - 1] + 1) / 2;
+			final int pagesNumber = pagesPerRow(this.widths[level]) * ((this.heights[level] + PAGE_MASK) >> PAGE_BITS);
+			this.pages[level] = new int[pagesNumber][];
+			this.shared[level] = new boolean[pagesNumber];
+		}
+	}
+
+	/**
+	 * Estimates the memory of a pyramid, or of one of its snapshots, when every page is allocated.
+	 *
+	 * @param mapDimension
+	 * 		the dimension of the cell map
+	 * @return the approximate size of the pages, in bytes.
+	 */
+	public static long estimateBytes(final Dimension mapDimension) {
+		long res = 0;
+		for (int w = (mapDimension.width + 1) / 2, h = (mapDimension.height + 1) / 2; ; w = (w + 1) / 2, h = (h + 1) / 2) {
+			res += (long) Integer.BYTES * PAGE_SIZE * PAGE_SIZE * pagesPerRow(w) * ((h + PAGE_MASK) >> PAGE_BITS);
+			if (w <= 1 && h <= 1) {
+				return res;
+			}
+		}
+	}
+
+	private static int pagesPerRow(final int width) {
+		return (width + PAGE_MASK) >> PAGE_BITS;
+	}
+
+	/*
+	 * Reads a block of a level, given its pages.
+	 */
+	static int read(final int[][] levelPages, final int width, final int x, final int y) {
+		final int[] page = levelPages[(y >> PAGE_BITS) * pagesPerRow(width) + (x >> PAGE_BITS)];
+		return page == null ? 0 : page[((y & PAGE_MASK) << PAGE_BITS) + (x & PAGE_MASK)];
+	}
+
+	/*
+	 * Reads a block of a level, 0 if outside the level.
+	 */
+	private int read(final int level, final int x, final int y) {
+		if (x >= this.widths[level] || y >= this.heights[level]) {
+			return 0;
+		}
+		return read(this.pages[level], this.widths[level], x, y);
+	}
+
+	/*
+	 * Writes a block of a level, copying its page first if a snapshot references it.
+	 */
+	private void write(final int level, final int x, final int y, final int value) {
+		final int pageIndex = (y >> PAGE_BITS) * pagesPerRow(this.widths[level]) + (x >> PAGE_BITS);
+		int[] page = this.pages[level][pageIndex];
+		if (page == null) {
+			if (value == 0) {
+				return;
+			}
+			page = new int[PAGE_SIZE * PAGE_SIZE];
+			this.pages[level][pageIndex] = page;
+		} else if (this.shared[level][pageIndex]) {
+			page = page.clone();
+			this.pages[level][pageIndex] = page;
+		}
+		this.shared[level][pageIndex] = false;
+		page[((y & PAGE_MASK) << PAGE_BITS) + (x & PAGE_MASK)] = value;
+	}
+
+	/*
+	 * Counts the alive cells of a 2x2 block of the cell map.
+	 */
+	private int countCells(final CellReader cells, final int bx, final int by) {
+		int count = 0;
+		for (int y = by * 2; y < Math.min(by * 2 + 2, this.heights[0]); y++) {
+			for (int x = bx * 2; x < Math.min(bx * 2 + 2, this.widths[0]); x++) {
+				if (cells.isAlive(x, y)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Updates the blocks covering the tiles changed in the last generation of the model.
+	 *
+	 * @param model
+	 * 		the cell map, which must have the dimension of the pyramid
+	 */
+	public void update(final ConwayCellMap model) {
+		update(model::getCellState, model.getChangedTiles(), model.getTileSize());
+	}
+
+	/**
+	 * Updates the blocks covering the specified tiles of a generation.
+	 *
+	 * @param cells
+	 * 		the states of the cells of the generation, which must have the dimension of the pyramid
+	 * @param changedTiles
+	 * 		the tiles changed since the last update, in row-major order
+	 * @param tileSize
+	 * 		the side (in cells) of the tiles
+	 */
+	public void update(final boolean[][] cells, final BitSet changedTiles, final int tileSize) {
+		update((x, y) -> cells[y][x], changedTiles, tileSize);
+	}
+
+	/*
+	 * Recounts the blocks covering the changed tiles, level by level.
+	 */
+	private void update(final CellReader cells, final BitSet tiles, final int tileSize) {
+		final int tilesPerRow = (this.widths[0] + tileSize - 1) / tileSize;
+		// Each level is completed before the next one, which sums its blocks
+		for (int level = 1; level < this.widths.length; level++) {
+			for (int t = tiles.nextSetBit(0); t >= 0; t = tiles.nextSetBit(t + 1)) {
+				final int x0 = (t % tilesPerRow) * tileSize;
+				final int y0 = (t / tilesPerRow) * tileSize;
+				final int x1 = (Math.min(x0 + tileSize, this.widths[0]) - 1) >> level;
+				final int y1 = (Math.min(y0 + tileSize, this.heights[0]) - 1) >> level;
+				for (int by = y0 >> level; by <= y1; by++) {
+					for (int bx = x0 >> level; bx <= x1; bx++) {
+						final int count;
+						if (level == 1) {
+							count = countCells(cells, bx, by);
+						} else {
+							count = read(level - 1, bx * 2, by * 2) + read(level - 1, bx * 2 + 1, by * 2)
+									+ read(level - 1, bx * 2, by * 2 + 1) + read(level - 1, bx * 2 + 1, by * 2 + 1);
+						}
+						write(level, bx, by, count);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return an immutable snapshot of the current state of the pyramid.
+	 */
+	public DensityMap snapshot() {
+		final int[][][] levels = new int[this.pages.length][][];
+		for (int level = 1; level < this.pages.length; level++) {
+			levels[level] = this.pages[level].clone();
+			Arrays.fill(this.shared[level], true);
+		}
+		return new DensityMap(this.widths, this.heights, levels);
+	}
+
+}
@@ -0,0 +1,116 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class represents the states of a published generation, shared by all its
+ * snapshots. It is written only while nobody references it, then it is immutable
+ * until every reference has been released and it goes back to its pool.
+ *
+ */
+final class GenerationBuffer {
+
+	private final boolean[] cells;
+	private final int width;
+	private final int height;
+	private final Queue<GenerationBuffer> pool;
+	private final AtomicInteger references;
+
+	private long generation;
+	// Bounding box of the alive cells (empty if max < min)
+	private int minX, minY, maxX, maxY;
+
+
+	/*
+	 * Constructs an empty buffer, with no references.
+	 */
+	GenerationBuffer(final int width, final int height, final Queue<GenerationBuffer> pool) {
+		this.cells = new boolean[width * height];
+		this.width = width;
+		this.height = height;
+		this.pool = pool;
+		this.references = new AtomicInteger();
+		this.minX = width;
+		this.minY = height;
+		this.maxX = -1;
+		this.maxY = -1;
+	}
+
+	/*
+	 * Writes the alive cells of a generation, clearing the ones of the previous
+	 * content, only inside the bounding boxes, and takes the first reference.
+	 * It must be called only while the buffer has no references.
+	 */
+	void write(final long generation, final boolean[] source, final int minX, final int minY, final int maxX, final int maxY) {
+		for (int i = this.minY; i <= this.maxY; i++) {
+			Arrays.fill(this.cells, i * this.width + this.minX, i * this.width + this.maxX + 1, false);
+		}
+		for (int i = minY; i <= maxY; i++) {
+			System.arraycopy(source, i * this.width + minX, this.cells, i * this.width + minX, maxX - minX + 1);
+		}
+		this.generation = generation;
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		// Publishes the content to whoever succeeds in retaining the buffer
+		this.references.set(1);
+	}
+
+	/*
+	 * Takes a reference, unless the buffer has already been released by everyone
+	 * (and may be being rewritten).
+	 */
+	boolean retain() {
+		for (int count = this.references.get(); count > 0; count = this.references.get()) {
+			if (this.references.compareAndSet(count, count + 1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Releases a reference, giving the buffer back to its pool (if it has room) after the last one.
+	 */
+	void release() {
+		if (this.references.decrementAndGet() == 0) {
+			this.pool.offer(this);
+		}
+	}
+
+	boolean[] getCells() {
+		return this.cells;
+	}
+
+	int getWidth() {
+		return this.width;
+	}
+
+	int getHeight() {
+		return this.height;
+	}
+
+	long getGeneration() {
+		return this.generation;
+	}
+
+	int getMinX() {
+		return this.minX;
+	}
+
+	int getMinY() {
+		return this.minY;
+	}
+
+	int getMaxX() {
+		return this.maxX;
+	}
+
+	int getMaxY() {
+		return this.maxY;
+	}
+
+}
@@ -8,28 +8,38 @@ package model;
 public class GenerationResult {
 	
 	private final long generationNumber;
-	private final boolean[][] cellsStates;
-	private final long aliveCells;
+	private final PackedStates states;
+	private final PopulationStatistics statistics;
 	private final long computationTime;
+	private final long allocatedBytes;
+	private final DensityMap density;
 	
 	/**
 	 * Constructs a new GenerationResult.
 	 * 
 	 * @param generationNumber
 	 * 		the number of the generation
-	 * @param cellsStates
+	 * @param states
 	 * 		the states of the cells
-	 * @param aliveCells
-	 * 		the number of alive cells
+	 * @param statistics
+	 * 		the population statistics of the generation
 	 * @param computationTime
 	 * 		the elapsed time for the computation
+	 * @param allocatedBytes
+	 * 		the memory allocated by the computation, not counting the result
+	 * (negative if not measured)
+	 * @param density
+	 * 		the density pyramid of the cells
 	 */
-	public GenerationResult(final long generationNumber, final boolean[][] cellsStates,
-			final long aliveCells, final long computationTime) {
+	public GenerationResult(final long generationNumber, final PackedStates states,
+			final PopulationStatistics statistics, final long computationTime, final long allocatedBytes,
+			final DensityMap density) {
 		this.generationNumber = generationNumber;
-		this.cellsStates = cellsStates;
-		this.aliveCells = aliveCells;
+		this.states = states;
+		this.statistics = statistics;
 		this.computationTime = computationTime;
+		this.allocatedBytes = allocatedBytes;
+		this.density = density;
 	}
 	
 	/**
@@ -43,14 +53,36 @@ public class GenerationResult {
 	 * @return the number of alive cells
 	 */
 	public long getAliveCells() {
-		return this.aliveCells;
+		return this.statistics.getAliveCells();
 	}
 	
 	/**
-	 * @return the states of the cells in the generation
+	 * @return the population statistics of the generation
+	 */
+	public PopulationStatistics getStatistics() {
+		return this.statistics;
+	}
+	
+	/**
+	 * @return the states of the cells in the generation (decoded at each call if not dense:
+	 * consumers showing a part of the map should decode it from {@link #getStates()})
 	 */
 	public boolean[][] getCellsStates() {
-		return this.cellsStates;
+		return this.states.toArray();
+	}
+	
+	/**
+	 * @return the stored states of the cells in the generation
+	 */
+	public PackedStates getStates() {
+		return this.states;
+	}
+	
+	/**
+	 * @return the approximate memory held by the result, in bytes
+	 */
+	public long getByteSize() {
+		return this.states.getByteSize() + this.density.getByteSize();
 	}
 	
 	/**
@@ -60,4 +92,19 @@ public class GenerationResult {
 		return this.computationTime;
 	}
 	
+	/**
+	 * @return the memory allocated by the computation by all its threads, not counting the result,
+	 * in bytes (a negative value if it has not been measured)
+	 */
+	public long getAllocatedBytes() {
+		return this.allocatedBytes;
+	}
+	
+	/**
+	 * @return the density pyramid of the cells in the generation
+	 */
+	public DensityMap getDensity() {
+		return this.density;
+	}
+	
 }
@@ -0,0 +1,151 @@
+package model;
+
+import java.util.Objects;
+
+/**
+ * This class represents a Life-like cellular automaton rule, expressed
+ * in B/S notation (e.g. "B3/S23" for Conway's Game of Life).
+ * The rule is compiled into a lookup table indexed by the state of a cell
+ * and by its number of on-neighbors, so that every rule is evaluated
+ * at the same cost.
+ *
+ */
+public final class LifeRule {
+
+	private static final int NEIGHBORHOOD_SIZE = 9;
+
+	/**
+	 * Conway's Game of Life.
+	 */
+	public static final LifeRule CONWAY = parse("B3/S23");
+
+	/**
+	 * HighLife, which also features a replicator.
+	 */
+	public static final LifeRule HIGHLIFE = parse("B36/S23");
+
+	/**
+	 * Day &amp; Night, symmetric under on/off reversal.
+	 */
+	public static final LifeRule DAY_AND_NIGHT = parse("B3678/S34678");
+
+	/**
+	 * Seeds, where every living cell dies at each generation.
+	 */
+	public static final LifeRule SEEDS = parse("B2/S");
+
+	private final String notation;
+	private final int birthMask;
+	private final int survivalMask;
+
+	// Next state lookup table, indexed by (state * NEIGHBORHOOD_SIZE + on-neighbors)
+	private final boolean[] table;
+
+
+	private LifeRule(final String notation, final int birthMask, final int survivalMask) {
+		this.notation = notation;
+		this.birthMask = birthMask;
+		this.survivalMask = survivalMask;
+		this.table = new boolean[NEIGHBORHOOD_SIZE * 2];
+		for (int n = 0; n < NEIGHBORHOOD_SIZE; n++) {
+			this.table[n] = (birthMask & (1 << n)) != 0;
+			this.table[NEIGHBORHOOD_SIZE + n] = (survivalMask & (1 << n)) != 0;
+		}
+	}
+
+	/**
+	 * Compiles a rule from its B/S notation (e.g. "B36/S23").
+	 * Rules with birth on zero neighbors (B0) are not supported, because
+	 * off-cells with no alive neighbor are never evaluated.
+	 *
+	 * @param notation
+	 * 		the rule in B/S notation
+	 * @return the compiled rule.
+	 * @throws IllegalArgumentException
+	 * 		if the notation is malformed or describes a B0 rule
+	 */
+	public static LifeRule parse(final String notation) {
+		Objects.requireNonNull(notation);
+		final String rule = notation.trim().toUpperCase();
+		final String[] parts = rule.split("/", -1);
+		if (parts.length != 2 || !parts[0].startsWith("B") || !parts[1].startsWith("S")) {
+			throw new IllegalArgumentException("Rule \"" + notation + "\" is not in B/S notation (e.g. B3/S23)");
+		}
+		final int birthMask = parseCounts(notation, parts[0].substring(1));
+		final int survivalMask = parseCounts(notation, parts[1].substring(1));
+		if ((birthMask & 1) != 0) {
+			throw new IllegalArgumentException("Rule \"" + notation + "\" is not supported: B0 rules are not allowed");
+		}
+		return new LifeRule("B" + parts[0].substring(1) + "/S" + parts[1].substring(1), birthMask, survivalMask);
+	}
+
+	/*
+	 * Converts a list of neighbor counts (e.g. "236") into a bit mask.
+	 */
+	private static int parseCounts(final String notation, final String counts) {
+		int mask = 0;
+		for (final char c : counts.toCharArray()) {
+			if (c < '0' || c > '8') {
+				throw new IllegalArgumentException("Rule \"" + notation + "\" contains an invalid neighbor count: " + c);
+			}
+			mask |= 1 << (c - '0');
+		}
+		return mask;
+	}
+
+	/**
+	 * Applies the rule to a cell.
+	 *
+	 * @param state
+	 * 		the current state of the cell
+	 * @param onNeighbors
+	 * 		the number of alive neighbors of the cell (0 to 8)
+	 * @return the state of the cell in the next generation.
+	 */
+	public boolean nextState(final boolean state, final int onNeighbors) {
+		return this.table[(state ? NEIGHBORHOOD_SIZE : 0) + onNeighbors];
+	}
+
+	/**
+	 * @return the bit mask of the neighbor counts that cause a birth
+	 * (bit n is set if an off-cell with n on-neighbors turns on).
+	 */
+	public int getBirthMask() {
+		return this.birthMask;
+	}
+
+	/**
+	 * @return the bit mask of the neighbor counts that allow survival
+	 * (bit n is set if an on-cell with n on-neighbors stays on).
+	 */
+	public int getSurvivalMask() {
+		return this.survivalMask;
+	}
+
+	/**
+	 * @return the rule in B/S notation.
+	 */
+	public String getNotation() {
+		return this.notation;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (!(obj instanceof LifeRule)) {
+			return false;
+		}
+		final LifeRule other = (LifeRule) obj;
+		return this.birthMask == other.birthMask && this.survivalMask == other.survivalMask;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.birthMask * 31 + this.survivalMask;
+	}
+
+	@Override
+	public String toString() {
+		return this.notation;
+	}
+
+}
@@ -0,0 +1,184 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * This class implements a {@link TileKernel} by table lookups: a table with an entry
+ * for every 4x4 block of cells holds the next states of the 2x2 block at its center,
+ * so that each lookup computes four cells at once, without counting neighbors.
+ * A row of 2x2 blocks is computed by sliding a 16-bit key along the row, two columns
+ * at a time: each column of the four rows read by the blocks is a 4-bit nibble of the key,
+ * and each step shifts out the two oldest columns and shifts in the next two.
+ * The table only depends on the rule, so it is shared by the kernels of a cell map.
+ *
+ */
+public class LookupTableKernel implements TileKernel {
+
+	private static final int BLOCK_SIDE = 4;
+	private static final int TABLE_SIZE = 1 << (BLOCK_SIDE * BLOCK_SIDE);
+	private static final int KEY_MASK = TABLE_SIZE - 1;
+
+	private final byte[] table;
+
+	// Current and next states of the loaded region, with a dead border (two cells wide after the region)
+	private byte[] current;
+	private byte[] next;
+	private int stride;
+	private int regionX, regionY;
+	private boolean empty;
+
+
+	/**
+	 * Constructs a new kernel.
+	 *
+	 * @param table
+	 * 		the table of the rule, created with {@link #createTable(LifeRule)}
+	 */
+	public LookupTableKernel(final byte[] table) {
+		Objects.requireNonNull(table);
+		if (table.length != TABLE_SIZE) {
+			throw new IllegalArgumentException("Table must have an entry for every 4x4 block");
+		}
+		this.table = table;
+		this.current = new byte[0];
+		this.next = new byte[0];
+	}
+
+	/**
+	 * Creates the table of a rule. The key of a 4x4 block holds a nibble for each column,
+	 * the first column in the highest one, and each nibble holds the rows of its column,
+	 * the first row in the lowest bit. The value holds the next states of the center,
+	 * in the lowest bits: the first column (first row, then second row), then the second column.
+	 *
+	 * @param rule
+	 * 		the rule applied at each generation
+	 * @return the table, with 65536 entries.
+	 */
+	public static byte[] createTable(final LifeRule rule) {
+		Objects.requireNonNull(rule);
+		final int birthMask = rule.getBirthMask();
+		final int survivalMask = rule.getSurvivalMask();
+		final byte[] res = new byte[TABLE_SIZE];
+		for (int key = 0; key < TABLE_SIZE; key++) {
+			int value = 0;
+			for (int c = 1; c <= 2; c++) {
+				for (int r = 1; r <= 2; r++) {
+					int n = 0;
+					for (int i = r - 1; i <= r + 1; i++) {
+						for (int j = c - 1; j <= c + 1; j++) {
+							if ((i != r || j != c) && cellOf(key, i, j)) {
+								n++;
+							}
+						}
+					}
+					final int mask = cellOf(key, r, c) ? survivalMask : birthMask;
+					value |= ((mask >>> n) & 1) << ((c - 1) * 2 + r - 1);
+				}
+			}
+			res[key] = (byte) value;
+		}
+		return res;
+	}
+
+	/*
+	 * Reads a cell of the 4x4 block of a key.
+	 */
+	private static boolean cellOf(final int key, final int row, final int column) {
+		return ((key >>> ((BLOCK_SIDE - 1 - column) * BLOCK_SIDE + row)) & 1) != 0;
+	}
+
+	@Override
+	public void advance(final boolean[] cells, final int mapWidth, final int mapHeight,
+			final int x, final int y, final int width, final int height, final int generations) {
+		// Loads the tile and its halo, clipped to the cell map
+		this.regionX = Math.max(x - generations, 0);
+		this.regionY = Math.max(y - generations, 0);
+		final int regionWidth = Math.min(x + width + generations, mapWidth) - this.regionX;
+		final int regionHeight = Math.min(y + height + generations, mapHeight) - this.regionY;
+		// The blocks of an odd area read a column (and a row) past its end, and their neighbors
+		this.stride = regionWidth + 3;
+		final int size = this.stride * (regionHeight + 3);
+		if (this.current.length < size) {
+			this.current = new byte[size];
+			this.next = new byte[size];
+		} else {
+			Arrays.fill(this.current, 0, size, (byte) 0);
+			Arrays.fill(this.next, 0, size, (byte) 0);
+		}
+		this.empty = true;
+		for (int i = 0; i < regionHeight; i++) {
+			final int source = (this.regionY + i) * mapWidth + this.regionX;
+			final int target = (i + 1) * this.stride + 1;
+			for (int j = 0; j < regionWidth; j++) {
+				if (cells[source + j]) {
+					this.current[target + j] = 1;
+					this.empty = false;
+				}
+			}
+		}
+		// Without alive cells nothing can be born, since B0 rules are not allowed
+		if (this.empty) {
+			return;
+		}
+
+		for (int g = 1; g <= generations; g++) {
+			// Area still needed to compute the tile after the remaining generations
+			final int margin = generations - g;
+			final int x0 = Math.max(x - margin, this.regionX) - this.regionX + 1;
+			final int y0 = Math.max(y - margin, this.regionY) - this.regionY + 1;
+			final int x1 = Math.min(x + width + margin, mapWidth) - this.regionX + 1;
+			final int y1 = Math.min(y + height + margin, mapHeight) - this.regionY + 1;
+			step(x0, y0, x1, y1);
+			final byte[] cur = this.current;
+			this.current = this.next;
+			this.next = cur;
+		}
+	}
+
+	/*
+	 * Computes the next states of an area of the loaded region by 2x2 blocks. The states past
+	 * the end of an odd area are not written, so that the dead border stays dead.
+	 */
+	private void step(final int x0, final int y0, final int x1, final int y1) {
+		final byte[] cur = this.current;
+		final byte[] nxt = this.next;
+		final byte[] lookup = this.table;
+		final int s = this.stride;
+		final int lastColumn = x1 - 1;
+		for (int i = y0; i < y1; i += 2) {
+			final int row0 = (i - 1) * s;
+			final int row1 = i * s;
+			final int row2 = (i + 1) * s;
+			final int row3 = (i + 2) * s;
+			final boolean secondRow = i + 1 < y1;
+			// Starts with the two columns before the first block
+			int key = (cur[row0 + x0 - 1] | cur[row1 + x0 - 1] << 1 | cur[row2 + x0 - 1] << 2 | cur[row3 + x0 - 1] << 3) << 4
+					| cur[row0 + x0] | cur[row1 + x0] << 1 | cur[row2 + x0] << 2 | cur[row3 + x0] << 3;
+			for (int j = x0; j < x1; j += 2) {
+				final int c2 = j + 1;
+				final int c3 = j + 2;
+				key = (key << 8
+						| (cur[row0 + c2] | cur[row1 + c2] << 1 | cur[row2 + c2] << 2 | cur[row3 + c2] << 3) << 4
+						| cur[row0 + c3] | cur[row1 + c3] << 1 | cur[row2 + c3] << 2 | cur[row3 + c3] << 3) & KEY_MASK;
+				final int value = lookup[key];
+				nxt[row1 + j] = (byte) (value & 1);
+				if (secondRow) {
+					nxt[row2 + j] = (byte) ((value >>> 1) & 1);
+				}
+				if (j < lastColumn) {
+					nxt[row1 + c2] = (byte) ((value >>> 2) & 1);
+					if (secondRow) {
+						nxt[row2 + c2] = (byte) ((value >>> 3) & 1);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean getState(final int x, final int y) {
+		return !this.empty && this.current[(y - this.regionY + 1) * this.stride + (x - this.regionX + 1)] != 0;
+	}
+
+}
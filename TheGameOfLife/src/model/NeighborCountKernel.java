@@ -0,0 +1,102 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * This class implements a {@link TileKernel} counting the neighbors of each cell
+ * in a dense buffer of one byte per cell, and applying the rule to each count.
+ *
+ */
+public class NeighborCountKernel implements TileKernel {
+
+	private final int birthMask;
+	private final int survivalMask;
+
+	// Current and next states of the loaded region, surrounded by a dead border
+	private byte[] current;
+	private byte[] next;
+	private int stride;
+	private int regionX, regionY;
+	private boolean empty;
+
+
+	/**
+	 * Constructs a new kernel.
+	 *
+	 * @param rule
+	 * 		the rule applied at each generation
+	 */
+	public NeighborCountKernel(final LifeRule rule) {
+		Objects.requireNonNull(rule);
+		this.birthMask = rule.getBirthMask();
+		this.survivalMask = rule.getSurvivalMask();
+		this.current = new byte[0];
+		this.next = new byte[0];
+	}
+
+	@Override
+	public void advance(final boolean[] cells, final int mapWidth, final int mapHeight,
+			final int x, final int y, final int width, final int height, final int generations) {
+		// Loads the tile and its halo, clipped to the cell map
+		this.regionX = Math.max(x - generations, 0);
+		this.regionY = Math.max(y - generations, 0);
+		final int regionWidth = Math.min(x + width + generations, mapWidth) - this.regionX;
+		final int regionHeight = Math.min(y + height + generations, mapHeight) - this.regionY;
+		this.stride = regionWidth + 2;
+		final int size = this.stride * (regionHeight + 2);
+		if (this.current.length < size) {
+			this.current = new byte[size];
+			this.next = new byte[size];
+		} else {
+			Arrays.fill(this.current, 0, size, (byte) 0);
+			Arrays.fill(this.next, 0, size, (byte) 0);
+		}
+		this.empty = true;
+		for (int i = 0; i < regionHeight; i++) {
+			final int source = (this.regionY + i) * mapWidth + this.regionX;
+			final int target = (i + 1) * this.stride + 1;
+			for (int j = 0; j < regionWidth; j++) {
+				if (cells[source + j]) {
+					this.current[target + j] = 1;
+					this.empty = false;
+				}
+			}
+		}
+		// Without alive cells nothing can be born, since B0 rules are not allowed
+		if (this.empty) {
+			return;
+		}
+
+		for (int g = 1; g <= generations; g++) {
+			// Area still needed to compute the tile after the remaining generations
+			final int margin = generations - g;
+			final int x0 = Math.max(x - margin, this.regionX) - this.regionX + 1;
+			final int y0 = Math.max(y - margin, this.regionY) - this.regionY + 1;
+			final int x1 = Math.min(x + width + margin, mapWidth) - this.regionX + 1;
+			final int y1 = Math.min(y + height + margin, mapHeight) - this.regionY + 1;
+			final byte[] cur = this.current;
+			final byte[] nxt = this.next;
+			for (int i = y0; i < y1; i++) {
+				final int above = (i - 1) * this.stride;
+				final int row = i * this.stride;
+				final int below = (i + 1) * this.stride;
+				for (int j = x0; j < x1; j++) {
+					final int n = cur[above + j - 1] + cur[above + j] + cur[above + j + 1]
+							+ cur[row + j - 1] + cur[row + j + 1]
+							+ cur[below + j - 1] + cur[below + j] + cur[below + j + 1];
+					final int mask = cur[row + j] != 0 ? this.survivalMask : this.birthMask;
+					nxt[row + j] = (byte) ((mask >>> n) & 1);
+				}
+			}
+			this.current = nxt;
+			this.next = cur;
+		}
+	}
+
+	@Override
+	public boolean getState(final int x, final int y) {
+		return !this.empty && this.current[(y - this.regionY + 1) * this.stride + (x - this.regionX + 1)] != 0;
+	}
+
+}
@@ -0,0 +1,254 @@
+package model;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * This class represents the immutable states of a generation, stored
+ * with a {@link StateRepresentation}.
+ * A compact representation is chosen for each generation between the bit-packed
+ * and the sparse ones, according to the number of alive cells.
+ *
+ */
+public final class PackedStates {
+
+	private final StateRepresentation representation;
+	private final int width;
+	private final int height;
+	private final long byteSize;
+	// Only the field of the representation is not null
+	private final boolean[][] dense;
+	private final long[] bits;
+	private final int[] indexes;
+
+	/*
+	 * Source of the alive cells of a generation, visited row by row.
+	 */
+	private interface CellSource {
+		void forEachAliveCell(CellMapSnapshot.CellVisitor visitor);
+	}
+
+
+	private PackedStates(final StateRepresentation representation, final int width, final int height,
+			final long byteSize, final boolean[][] dense, final long[] bits, final int[] indexes) {
+		this.representation = representation;
+		this.width = width;
+		this.height = height;
+		this.byteSize = byteSize;
+		this.dense = dense;
+		this.bits = bits;
+		this.indexes = indexes;
+	}
+
+	/*
+	 * Chooses the smallest compact representation for the specified population.
+	 */
+	private static StateRepresentation compactRepresentation(final int width, final int height, final long aliveCells) {
+		return StateRepresentation.SPARSE.estimateBytes(width, height, aliveCells)
+				< StateRepresentation.BIT_PACKED.estimateBytes(width, height, aliveCells)
+				? StateRepresentation.SPARSE : StateRepresentation.BIT_PACKED;
+	}
+
+	/*
+	 * Stores the alive cells of a region with the specified compact representation.
+	 */
+	private static PackedStates pack(final StateRepresentation representation, final int width, final int height,
+			final long aliveCells, final CellSource source) {
+		if (representation == StateRepresentation.SPARSE) {
+			final int[] indexes = new int[(int) aliveCells];
+			final int[] count = new int[1];
+			source.forEachAliveCell((x, y) -> indexes[count[0]++] = y * width + x);
+			return new PackedStates(representation, width, height,
+					representation.estimateBytes(width, height, aliveCells), null, null, indexes);
+		}
+		final long[] bits = new long[(int) (((long) width * height + Long.SIZE - 1) / Long.SIZE)];
+		source.forEachAliveCell((x, y) -> {
+			final long index = (long) y * width + x;
+			bits[(int) (index >>> 6)] |= 1L << index;
+		});
+		return new PackedStates(representation, width, height,
+				representation.estimateBytes(width, height, aliveCells), null, bits, null);
+	}
+
+	/**
+	 * Stores the states of a generation, sharing the specified array if the representation is dense.
+	 *
+	 * @param cells
+	 * 		the states of the cells, which must not be modified afterwards
+	 * @param representation
+	 * 		{@link StateRepresentation#DENSE}, or any compact one to choose the smallest for the population
+	 * @param aliveCells
+	 * 		the number of alive cells
+	 * @return the stored states.
+	 */
+	public static PackedStates of(final boolean[][] cells, final StateRepresentation representation, final long aliveCells) {
+		Objects.requireNonNull(cells);
+		Objects.requireNonNull(representation);
+		final int height = cells.length;
+		final int width = height == 0 ? 0 : cells[0].length;
+		if (representation == StateRepresentation.DENSE) {
+			return new PackedStates(representation, width, height,
+					representation.estimateBytes(width, height, aliveCells), cells, null, null);
+		}
+		return pack(compactRepresentation(width, height, aliveCells), width, height, aliveCells, visitor -> {
+			for (int i = 0; i < height; i++) {
+				for (int j = 0; j < width; j++) {
+					if (cells[i][j]) {
+						visitor.visit(j, i);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stores the states of a snapshot, reading only its live box.
+	 *
+	 * @param snapshot
+	 * 		the snapshot of the generation
+	 * @param representation
+	 * 		{@link StateRepresentation#DENSE}, or any compact one to choose the smallest for the population
+	 * @param aliveCells
+	 * 		the number of alive cells of the snapshot
+	 * @return the stored states.
+	 */
+	public static PackedStates of(final CellMapSnapshot snapshot, final StateRepresentation representation, final long aliveCells) {
+		Objects.requireNonNull(snapshot);
+		Objects.requireNonNull(representation);
+		final int width = snapshot.getCellMapDimension().width;
+		final int height = snapshot.getCellMapDimension().height;
+		if (representation == StateRepresentation.DENSE) {
+			final boolean[][] cells = new boolean[height][width];
+			// Cells outside the live box are all off, as in the new array
+			snapshot.getLiveBox().ifPresent(box -> {
+				for (int i = box.y; i < box.y + box.height; i++) {
+					snapshot.copyRegion(new Rectangle(box.x, i, box.width, 1), cells[i], box.x, box.width);
+				}
+			});
+			return new PackedStates(representation, width, height,
+					representation.estimateBytes(width, height, aliveCells), cells, null, null);
+		}
+		return pack(compactRepresentation(width, height, aliveCells), width, height, aliveCells,
+				visitor -> snapshot.getLiveBox().ifPresent(box -> snapshot.forEachAliveCell(box, visitor)));
+	}
+
+	/**
+	 * @return the representation of the states.
+	 */
+	public StateRepresentation getRepresentation() {
+		return this.representation;
+	}
+
+	/**
+	 * @return the approximate size of the states, in bytes.
+	 */
+	public long getByteSize() {
+		return this.byteSize;
+	}
+
+	/**
+	 * @return the width of the cell map.
+	 */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * @return the height of the cell map.
+	 */
+	public int getHeight() {
+		return this.height;
+	}
+
+	/*
+	 * Gets the position of the first alive cell with an index not lower than the specified one
+	 * (the indexes are sorted, since the cells are stored row by row).
+	 */
+	private int firstIndexFrom(final int index) {
+		final int res = Arrays.binarySearch(this.indexes, index);
+		return res >= 0 ? res : -res - 1;
+	}
+
+	/**
+	 * Reads the state of a cell, without decoding the others.
+	 *
+	 * @param x
+	 * 		the column of the cell
+	 * @param y
+	 * 		the row of the cell
+	 * @return true if the cell is alive.
+	 */
+	public boolean getState(final int x, final int y) {
+		if (x < 0 || y < 0 || x >= this.width || y >= this.height) {
+			throw new IllegalArgumentException("Cell must lie inside the cell map");
+		}
+		if (this.dense != null) {
+			return this.dense[y][x];
+		}
+		final long index = (long) y * this.width + x;
+		if (this.indexes != null) {
+			return Arrays.binarySearch(this.indexes, (int) index) >= 0;
+		}
+		return (this.bits[(int) (index >>> 6)] & 1L << index) != 0;
+	}
+
+	/**
+	 * Decodes the states of a region only, so that consumers showing a part of a large
+	 * cell map never hold its whole states.
+	 *
+	 * @param region
+	 * 		the region to decode, inside the cell map
+	 * @return the states of the cells of the region, row by row from its first cell.
+	 */
+	public boolean[][] toArray(final Rectangle region) {
+		if (region.width < 0 || region.height < 0 || region.x < 0 || region.y < 0
+				|| region.x + region.width > this.width || region.y + region.height > this.height) {
+			throw new IllegalArgumentException("Region must lie inside the cell map");
+		}
+		final boolean[][] res = new boolean[region.height][region.width];
+		for (int i = 0; i < region.height; i++) {
+			final int rowStart = (region.y + i) * this.width + region.x;
+			if (this.dense != null) {
+				System.arraycopy(this.dense[region.y + i], region.x, res[i], 0, region.width);
+			} else if (this.indexes != null) {
+				for (int k = firstIndexFrom(rowStart); k < this.indexes.length && this.indexes[k] < rowStart + region.width; k++) {
+					res[i][this.indexes[k] - rowStart] = true;
+				}
+			} else {
+				for (int j = 0; j < region.width; j++) {
+					final long index = (long) rowStart + j;
+					res[i][j] = (this.bits[(int) (index >>> 6)] & 1L << index) != 0;
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Gets the states as an array, row by row. Dense states are returned without copy,
+	 * so the array must not be modified.
+	 *
+	 * @return the states of the cells.
+	 */
+	public boolean[][] toArray() {
+		if (this.dense != null) {
+			return this.dense;
+		}
+		final boolean[][] res = new boolean[this.height][this.width];
+		if (this.indexes != null) {
+			for (final int index : this.indexes) {
+				res[index / this.width][index % this.width] = true;
+			}
+		} else {
+			for (int w = 0; w < this.bits.length; w++) {
+				for (long word = this.bits[w]; word != 0; word &= word - 1) {
+					final long index = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+					res[(int) (index / this.width)][(int) (index % this.width)] = true;
+				}
+			}
+		}
+		return res;
+	}
+
+}
@@ -0,0 +1,244 @@
+package model;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * This class accumulates the population statistics of a generation while its
+ * cells are computed. Each worker fills its own accumulator, without
+ * synchronization, and the accumulators are merged once the generation is complete.
+ * An accumulator either counts every cell of a generation ({@link #add}), or only
+ * the cells which changed state ({@link #addChange}): merging the changes into the
+ * totals of the previous generation gives the totals of the new one, except for the
+ * bounding box, which is then supplied by the model.
+ * Only the range of regions touched since the last reset is merged and cleared,
+ * so that accumulators covering a small part of the map are cheap to merge and reuse.
+ *
+ */
+public class PopulationAccumulator {
+
+	private final int width;
+	private final int height;
+	private final int regionSize;
+	private final int regionsPerRow;
+	private final int[] regionCounts;
+
+	private long aliveCells;
+	private long births;
+	private long deaths;
+	// Sum of the mixed indexes of the cells born, minus the ones of the cells dead
+	private long changesHash;
+	private long sumX, sumY;
+	private int minX, minY, maxX, maxY;
+	// Range of regions with alive cells since the last reset
+	private int firstRegion, lastRegion;
+
+
+	/**
+	 * Constructs an empty accumulator.
+	 *
+	 * @param mapDimension
+	 * 		the dimension of the cell map
+	 * @param regionSize
+	 * 		the side (in cells) of the regions whose density is counted
+	 */
+	public PopulationAccumulator(final Dimension mapDimension, final int regionSize) {
+		Objects.requireNonNull(mapDimension);
+		if (regionSize < 1) {
+			throw new IllegalArgumentException("Region size must be positive");
+		}
+		this.width = mapDimension.width;
+		this.height = mapDimension.height;
+		this.regionSize = regionSize;
+		this.regionsPerRow = (this.width + regionSize - 1) / regionSize;
+		this.regionCounts = new int[this.regionsPerRow * ((this.height + regionSize - 1) / regionSize)];
+		this.firstRegion = this.regionCounts.length;
+		this.lastRegion = -1;
+		reset();
+	}
+
+	/**
+	 * Accounts for a computed cell.
+	 *
+	 * @param x
+	 * 		the column of the cell
+	 * @param y
+	 * 		the row of the cell
+	 * @param previous
+	 * 		the state of the cell in the previous result
+	 * @param current
+	 * 		the state of the cell in the generation
+	 */
+	public void add(final int x, final int y, final boolean previous, final boolean current) {
+		if (current) {
+			this.aliveCells++;
+			if (!previous) {
+				this.births++;
+				this.changesHash += mix(y, x);
+			}
+			this.sumX += x;
+			this.sumY += y;
+			this.minX = Math.min(this.minX, x);
+			this.minY = Math.min(this.minY, y);
+			this.maxX = Math.max(this.maxX, x);
+			this.maxY = Math.max(this.maxY, y);
+			final int region = (y / this.regionSize) * this.regionsPerRow + x / this.regionSize;
+			this.regionCounts[region]++;
+			this.firstRegion = Math.min(this.firstRegion, region);
+			this.lastRegion = Math.max(this.lastRegion, region);
+		} else if (previous) {
+			this.deaths++;
+			this.changesHash -= mix(y, x);
+		}
+	}
+
+	/**
+	 * Accounts for a cell which changed state, without counting the unchanged ones.
+	 *
+	 * @param x
+	 * 		the column of the cell
+	 * @param y
+	 * 		the row of the cell
+	 * @param current
+	 * 		the state of the cell in the generation (the opposite of the previous one)
+	 */
+	public void addChange(final int x, final int y, final boolean current) {
+		final int region = (y / this.regionSize) * this.regionsPerRow + x / this.regionSize;
+		if (current) {
+			this.aliveCells++;
+			this.births++;
+			this.changesHash += mix(y, x);
+			this.sumX += x;
+			this.sumY += y;
+			this.regionCounts[region]++;
+		} else {
+			this.aliveCells--;
+			this.deaths++;
+			this.changesHash -= mix(y, x);
+			this.sumX -= x;
+			this.sumY -= y;
+			this.regionCounts[region]--;
+		}
+		this.firstRegion = Math.min(this.firstRegion, region);
+		this.lastRegion = Math.max(this.lastRegion, region);
+	}
+
+	/**
+	 * Adds the statistics of another accumulator of the same map to this one.
+	 *
+	 * @param other
+	 * 		the accumulator to merge
+	 */
+	public void merge(final PopulationAccumulator other) {
+		if (other.regionCounts.length != this.regionCounts.length || other.regionSize != this.regionSize) {
+			throw new IllegalArgumentException("Accumulators must have the same regions");
+		}
+		this.aliveCells += other.aliveCells;
+		this.births += other.births;
+		this.deaths += other.deaths;
+		this.changesHash += other.changesHash;
+		this.sumX += other.sumX;
+		this.sumY += other.sumY;
+		this.minX = Math.min(this.minX, other.minX);
+		this.minY = Math.min(this.minY, other.minY);
+		this.maxX = Math.max(this.maxX, other.maxX);
+		this.maxY = Math.max(this.maxY, other.maxY);
+		for (int r = other.firstRegion; r <= other.lastRegion; r++) {
+			this.regionCounts[r] += other.regionCounts[r];
+		}
+		this.firstRegion = Math.min(this.firstRegion, other.firstRegion);
+		this.lastRegion = Math.max(this.lastRegion, other.lastRegion);
+	}
+
+	/**
+	 * Empties the accumulator, so that it can be reused for another generation.
+	 */
+	public void reset() {
+		this.aliveCells = 0;
+		this.births = 0;
+		this.deaths = 0;
+		this.changesHash = 0;
+		this.sumX = 0;
+		this.sumY = 0;
+		this.minX = Integer.MAX_VALUE;
+		this.minY = Integer.MAX_VALUE;
+		this.maxX = -1;
+		this.maxY = -1;
+		if (this.lastRegion >= 0) {
+			Arrays.fill(this.regionCounts, this.firstRegion, this.lastRegion + 1, 0);
+		}
+		this.firstRegion = this.regionCounts.length;
+		this.lastRegion = -1;
+	}
+
+	/**
+	 * Empties the births and deaths only, keeping the totals of the alive cells,
+	 * so that the changes of a new generation can be merged.
+	 */
+	public void resetChanges() {
+		this.births = 0;
+		this.deaths = 0;
+		this.changesHash = 0;
+	}
+
+	/**
+	 * @return the number of alive cells accounted so far.
+	 */
+	public long getAliveCells() {
+		return this.aliveCells;
+	}
+
+	/**
+	 * @return the hash of the changes accounted so far: the sum of the mixed indexes of the cells
+	 * born, minus the ones of the cells dead. Added to the hash of the states of the previous
+	 * generation (the sum of the mixed indexes of its alive cells), it gives the one of the new generation.
+	 */
+	public long getChangesHash() {
+		return this.changesHash;
+	}
+
+	/*
+	 * Mixes the bits of the index of a cell (SplitMix64 finalizer).
+	 */
+	private long mix(final int y, final int x) {
+		long z = ((long) y * this.width + x + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Creates the statistics of the accumulated generation.
+	 *
+	 * @param generation
+	 * 		the number of the generation
+	 * @return the immutable statistics.
+	 */
+	public PopulationStatistics toStatistics(final long generation) {
+		return toStatistics(generation, this.aliveCells == 0 ? Optional.empty()
+				: Optional.of(new Rectangle(this.minX, this.minY, this.maxX - this.minX + 1, this.maxY - this.minY + 1)));
+	}
+
+	/**
+	 * Creates the statistics of the accumulated generation, with a bounding box
+	 * computed elsewhere (e.g. when only the changes have been accumulated).
+	 *
+	 * @param generation
+	 * 		the number of the generation
+	 * @param boundingBox
+	 * 		the smallest rectangle containing the alive cells, if any
+	 * @return the immutable statistics.
+	 */
+	public PopulationStatistics toStatistics(final long generation, final Optional<Rectangle> boundingBox) {
+		final boolean empty = this.aliveCells == 0;
+		return new PopulationStatistics(generation, this.aliveCells, this.births, this.deaths, boundingBox,
+				empty ? Optional.empty()
+						: Optional.of(new Point2D.Double((double) this.sumX / this.aliveCells, (double) this.sumY / this.aliveCells)),
+				this.width, this.height, this.regionSize, this.regionCounts);
+	}
+
+}
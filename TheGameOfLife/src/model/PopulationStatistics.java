@@ -0,0 +1,165 @@
+package model;
+
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.util.Optional;
+
+/**
+ * This class represents the population statistics of a generation of the game:
+ * alive cells, births and deaths since the previous result, bounding box and
+ * center of mass of the alive cells, and number of alive cells in each region
+ * of the map (square regions, in row-major order).
+ * It is immutable.
+ *
+ */
+public class PopulationStatistics {
+
+	private final long generation;
+	private final long aliveCells;
+	private final long births;
+	private final long deaths;
+	private final Optional<Rectangle> boundingBox;
+	private final Optional<Point2D> centerOfMass;
+	private final int regionSize;
+	private final int regionsPerRow;
+	private final int[] regionCounts;
+	private final int width;
+	private final int height;
+
+
+	/**
+	 * Constructs new population statistics.
+	 *
+	 * @param generation
+	 * 		the number of the generation
+	 * @param aliveCells
+	 * 		the number of alive cells
+	 * @param births
+	 * 		the number of cells born since the previous result
+	 * @param deaths
+	 * 		the number of cells dead since the previous result
+	 * @param boundingBox
+	 * 		the smallest rectangle containing the alive cells, if any
+	 * @param centerOfMass
+	 * 		the average position of the alive cells, if any
+	 * @param width
+	 * 		the width of the cell map
+	 * @param height
+	 * 		the height of the cell map
+	 * @param regionSize
+	 * 		the side (in cells) of the regions
+	 * @param regionCounts
+	 * 		the number of alive cells in each region, in row-major order
+	 */
+	public PopulationStatistics(final long generation, final long aliveCells, final long births, final long deaths,
+			final Optional<Rectangle> boundingBox, final Optional<Point2D> centerOfMass,
+			final int width, final int height, final int regionSize, final int[] regionCounts) {
+		this.generation = generation;
+		this.aliveCells = aliveCells;
+		this.births = births;
+		this.deaths = deaths;
+		this.boundingBox = boundingBox.map(Rectangle::new);
+		this.centerOfMass = centerOfMass.map(p -> new Point2D.Double(p.getX(), p.getY()));
+		this.width = width;
+		this.height = height;
+		this.regionSize = regionSize;
+		this.regionsPerRow = (width + regionSize - 1) / regionSize;
+		this.regionCounts = regionCounts.clone();
+	}
+
+	/**
+	 * @return the number of the generation.
+	 */
+	public long getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * @return the number of alive cells.
+	 */
+	public long getAliveCells() {
+		return this.aliveCells;
+	}
+
+	/**
+	 * @return the number of cells born since the previous result.
+	 */
+	public long getBirths() {
+		return this.births;
+	}
+
+	/**
+	 * @return the number of cells dead since the previous result.
+	 */
+	public long getDeaths() {
+		return this.deaths;
+	}
+
+	/**
+	 * @return the smallest rectangle containing the alive cells,
+	 * empty if there are no alive cells.
+	 */
+	public Optional<Rectangle> getBoundingBox() {
+		return this.boundingBox.map(Rectangle::new);
+	}
+
+	/**
+	 * @return the average position of the alive cells,
+	 * empty if there are no alive cells.
+	 */
+	public Optional<Point2D> getCenterOfMass() {
+		return this.centerOfMass.map(p -> new Point2D.Double(p.getX(), p.getY()));
+	}
+
+	/**
+	 * @return the side (in cells) of the regions.
+	 */
+	public int getRegionSize() {
+		return this.regionSize;
+	}
+
+	/**
+	 * @return the number of regions in each row.
+	 */
+	public int getRegionsPerRow() {
+		return this.regionsPerRow;
+	}
+
+	/**
+	 * @return the number of rows of regions.
+	 */
+	public int getRegionRows() {
+		return this.regionCounts.length / this.regionsPerRow;
+	}
+
+	/**
+	 * @param x
+	 * 		the column of the region
+	 * @param y
+	 * 		the row of the region
+	 * @return the number of alive cells in the region.
+	 */
+	public int getRegionCount(final int x, final int y) {
+		return this.regionCounts[y * this.regionsPerRow + x];
+	}
+
+	/**
+	 * @param x
+	 * 		the column of the region
+	 * @param y
+	 * 		the row of the region
+	 * @return the fraction of alive cells in the region, between 0 and 1.
+	 */
+	public double getRegionDensity(final int x, final int y) {
+		final int regionWidth = Math.min(this.regionSize, this.width - x * this.regionSize);
+		final int regionHeight = Math.min(this.regionSize, this.height - y * this.regionSize);
+		return (double) getRegionCount(x, y) / (regionWidth * regionHeight);
+	}
+
+	@Override
+	public String toString() {
+		return "Generation " + this.generation + ": " + this.aliveCells + " alive, "
+				+ this.births + " births, " + this.deaths + " deaths";
+	}
+
+}
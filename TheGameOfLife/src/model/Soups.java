@@ -0,0 +1,37 @@
+package model;
+
+import java.awt.Dimension;
+import java.util.Random;
+
+/**
+ * This class creates random soups to start universes from.
+ * The same seed always gives the same soup, so that runs can be repeated and compared.
+ *
+ */
+public final class Soups {
+
+	private Soups() { }
+
+	/**
+	 * Creates a random soup, drawing the cells row by row.
+	 *
+	 * @param mapDimension
+	 * 		the dimension of the cell map
+	 * @param density
+	 * 		the fraction of alive cells, between 0 and 1
+	 * @param seed
+	 * 		the seed of the random generator
+	 * @return the states of the cells.
+	 */
+	public static boolean[][] random(final Dimension mapDimension, final double density, final long seed) {
+		final Random random = new Random(seed);
+		final boolean[][] res = new boolean[mapDimension.height][mapDimension.width];
+		for (final boolean[] row : res) {
+			for (int j = 0; j < row.length; j++) {
+				row[j] = random.nextDouble() < density;
+			}
+		}
+		return res;
+	}
+
+}
@@ -0,0 +1,58 @@
+package model;
+
+/**
+ * This enumeration represents how the states of a generation are stored
+ * while they wait to be displayed.
+ *
+ */
+public enum StateRepresentation {
+
+	/**
+	 * One boolean per cell, row by row: the fastest to read.
+	 */
+	DENSE {
+		@Override
+		public long estimateBytes(final int width, final int height, final long aliveCells) {
+			return (long) width * height + ARRAY_HEADER_BYTES * ((long) height + 1);
+		}
+	},
+
+	/**
+	 * One bit per cell, row by row.
+	 */
+	BIT_PACKED {
+		@Override
+		public long estimateBytes(final int width, final int height, final long aliveCells) {
+			return Long.BYTES * (((long) width * height + Long.SIZE - 1) / Long.SIZE) + ARRAY_HEADER_BYTES;
+		}
+	},
+
+	/**
+	 * The indexes of the alive cells only: the smallest for sparse populations.
+	 */
+	SPARSE {
+		@Override
+		public long estimateBytes(final int width, final int height, final long aliveCells) {
+			return Integer.BYTES * aliveCells + ARRAY_HEADER_BYTES;
+		}
+	};
+
+	/**
+	 * Approximate size of the header of an array, in bytes.
+	 */
+	public static final long ARRAY_HEADER_BYTES = 16;
+
+	/**
+	 * Estimates the size of the states of a generation.
+	 *
+	 * @param width
+	 * 		the width of the cell map
+	 * @param height
+	 * 		the height of the cell map
+	 * @param aliveCells
+	 * 		the number of alive cells of the generation
+	 * @return the approximate size of the states, in bytes.
+	 */
+	public abstract long estimateBytes(int width, int height, long aliveCells);
+
+}
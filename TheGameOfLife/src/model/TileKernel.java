@@ -0,0 +1,50 @@
+package model;
+
+/**
+ * This interface represents a kernel advancing a rectangular tile of a cell map
+ * by several generations at once.
+ * The tile is loaded together with a halo as wide as the number of generations
+ * into a small buffer, which stays in cache while the generations are computed:
+ * at each generation the computed area shrinks by one cell on each side, so that
+ * after the last one exactly the tile is left, with the same states a generation
+ * by generation computation would produce.
+ * Cells outside the cell map are always dead.
+ * A kernel keeps its buffers between calls, so it must be used by one thread at a time.
+ *
+ */
+public interface TileKernel {
+
+	/**
+	 * Computes the states of a tile after the specified number of generations.
+	 * They can be read with {@link #getState(int, int)} until the next call.
+	 *
+	 * @param cells
+	 * 		the states of the cell map, row by row
+	 * @param mapWidth
+	 * 		the width of the cell map
+	 * @param mapHeight
+	 * 		the height of the cell map
+	 * @param x
+	 * 		the first column of the tile
+	 * @param y
+	 * 		the first row of the tile
+	 * @param width
+	 * 		the width of the tile
+	 * @param height
+	 * 		the height of the tile
+	 * @param generations
+	 * 		the number of generations to compute
+	 */
+	void advance(boolean[] cells, int mapWidth, int mapHeight,
+			int x, int y, int width, int height, int generations);
+
+	/**
+	 * @param x
+	 * 		the column of a cell of the last advanced tile
+	 * @param y
+	 * 		the row of a cell of the last advanced tile
+	 * @return the state of the cell after the computed generations.
+	 */
+	boolean getState(int x, int y);
+
+}
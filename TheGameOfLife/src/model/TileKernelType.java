@@ -0,0 +1,42 @@
+package model;
+
+import java.util.function.Supplier;
+
+/**
+ * This enumeration represents the kernels a cell map can use to compute its tiles.
+ *
+ */
+public enum TileKernelType {
+
+	/**
+	 * Counts the neighbors of each cell: see {@link NeighborCountKernel}.
+	 */
+	NEIGHBOR_COUNT {
+		@Override
+		public Supplier<TileKernel> newFactory(final LifeRule rule) {
+			return () -> new NeighborCountKernel(rule);
+		}
+	},
+
+	/**
+	 * Computes 2x2 blocks of cells by looking up their 4x4 surroundings in a table
+	 * of 64 KB, built once for all the kernels: see {@link LookupTableKernel}.
+	 */
+	LOOKUP_TABLE {
+		@Override
+		public Supplier<TileKernel> newFactory(final LifeRule rule) {
+			final byte[] table = LookupTableKernel.createTable(rule);
+			return () -> new LookupTableKernel(table);
+		}
+	};
+
+	/**
+	 * Prepares the creation of the kernels of a cell map, one for each thread computing its tiles.
+	 *
+	 * @param rule
+	 * 		the rule of the cell map
+	 * @return the factory of the kernels.
+	 */
+	public abstract Supplier<TileKernel> newFactory(LifeRule rule);
+
+}
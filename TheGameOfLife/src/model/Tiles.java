@@ -0,0 +1,95 @@
+package model;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.List;
+
+/**
+ * This class computes which tiles of a cell map the alive cells can reach within
+ * some generations: a generation changes states at most one cell away from the
+ * alive ones, so only the tiles of the live box grown by the generations need to be computed.
+ * Every computation by tiles goes through it, so that they all compute the same tiles.
+ * It allocates nothing but the points of the tiles beyond the reused ones.
+ *
+ */
+public final class Tiles {
+
+	private Tiles() { }
+
+	/*
+	 * Gets the first tile (column or row) reachable from the first alive cell.
+	 */
+	private static int firstTile(final int first, final int generations, final int tileSize) {
+		return Math.max(first - generations, 0) / tileSize;
+	}
+
+	/*
+	 * Gets the last tile (column or row) reachable from the last alive cell.
+	 */
+	private static int lastTile(final int last, final int generations, final int size, final int tileSize) {
+		return Math.min(last + generations, size - 1) / tileSize;
+	}
+
+	/**
+	 * Fills the list, row by row as positions in the grid of tiles, with the tiles that the
+	 * alive cells can reach within some generations, reusing the points of the previous calls.
+	 *
+	 * @param liveBox
+	 * 		the bounding box of the alive cells, not empty
+	 * @param generations
+	 * 		the number of generations
+	 * @param mapWidth
+	 * 		the width of the cell map
+	 * @param mapHeight
+	 * 		the height of the cell map
+	 * @param tileSize
+	 * 		the side of a tile
+	 * @param tiles
+	 * 		the list to fill (cleared first)
+	 * @param points
+	 * 		the points of the previous calls, extended when the list grows beyond them
+	 */
+	public static void listReachable(final Rectangle liveBox, final int generations, final int mapWidth,
+			final int mapHeight, final int tileSize, final List<Point> tiles, final List<Point> points) {
+		tiles.clear();
+		final int x1 = lastTile(liveBox.x + liveBox.width - 1, generations, mapWidth, tileSize);
+		final int y1 = lastTile(liveBox.y + liveBox.height - 1, generations, mapHeight, tileSize);
+		for (int i = firstTile(liveBox.y, generations, tileSize); i <= y1; i++) {
+			for (int j = firstTile(liveBox.x, generations, tileSize); j <= x1; j++) {
+				if (tiles.size() == points.size()) {
+					points.add(new Point());
+				}
+				final Point tile = points.get(tiles.size());
+				tile.x = j;
+				tile.y = i;
+				tiles.add(tile);
+			}
+		}
+	}
+
+	/**
+	 * Counts the cells of the tiles that the alive cells can reach within some generations,
+	 * each tile counting as a whole one.
+	 *
+	 * @param liveBox
+	 * 		the bounding box of the alive cells, not empty
+	 * @param generations
+	 * 		the number of generations
+	 * @param mapWidth
+	 * 		the width of the cell map
+	 * @param mapHeight
+	 * 		the height of the cell map
+	 * @param tileSize
+	 * 		the side of a tile
+	 * @return the number of cells of the reachable tiles.
+	 */
+	public static long countReachableCells(final Rectangle liveBox, final int generations, final int mapWidth,
+			final int mapHeight, final int tileSize) {
+		final int columns = lastTile(liveBox.x + liveBox.width - 1, generations, mapWidth, tileSize)
+				- firstTile(liveBox.x, generations, tileSize) + 1;
+		final int rows = lastTile(liveBox.y + liveBox.height - 1, generations, mapHeight, tileSize)
+				- firstTile(liveBox.y, generations, tileSize) + 1;
+		return (long) columns * rows * tileSize * tileSize;
+	}
+
+}
@@ -0,0 +1,71 @@
+package model;
+
+import java.awt.Rectangle;
+
+/**
+ * This class represents the states of a region of the cell map
+ * in a generation, published before the rest of the generation is complete.
+ *
+ */
+public class ViewportResult {
+
+	private final long generationNumber;
+	private final Rectangle region;
+	private final boolean[][] states;
+
+	/**
+	 * Constructs a new ViewportResult.
+	 *
+	 * @param generationNumber
+	 * 		the number of the generation
+	 * @param region
+	 * 		the region of the cell map
+	 * @param states
+	 * 		the states of the cells of the region, row by row from its top left corner
+	 */
+	public ViewportResult(final long generationNumber, final Rectangle region, final boolean[][] states) {
+		this.generationNumber = generationNumber;
+		this.region = new Rectangle(region);
+		this.states = states;
+	}
+
+	/**
+	 * @return the number of the generation
+	 */
+	public long getGenerationNumber() {
+		return this.generationNumber;
+	}
+
+	/**
+	 * @return the region of the cell map
+	 */
+	public Rectangle getRegion() {
+		return new Rectangle(this.region);
+	}
+
+	/**
+	 * @return true if the region contains the specified one.
+	 */
+	public boolean covers(final Rectangle region) {
+		return this.region.contains(region);
+	}
+
+	/**
+	 * @param x
+	 * 		the column of the cell in the cell map
+	 * @param y
+	 * 		the row of the cell in the cell map
+	 * @return the state of the cell, which must lie inside the region.
+	 */
+	public boolean getCellState(final int x, final int y) {
+		return this.states[y - this.region.y][x - this.region.x];
+	}
+
+	/**
+	 * @return the states of the cells of the region, row by row from its top left corner
+	 */
+	public boolean[][] getStates() {
+		return this.states;
+	}
+
+}
@@ -1,11 +1,15 @@
 package view;
 
-import java.util.concurrent.CountDownLatch;
+import java.awt.Rectangle;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javafx.application.Platform;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
+import model.PackedStates;
+import model.ViewportResult;
 
 public class CellMap extends Canvas {
 	
@@ -15,11 +19,34 @@ public class CellMap extends Canvas {
 	private static final Color ALIVE_CELL_COLOR = Color.AQUA;
 	
 	private CellMapViewer container;
-	private boolean[][] cells;
+	private volatile PackedStates cells;
+	// States of the visible region published before the rest of a newer generation (null if none)
+	private volatile ViewportResult viewport;
 	
-	private int xPosition, yPosition;
+	private volatile int xPosition, yPosition;
 	
-	public CellMap() { }
+	// Rasterizes frames outside the FX thread, in submission order
+	private final ExecutorService rasterizer;
+	private final CellMapRenderer renderer;
+	
+	public CellMap() {
+		this.rasterizer = Executors.newSingleThreadExecutor(r -> {
+			final Thread t = new Thread(r, "CellMap rasterizer");
+			t.setDaemon(true);
+			return t;
+		});
+		this.renderer = new CellMapRenderer(CELL_SIZE, CELL_OFFSET, toArgb(BACKGROUND_COLOR), toArgb(ALIVE_CELL_COLOR));
+	}
+	
+	/*
+	 * Converts a color into its ARGB representation.
+	 */
+	static int toArgb(final Color color) {
+		return ((int) Math.round(color.getOpacity() * 255) << 24)
+				| ((int) Math.round(color.getRed() * 255) << 16)
+				| ((int) Math.round(color.getGreen() * 255) << 8)
+				| (int) Math.round(color.getBlue() * 255);
+	}
 	
 	
 	/**
@@ -27,9 +54,31 @@ public class CellMap extends Canvas {
 	 * @param cells
 	 * 		cells to draw
 	 */
-	public void setCellsToDraw (final boolean[][] cells, CountDownLatch latch) {
+	public void setCellsToDraw (final PackedStates cells) {
 		this.cells = cells;
-		draw(latch);
+		this.viewport = null;
+		draw();
+	}
+	
+	/**
+	 * Set cells without drawing them, since the region to draw is at least as new:
+	 * they are drawn once the region no longer covers the visible one
+	 * @param cells
+	 * 		cells to keep
+	 */
+	public void setCells(final PackedStates cells) {
+		this.cells = cells;
+	}
+	
+	/**
+	 * Set the states of a region to draw on screen, newer than the cells.
+	 * They are drawn as long as the region covers the visible one.
+	 * @param viewport
+	 * 		states of the region to draw
+	 */
+	public void setViewportToDraw(final ViewportResult viewport) {
+		this.viewport = viewport;
+		draw();
 	}
 	
 	/**
@@ -47,13 +96,18 @@ public class CellMap extends Canvas {
 	 * Clear all drawing in the CellMap
 	 */
 	private void clear() {
-		Platform.runLater(new Runnable() {			
-			@Override
-			public void run() {
-				final GraphicsContext gc = getGraphicsContext2D();
-				gc.setFill(BACKGROUND_COLOR);
-				gc.fillRect(0, 0, getWidth(), getHeight());			
-			}
+		// Goes through the rasterizer, so that frames still pending are not drawn after it
+		this.rasterizer.execute(() -> {
+			// The next frame will be fully repainted
+			this.renderer.reset();
+			Platform.runLater(new Runnable() {			
+				@Override
+				public void run() {
+					final GraphicsContext gc = getGraphicsContext2D();
+					gc.setFill(BACKGROUND_COLOR);
+					gc.fillRect(0, 0, getWidth(), getHeight());			
+				}
+			});
 		});
 	}
 	
@@ -68,55 +122,47 @@ public class CellMap extends Canvas {
 		this.xPosition = x;
 		this.yPosition = y;
 		
-		draw(null);
+		draw();
 	}
 	
 	
 	/**
-	 * Draw the cells considering current position
+	 * Draw the cells considering current position.
+	 * The visible region is decoded and rasterized outside the FX thread, which then only
+	 * pushes to the screen the cells changed since the last frame (or the whole
+	 * region after a scroll or a resize).
 	 */
-	private void draw(CountDownLatch latch) {
-		Platform.runLater(() -> {
-			if (cells != null) {		
-				//Getting current position of preview (of total map)
-				final int containerXposition = xPosition;
-				final int containerYposition = yPosition;
-				
-				//Getting how many squares I can draw in X and Y
-				final int drawableXCells = getDrawableXCellsNumber();
-				final int drawableYCells = getDrawableYCellsNumber();
-				
-				//X value of inferior limit of cells I'm able to draw
-				final int xOffset = containerXposition * drawableXCells;
-				final int yOffset = containerYposition * drawableYCells;
-				
-				//X value of superior limit of cells I'm able to draw
-				final int xMaxOffset = (containerXposition + 1) * drawableXCells;
-				final int yMaxOffset = (containerYposition + 1) * drawableYCells;
-			
-				//Take the min of MAX (144) and real matrix preview (may be minor, 10x10 have 10x and 10y limit)
-				final int minX = Math.min(xMaxOffset, cells[0].length);
-				final int minY = Math.min(yMaxOffset, cells.length);
-				
-				//Create the graphics and clear the previous
-				final GraphicsContext gc = getGraphicsContext2D();
-				gc.clearRect(0, 0, getWidth(), getHeight());
-				gc.setFill(ALIVE_CELL_COLOR);	
-				
-				//Draw inside the limits
-				for (int i = yOffset; i < minY; i++) {
-					for (int j = xOffset; j < minX; j++) {
-						
-						//Check if cell is alive (for coloring)
-						if (cells[i][j]) {
-	        				gc.fillRect((j - xOffset) * CELL_OFFSET, (i - yOffset) * CELL_OFFSET, CELL_SIZE, CELL_SIZE);		     
-						}
-					}
-				}	
+	private void draw() {
+		final PackedStates frame = this.cells;
+		final ViewportResult partial = this.viewport;
+		
+		//Getting current position of preview (of total map)
+		final int containerXposition = this.xPosition;
+		final int containerYposition = this.yPosition;
+		
+		//Getting how many squares I can draw in X and Y
+		final int drawableXCells = getDrawableXCellsNumber();
+		final int drawableYCells = getDrawableYCellsNumber();
+		
+		this.rasterizer.execute(() -> {
+			final int xOffset = containerXposition * drawableXCells;
+			final int yOffset = containerYposition * drawableYCells;
+			if (partial != null && partial.covers(new Rectangle(xOffset, yOffset, drawableXCells, drawableYCells))) {
+				//Rasterizes the newer states of the visible region
+				final Rectangle region = partial.getRegion();
+				this.renderer.render(partial.getStates(), region.x, region.y, xOffset, yOffset, drawableXCells, drawableYCells);
+				Platform.runLater(() -> this.renderer.publish(getGraphicsContext2D()));
+			} else if (frame != null) {
+				//Decodes and rasterizes only the cells inside the limits of the preview
+				final Rectangle visible = new Rectangle(xOffset, yOffset, drawableXCells, drawableYCells)
+						.intersection(new Rectangle(frame.getWidth(), frame.getHeight()));
+				if (visible.isEmpty()) {
+					visible.setBounds(0, 0, 0, 0);
+				}
+				this.renderer.render(frame.toArray(visible), visible.x, visible.y, xOffset, yOffset, drawableXCells, drawableYCells);
 				
-				//Ok controller, i finished to draw
-				if (latch != null)
-					latch.countDown();
+				//Pushes the changed pixels only
+				Platform.runLater(() -> this.renderer.publish(getGraphicsContext2D()));
 			}
 		});	
 	}
@@ -141,6 +187,7 @@ public class CellMap extends Canvas {
      */
     public void reset() {
     	this.cells = null;
+    	this.viewport = null;
     	this.clear();
     }
     
@@ -0,0 +1,267 @@
+package view;
+
+import java.util.Arrays;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/**
+ * This class rasterizes the visible region of a cell map into an ARGB pixel buffer.
+ * Rasterization does not touch the scene graph, so it can run outside the FX thread:
+ * the FX thread only has to push the pixels changed since the last frame into a
+ * {@link WritableImage} and draw them.
+ * When the visible region does not move, a new frame is compared with the last rendered one
+ * and only the cells that changed are repainted; the whole region is repainted only
+ * after a scroll or a resize. The rendered states are kept in map coordinates, so frames
+ * made of different parts of the map (the whole map, or a region published first)
+ * can follow each other without a full repaint.
+ *
+ */
+public class CellMapRenderer {
+
+	private final int cellSize;
+	private final int cellOffset;
+	private final int backgroundColor;
+	private final int aliveCellColor;
+
+	// Last rendered frame, states of the visible region and visible region (owned by the rendering thread)
+	private boolean[][] lastCells;
+	private int lastOriginX, lastOriginY;
+	private boolean[][] lastVisible;
+	private int lastXOffset, lastYOffset, lastColumns, lastRows;
+	// Changed cells of the current frame, as (column, row) pairs
+	private int[] changes;
+
+	// Pixel buffer and dirty region, guarded by this
+	private int[] pixels;
+	private int width, height;
+	private boolean fullRepaint;
+	private int[] dirtyMin, dirtyMax;
+	private boolean dirty;
+
+	// Image pushed on screen (owned by the FX thread)
+	private WritableImage image;
+
+
+	/**
+	 * Constructs a new renderer.
+	 *
+	 * @param cellSize
+	 * 		the side of a cell, in pixels
+	 * @param cellOffset
+	 * 		the distance between two adjacent cells, in pixels
+	 * @param backgroundColor
+	 * 		the ARGB color of the background
+	 * @param aliveCellColor
+	 * 		the ARGB color of an alive cell
+	 */
+	public CellMapRenderer(final int cellSize, final int cellOffset, final int backgroundColor, final int aliveCellColor) {
+		this.cellSize = cellSize;
+		this.cellOffset = cellOffset;
+		this.backgroundColor = backgroundColor;
+		this.aliveCellColor = aliveCellColor;
+		this.changes = new int[64];
+		this.pixels = new int[0];
+		this.dirtyMin = new int[0];
+		this.dirtyMax = new int[0];
+	}
+
+	/**
+	 * Rasterizes a region of the cell map. Only the cells changed since the last
+	 * frame are repainted, unless the visible region differs from the last one.
+	 *
+	 * @param cells
+	 * 		the states of the cells
+	 * @param xOffset
+	 * 		the first visible column
+	 * @param yOffset
+	 * 		the first visible row
+	 * @param columns
+	 * 		the number of visible columns
+	 * @param rows
+	 * 		the number of visible rows
+	 */
+	public void render(final boolean[][] cells, final int xOffset, final int yOffset, final int columns, final int rows) {
+		render(cells, 0, 0, xOffset, yOffset, columns, rows);
+	}
+
+	/**
+	 * Rasterizes a region of the cell map from the states of a part of it
+	 * (cells outside the part are drawn as off).
+	 *
+	 * @param cells
+	 * 		the states of the cells of the part
+	 * @param originX
+	 * 		the column of the first cell of the part
+	 * @param originY
+	 * 		the row of the first cell of the part
+	 * @param xOffset
+	 * 		the first visible column
+	 * @param yOffset
+	 * 		the first visible row
+	 * @param columns
+	 * 		the number of visible columns
+	 * @param rows
+	 * 		the number of visible rows
+	 */
+	public void render(final boolean[][] cells, final int originX, final int originY,
+			final int xOffset, final int yOffset, final int columns, final int rows) {
+		final int visibleColumns = Math.max(columns, 0);
+		final int visibleRows = Math.max(rows, 0);
+		if (this.lastVisible == null || xOffset != this.lastXOffset || yOffset != this.lastYOffset
+				|| visibleColumns != this.lastColumns || visibleRows != this.lastRows) {
+			renderAll(cells, originX, originY, xOffset, yOffset, visibleColumns, visibleRows);
+		} else if (cells != this.lastCells || originX != this.lastOriginX || originY != this.lastOriginY) {
+			renderChanges(cells, originX, originY);
+		}
+		this.lastCells = cells;
+		this.lastOriginX = originX;
+		this.lastOriginY = originY;
+		this.lastXOffset = xOffset;
+		this.lastYOffset = yOffset;
+		this.lastColumns = visibleColumns;
+		this.lastRows = visibleRows;
+	}
+
+	/*
+	 * Rasterizes the whole region into a new buffer, then publishes it.
+	 */
+	private void renderAll(final boolean[][] cells, final int originX, final int originY,
+			final int xOffset, final int yOffset, final int columns, final int rows) {
+		final int w = columns * this.cellOffset;
+		final int h = rows * this.cellOffset;
+		final int[] buffer = new int[w * h];
+		Arrays.fill(buffer, this.backgroundColor);
+		final boolean[][] visible = new boolean[rows][columns];
+
+		final int maxY = Math.min(yOffset + rows, originY + cells.length);
+		final int maxX = cells.length > 0 ? Math.min(xOffset + columns, originX + cells[0].length) : 0;
+		for (int i = Math.max(yOffset, originY); i < maxY; i++) {
+			// Draws the first pixel row of the cells, then replicates it
+			final int rowStart = (i - yOffset) * this.cellOffset * w;
+			final boolean[] row = cells[i - originY];
+			boolean alive = false;
+			for (int j = Math.max(xOffset, originX); j < maxX; j++) {
+				if (row[j - originX]) {
+					visible[i - yOffset][j - xOffset] = true;
+					final int start = rowStart + (j - xOffset) * this.cellOffset;
+					Arrays.fill(buffer, start, start + this.cellSize, this.aliveCellColor);
+					alive = true;
+				}
+			}
+			if (alive) {
+				for (int k = 1; k < this.cellSize; k++) {
+					System.arraycopy(buffer, rowStart, buffer, rowStart + k * w, w);
+				}
+			}
+		}
+
+		this.lastVisible = visible;
+		synchronized (this) {
+			this.pixels = buffer;
+			this.width = w;
+			this.height = h;
+			this.fullRepaint = true;
+			this.dirtyMin = new int[rows];
+			this.dirtyMax = new int[rows];
+			clearDirtyRegion();
+		}
+	}
+
+	/*
+	 * Compares the visible region with the rendered states and repaints the changed cells only
+	 * (cells outside the part are off).
+	 */
+	private void renderChanges(final boolean[][] cells, final int originX, final int originY) {
+		int changesNumber = 0;
+		final int partWidth = cells.length > 0 ? cells[0].length : 0;
+		for (int r = 0; r < this.lastRows; r++) {
+			final int i = this.lastYOffset + r;
+			final boolean[] row = i >= originY && i < originY + cells.length ? cells[i - originY] : null;
+			final boolean[] visibleRow = this.lastVisible[r];
+			for (int c = 0; c < this.lastColumns; c++) {
+				final int j = this.lastXOffset + c;
+				final boolean state = row != null && j >= originX && j < originX + partWidth && row[j - originX];
+				if (state != visibleRow[c]) {
+					visibleRow[c] = state;
+					if (changesNumber + 2 > this.changes.length) {
+						this.changes = Arrays.copyOf(this.changes, this.changes.length * 2);
+					}
+					this.changes[changesNumber++] = c;
+					this.changes[changesNumber++] = r;
+				}
+			}
+		}
+		if (changesNumber == 0) {
+			return;
+		}
+
+		synchronized (this) {
+			for (int c = 0; c < changesNumber; c += 2) {
+				final int column = this.changes[c];
+				final int row = this.changes[c + 1];
+				final int color = this.lastVisible[row][column] ? this.aliveCellColor : this.backgroundColor;
+				final int start = row * this.cellOffset * this.width + column * this.cellOffset;
+				for (int k = 0; k < this.cellSize; k++) {
+					Arrays.fill(this.pixels, start + k * this.width, start + k * this.width + this.cellSize, color);
+				}
+				this.dirtyMin[row] = Math.min(this.dirtyMin[row], column);
+				this.dirtyMax[row] = Math.max(this.dirtyMax[row], column);
+			}
+			this.dirty = true;
+		}
+	}
+
+	private void clearDirtyRegion() {
+		Arrays.fill(this.dirtyMin, Integer.MAX_VALUE);
+		Arrays.fill(this.dirtyMax, -1);
+		this.dirty = false;
+	}
+
+	/**
+	 * Forgets the last frame, so that the next one is fully repainted.
+	 * It must be called by the rendering thread.
+	 */
+	public void reset() {
+		this.lastCells = null;
+		this.lastVisible = null;
+	}
+
+	/**
+	 * Pushes the pixels changed since the last call into the image and draws them.
+	 * It must be called on the FX thread.
+	 *
+	 * @param gc
+	 * 		the graphics context where to draw the image
+	 */
+	public synchronized void publish(final GraphicsContext gc) {
+		if (this.width == 0 || this.height == 0) {
+			return;
+		}
+		if (this.image == null || (int) this.image.getWidth() != this.width || (int) this.image.getHeight() != this.height) {
+			this.image = new WritableImage(this.width, this.height);
+			this.fullRepaint = true;
+		}
+		if (this.fullRepaint) {
+			this.image.getPixelWriter().setPixels(0, 0, this.width, this.height,
+					PixelFormat.getIntArgbInstance(), this.pixels, 0, this.width);
+			gc.drawImage(this.image, 0, 0);
+		} else if (this.dirty) {
+			// Pushes and draws one rectangle for each row of cells with changes
+			for (int row = 0; row < this.dirtyMin.length; row++) {
+				if (this.dirtyMax[row] >= 0) {
+					final int x = this.dirtyMin[row] * this.cellOffset;
+					final int y = row * this.cellOffset;
+					final int w = (this.dirtyMax[row] - this.dirtyMin[row]) * this.cellOffset + this.cellSize;
+					this.image.getPixelWriter().setPixels(x, y, w, this.cellSize,
+							PixelFormat.getIntArgbInstance(), this.pixels, y * this.width + x, this.width);
+					gc.drawImage(this.image, x, y, w, this.cellSize, x, y, w, this.cellSize);
+				}
+			}
+		}
+		this.fullRepaint = false;
+		clearDirtyRegion();
+	}
+
+}
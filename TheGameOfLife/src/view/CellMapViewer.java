@@ -1,13 +1,15 @@
 package view;
 
 import java.awt.Dimension;
-import java.util.concurrent.CountDownLatch;
+import java.awt.Rectangle;
 
 import controller.GameController;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.control.Button;
 import javafx.scene.layout.BorderPane;
+import model.PackedStates;
+import model.ViewportResult;
 
 public class CellMapViewer extends BorderPane {
 
@@ -91,8 +93,26 @@ public class CellMapViewer extends BorderPane {
 	 * @param cells
 	 * 		cells to draw
 	 */
-	public void drawCells(final boolean[][] cells, CountDownLatch latch) {
-		this.cellMap.setCellsToDraw(cells, latch);
+	public void drawCells(final PackedStates cells) {
+		this.cellMap.setCellsToDraw(cells);
+	}
+	
+	/**
+	 * Set the cells, drawn once the region published before them no longer covers the visible cells
+	 * @param cells
+	 * 		cells to keep
+	 */
+	public void setCells(final PackedStates cells) {
+		this.cellMap.setCells(cells);
+	}
+	
+	/**
+	 * Draw the states of a region published before the rest of its generation
+	 * @param viewport
+	 * 		states of the region to draw
+	 */
+	public void drawViewport(final ViewportResult viewport) {
+		this.cellMap.setViewportToDraw(viewport);
 	}
 	
 	/**
@@ -102,6 +122,7 @@ public class CellMapViewer extends BorderPane {
 		final Dimension mapDimension = controller.getCellMapDimension();
 		this.mapXLimit = (int) (mapDimension.width / cellMap.getDrawableXCellsNumber());
 		this.mapYLimit = (int) (mapDimension.height / cellMap.getDrawableYCellsNumber());
+		updateViewport();
 	}
 	
 	/**
@@ -190,6 +211,16 @@ public class CellMapViewer extends BorderPane {
 	private void updateMenuState() {
 		this.cellMap.updatePosition(xPosition, yPosition);
 		this.container.getMenuPanel().setCurrentPosition(xPosition, yPosition);
+		updateViewport();
+	}
+	
+	/**
+	 * Tells the controller which cells are visible, so that they can be computed first
+	 */
+	private void updateViewport() {
+		final int drawableX = getDrawableXCellsNumber();
+		final int drawableY = getDrawableYCellsNumber();
+		this.controller.setViewport(new Rectangle(xPosition * drawableX, yPosition * drawableY, drawableX, drawableY));
 	}
 
 }
@@ -0,0 +1,144 @@
+package view;
+
+import controller.LatestFrameSlot;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import model.GenerationResult;
+import model.PackedStates;
+import model.ViewportResult;
+
+/**
+ * This class renders the generations of the game on the pulses of the FX thread.
+ * At each pulse, if the minimum time since the last rendered frame has passed,
+ * it takes the newest generation from the slot filled by the consumer and shows it:
+ * the consumer never waits for the FX thread, and generations published meanwhile
+ * are not rendered.
+ * The visible region of a generation can be published in another slot before the
+ * rest of the generation: it is drawn if it is newer than the drawn cells, which then
+ * never go back to an older generation while the game is running. A generation whose
+ * visible region (or a newer one) is already drawn is only kept for scrolling, not drawn.
+ *
+ */
+public class FramePacer extends AnimationTimer {
+
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	private final GameOfLifeFrame view;
+	private volatile LatestFrameSlot<GenerationResult> frames;
+	private volatile LatestFrameSlot<ViewportResult> viewportFrames;
+	private volatile long minTickNanos;
+	// Pulse time of the last rendered frame (only accessed by the FX thread)
+	private long lastFrame;
+	// Generation of the drawn cells (only accessed by the FX thread)
+	private long lastCellsGeneration;
+
+
+	/**
+	 * Constructs a new frame pacer.
+	 *
+	 * @param view
+	 * 		the view where to render the generations
+	 */
+	public FramePacer(final GameOfLifeFrame view) {
+		this.view = view;
+	}
+
+	/**
+	 * Starts rendering the generations published in a slot.
+	 *
+	 * @param frames
+	 * 		the slot of the newest generation
+	 * @param viewportFrames
+	 * 		the slot of the newest visible region, published before the rest of its generation
+	 * @param minTickTime
+	 * 		the minimum time between two rendered frames, in milliseconds
+	 */
+	public void startRendering(final LatestFrameSlot<GenerationResult> frames,
+			final LatestFrameSlot<ViewportResult> viewportFrames, final int minTickTime) {
+		setMinTickTime(minTickTime);
+		this.frames = frames;
+		this.viewportFrames = viewportFrames;
+		Platform.runLater(() -> {
+			this.lastFrame = 0;
+			this.lastCellsGeneration = -1;
+			start();
+		});
+	}
+
+	/**
+	 * Sets the minimum time between two rendered frames.
+	 *
+	 * @param minTickTime
+	 * 		the minimum time, in milliseconds
+	 */
+	public void setMinTickTime(final int minTickTime) {
+		this.minTickNanos = minTickTime * NANOS_PER_MILLI;
+	}
+
+	/**
+	 * Stops rendering.
+	 *
+	 * @param showLast
+	 * 		whether to render the last generation not rendered yet, if any
+	 */
+	public void stopRendering(final boolean showLast) {
+		final LatestFrameSlot<GenerationResult> last = this.frames;
+		this.frames = null;
+		this.viewportFrames = null;
+		Platform.runLater(() -> {
+			stop();
+			if (showLast && last != null) {
+				final GenerationResult res = last.poll();
+				if (res != null) {
+					// A newer visible region may belong to a generation abandoned by the stop
+					this.lastCellsGeneration = -1;
+					render(res);
+				}
+			}
+		});
+	}
+
+	@Override
+	public void handle(final long now) {
+		final LatestFrameSlot<GenerationResult> slot = this.frames;
+		final LatestFrameSlot<ViewportResult> viewportSlot = this.viewportFrames;
+		if (slot == null || (this.lastFrame > 0 && now - this.lastFrame < this.minTickNanos)) {
+			return;
+		}
+		final GenerationResult res = slot.poll();
+		final ViewportResult viewport = viewportSlot == null ? null : viewportSlot.poll();
+		// A visible region at least as new as the generation is drawn instead of its cells
+		final boolean newerViewport = viewport != null && viewport.getGenerationNumber() > this.lastCellsGeneration
+				&& (res == null || viewport.getGenerationNumber() >= res.getGenerationNumber());
+		if (newerViewport) {
+			this.lastCellsGeneration = viewport.getGenerationNumber();
+		}
+		if (res != null) {
+			render(res);
+			this.lastFrame = now;
+		}
+		if (newerViewport) {
+			this.view.drawViewport(viewport);
+			this.lastFrame = now;
+		}
+	}
+
+	/*
+	 * Shows a generation and its statistics.
+	 */
+	private void render(final GenerationResult res) {
+		this.view.setGenerationInfo(res.getGenerationNumber(), res.getComputationTime(), res.getAllocatedBytes(),
+				res.getAliveCells());
+		this.view.setPopulationStatistics(res.getStatistics());
+		// Compact states are not decoded here: the view decodes the visible region only
+		final PackedStates cells = res.getStates();
+		this.view.drawOverview(res.getDensity(), cells);
+		if (res.getGenerationNumber() > this.lastCellsGeneration) {
+			this.view.drawCells(cells);
+			this.lastCellsGeneration = res.getGenerationNumber();
+		} else {
+			this.view.setCells(cells);
+		}
+	}
+
+}
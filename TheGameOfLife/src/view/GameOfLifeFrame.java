@@ -2,9 +2,15 @@ package view;
 
 import java.awt.Dimension;
 import java.util.Optional;
-import java.util.concurrent.CountDownLatch;
 
+import controller.ExecutionMetrics;
 import controller.GameController;
+import controller.LatestFrameSlot;
+import model.DensityMap;
+import model.GenerationResult;
+import model.PackedStates;
+import model.PopulationStatistics;
+import model.ViewportResult;
 
 public interface GameOfLifeFrame {
 	
@@ -29,7 +35,58 @@ public interface GameOfLifeFrame {
     /**
      * Updates the view and repaints the cell map panel.
      */
-    void drawCells(boolean[][] cells, CountDownLatch latch);
+    void drawCells(PackedStates cells);
+    
+    /**
+     * Updates the cells of the cell map panel without repainting it, since a region
+     * of the same generation (or of a newer one) is already drawn: they are drawn
+     * once the region no longer covers the visible cells.
+     */
+    void setCells(PackedStates cells);
+    
+    /**
+     * Repaints the visible cells of the cell map panel from the states of a region
+     * published before the rest of its generation.
+     * @param viewport
+     * 		states of the region
+     */
+    void drawViewport(ViewportResult viewport);
+    
+    /**
+     * Starts rendering, at each pulse of the view, the newest generation published in a slot
+     * and the newest visible region published in another one, when it is newer
+     * @param frames
+     * 		slot of the newest generation
+     * @param viewportFrames
+     * 		slot of the newest visible region, published before the rest of its generation
+     * @param minTickTime
+     * 		minimum time between two rendered frames, in milliseconds
+     */
+    void startRendering(LatestFrameSlot<GenerationResult> frames, LatestFrameSlot<ViewportResult> viewportFrames,
+    		int minTickTime);
+    
+    /**
+     * Set the minimum time between two rendered frames
+     * @param minTickTime
+     * 		minimum time between two rendered frames, in milliseconds
+     */
+    void setRenderingSpeed(int minTickTime);
+    
+    /**
+     * Stops rendering the generations of the slot
+     * @param showLast
+     * 		whether to render the last generation not rendered yet, if any
+     */
+    void stopRendering(boolean showLast);
+    
+    /**
+     * Updates the zoomable overview of the whole map.
+     * @param density
+     * 		density pyramid of the current generation
+     * @param cells
+     * 		cells of the current generation, used at the finest zoom level
+     */
+    void drawOverview(DensityMap density, PackedStates cells);
     
     /**
      * Set info about current generation
@@ -37,10 +94,19 @@ public interface GameOfLifeFrame {
      * 		current generation number
      * @param elapsedTime
      * 		time elapsed to calculate current generation
+     * @param allocatedBytes
+     * 		memory allocated to calculate current generation (negative if not measured)
      * @param cellsAlive
      * 		cells that are alive in current generation
      */
-    void setGenerationInfo(long generation, long elapsedTime, long cellsAlive);
+    void setGenerationInfo(long generation, long elapsedTime, long allocatedBytes, long cellsAlive);
+    
+    /**
+     * Set the population statistics of current generation
+     * @param statistics
+     * 		births, deaths, bounding box and center of mass of current generation
+     */
+    void setPopulationStatistics(PopulationStatistics statistics);
     
     /**
      * Set the status as "started"
@@ -73,6 +139,20 @@ public interface GameOfLifeFrame {
      */
     void updateProgress(double value);
     
+    /**
+     * Set the instantaneous computation speed
+     * @param cellsPerSecond
+     * 		number of cells computed per second
+     */
+    void setComputationSpeed(double cellsPerSecond);
+    
+    /**
+     * Set the measures of the current (or last) run
+     * @param metrics
+     * 		start/stop latency and context switches of the run
+     */
+    void setExecutionMetrics(ExecutionMetrics metrics);
+    
     /**
      * Get user input: the dimension of the map 
      * @return
@@ -80,6 +160,13 @@ public interface GameOfLifeFrame {
      */
     Optional<Dimension> getMapDimension();
     
+    /**
+     * Get user input: the rule of the game, in B/S notation (e.g. "B3/S23")
+     * @return
+     * 		the rule of the game
+     */
+    Optional<String> getRule();
+    
     /**
      * Get user input: the minimum refresh time
      * @return
@@ -5,9 +5,10 @@ import java.awt.GraphicsDevice;
 import java.awt.GraphicsEnvironment;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.CountDownLatch;
 
+import controller.ExecutionMetrics;
 import controller.GameController;
+import controller.LatestFrameSlot;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -16,6 +17,11 @@ import javafx.scene.control.Alert.AlertType;
 import javafx.scene.image.Image;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
+import model.DensityMap;
+import model.GenerationResult;
+import model.PackedStates;
+import model.PopulationStatistics;
+import model.ViewportResult;
 
 public class MainFrame extends BorderPane implements GameOfLifeFrame {
 	
@@ -24,6 +30,7 @@ public class MainFrame extends BorderPane implements GameOfLifeFrame {
 	
 	private GameController controller;
 	private final Stage stage;
+	private final FramePacer pacer;
 	
 	@FXML
 	private CellMapViewer cellMapViewer;
@@ -38,6 +45,7 @@ public class MainFrame extends BorderPane implements GameOfLifeFrame {
 	public MainFrame(final Stage stage) {
 		Objects.requireNonNull(stage);
         this.stage = stage;
+        this.pacer = new FramePacer(this);
         
 		final FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("MainFrame.fxml"));
 		fxmlLoader.setRoot(this);
@@ -99,13 +107,50 @@ public class MainFrame extends BorderPane implements GameOfLifeFrame {
 	}
 
 	@Override
-	public void drawCells(final boolean[][] cells, CountDownLatch latch) {		
-		this.cellMapViewer.drawCells(cells, latch);
+	public void drawCells(final PackedStates cells) {		
+		this.cellMapViewer.drawCells(cells);
+	}
+	
+	@Override
+	public void setCells(final PackedStates cells) {
+		this.cellMapViewer.setCells(cells);
+	}
+	
+	@Override
+	public void drawViewport(final ViewportResult viewport) {
+		this.cellMapViewer.drawViewport(viewport);
+	}
+	
+	@Override
+	public void startRendering(final LatestFrameSlot<GenerationResult> frames,
+			final LatestFrameSlot<ViewportResult> viewportFrames, final int minTickTime) {
+		this.pacer.startRendering(frames, viewportFrames, minTickTime);
+	}
+	
+	@Override
+	public void setRenderingSpeed(final int minTickTime) {
+		this.pacer.setMinTickTime(minTickTime);
+	}
+	
+	@Override
+	public void stopRendering(final boolean showLast) {
+		this.pacer.stopRendering(showLast);
 	}
 
 	@Override
-	public void setGenerationInfo(final long generation, final long elapsedTime, final long cellsAlive) {
-		this.menuPanel.setGenerationInfo(generation, elapsedTime, cellsAlive);
+	public void drawOverview(final DensityMap density, final PackedStates cells) {
+		this.menuPanel.drawOverview(density, cells);
+	}
+
+	@Override
+	public void setGenerationInfo(final long generation, final long elapsedTime, final long allocatedBytes,
+			final long cellsAlive) {
+		this.menuPanel.setGenerationInfo(generation, elapsedTime, allocatedBytes, cellsAlive);
+	}
+
+	@Override
+	public void setPopulationStatistics(final PopulationStatistics statistics) {
+		this.menuPanel.setPopulationStatistics(statistics);
 	}
 
 	@Override
@@ -132,6 +177,11 @@ public class MainFrame extends BorderPane implements GameOfLifeFrame {
 		return this.menuPanel.getMapDimension();
 	}
 	
+	@Override
+	public Optional<String> getRule() {
+		return this.menuPanel.getRule();
+	}
+	
 	@Override
 	public void setProgress(final ProgressType progressType, final String title) {
 		this.menuPanel.setProgress(progressType, title);
@@ -142,6 +192,16 @@ public class MainFrame extends BorderPane implements GameOfLifeFrame {
 		this.menuPanel.updateProgress(value);
 	}
 	
+	@Override
+	public void setComputationSpeed(final double cellsPerSecond) {
+		this.menuPanel.setComputationSpeed(cellsPerSecond);
+	}
+	
+	@Override
+	public void setExecutionMetrics(final ExecutionMetrics metrics) {
+		this.menuPanel.setExecutionMetrics(metrics);
+	}
+	
 	/**
 	 * Get the menu panel of the main frame
 	 * @return
@@ -3,32 +3,50 @@ package view;
 import java.awt.Dimension;
 import java.util.Optional;
 
+import controller.ExecutionMetrics;
+import controller.ExecutionMode;
 import controller.GameController;
+import controller.SchedulingMode;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Slider;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
+import model.DensityMap;
+import model.PackedStates;
+import model.PopulationStatistics;
+import model.TileKernelType;
 
 public class MenuPanel extends VBox {
 
 	@FXML
 	private TextField mapWidth, mapHeight;
 	
+	@FXML
+	private ComboBox<String> rule;
+	
+	@FXML
+	private ComboBox<Integer> generationsPerStep;
+	
 	@FXML
 	private MiniatureCellMap miniatureCellMap;
 	
 	@FXML
-	private Label currentPosition, viewableCells, generation, elapsedTime, cellsAlive, errorLabel, loadingLabel, sliderValue, avgElapsedTime;
+	private Label currentPosition, viewableCells, generation, elapsedTime, allocatedMemory, cellsAlive, errorLabel, loadingLabel, sliderValue, avgElapsedTime, computationSpeed, executionMetrics, populationStatistics;
 	
 	@FXML
 	private Button start, stop, reset;
 	
+	@FXML
+	private CheckBox virtualThreads, dataflow, viewportFirst, adaptiveEngine, lookupKernel, statisticsRecording, viewerServer;
+	
 	@FXML
 	private Pane cellMapContainer;
 	
@@ -80,6 +98,54 @@ public class MenuPanel extends VBox {
 			this.controller.setViewSpeed((int)slider.getValue());
 		});
 		
+		virtualThreads.setSelected(this.controller.getExecutionMode() == ExecutionMode.VIRTUAL_THREADS);
+		virtualThreads.setOnMouseClicked(e -> {
+			this.controller.setExecutionMode(virtualThreads.isSelected()
+					? ExecutionMode.VIRTUAL_THREADS : ExecutionMode.PLATFORM_THREADS);
+		});
+		
+		dataflow.setSelected(this.controller.getSchedulingMode() == SchedulingMode.DATAFLOW);
+		dataflow.setOnMouseClicked(e -> {
+			viewportFirst.setSelected(false);
+			this.controller.setSchedulingMode(dataflow.isSelected()
+					? SchedulingMode.DATAFLOW : SchedulingMode.GENERATION_BARRIER);
+		});
+		
+		viewportFirst.setSelected(this.controller.getSchedulingMode() == SchedulingMode.VIEWPORT_FIRST);
+		viewportFirst.setOnMouseClicked(e -> {
+			dataflow.setSelected(false);
+			this.controller.setSchedulingMode(viewportFirst.isSelected()
+					? SchedulingMode.VIEWPORT_FIRST : SchedulingMode.GENERATION_BARRIER);
+		});
+		
+		adaptiveEngine.setSelected(this.controller.isAdaptiveEngine());
+		adaptiveEngine.setOnMouseClicked(e -> {
+			this.controller.setAdaptiveEngine(adaptiveEngine.isSelected());
+		});
+		
+		lookupKernel.setSelected(this.controller.getTileKernel() == TileKernelType.LOOKUP_TABLE);
+		lookupKernel.setOnMouseClicked(e -> {
+			this.controller.setTileKernel(lookupKernel.isSelected()
+					? TileKernelType.LOOKUP_TABLE : TileKernelType.NEIGHBOR_COUNT);
+		});
+		
+		statisticsRecording.setSelected(this.controller.isStatisticsRecording());
+		statisticsRecording.setOnMouseClicked(e -> {
+			this.controller.setStatisticsRecording(statisticsRecording.isSelected());
+		});
+		
+		viewerServer.setOnMouseClicked(e -> {
+			this.controller.setViewerServerEnabled(viewerServer.isSelected());
+			final Optional<Integer> port = this.controller.getViewerServerPort();
+			viewerServer.setSelected(port.isPresent());
+			viewerServer.setText("Serve browser viewers" + port.map(p -> " on port " + p).orElse(""));
+		});
+		
+		generationsPerStep.setValue(this.controller.getGenerationsPerStep());
+		generationsPerStep.setOnAction(e -> {
+			this.controller.setGenerationsPerStep(generationsPerStep.getValue());
+		});
+		
 		start.setOnMouseClicked(e -> {
 			this.start.setDisable(true);
 			this.stop.setDisable(false);
@@ -122,6 +188,19 @@ public class MenuPanel extends VBox {
 	}
 	
 	
+	/**
+	 * Get the rule inserted by user, in B/S notation
+	 * @return
+	 * 		rule of the game inserted by user
+	 */
+	public Optional<String> getRule() {
+		final String notation = this.rule.getEditor().getText();
+		if (notation != null && !notation.trim().isEmpty()) {
+			return Optional.of(notation.trim());
+		}
+		return Optional.empty();
+	}
+	
 	/**
 	 * Set the info about the current position of the preview
 	 * @param x
@@ -150,6 +229,17 @@ public class MenuPanel extends VBox {
 		this.miniatureCellMap.setLimits(x, y);
 	}
 	
+	/**
+	 * Update the overview of the whole map
+	 * @param density
+	 * 		density pyramid of the current generation
+	 * @param cells
+	 * 		cells of the current generation
+	 */
+	public void drawOverview(final DensityMap density, final PackedStates cells) {
+		this.miniatureCellMap.setCellsToDraw(density, cells);
+	}
+	
 	/**
 	 * Set the info about how many cells are viewable
 	 * @param x
@@ -158,6 +248,7 @@ public class MenuPanel extends VBox {
 	 * 		cells viewable in height
 	 */
 	public void setViewableCells(final int x, final int y) {
+		miniatureCellMap.setViewportSize(x, y);
 		Platform.runLater(new Runnable() {			
 			@Override
 			public void run() {
@@ -172,15 +263,18 @@ public class MenuPanel extends VBox {
 	 * 		number of the generation
 	 * @param time
 	 * 		time elapsed to calculate this generation
+	 * @param allocated
+	 * 		bytes allocated to calculate this generation (negative if not measured)
 	 * @param cells
 	 * 		currently alive cells
 	 */
-	public void setGenerationInfo(final long gen, final long time, final long cells) {
+	public void setGenerationInfo(final long gen, final long time, final long allocated, final long cells) {
 		Platform.runLater(new Runnable() {
 			@Override
 			public void run() {
 				generation.setText("" + gen);
 				elapsedTime.setText("" + time + "ms");
+				allocatedMemory.setText(allocated < 0 ? "-" : formatBytes(allocated));
 				cellsAlive.setText("" + cells);
 				
 				avgElapsedSum += time;
@@ -192,6 +286,38 @@ public class MenuPanel extends VBox {
 		});	
 	}
 	
+	/*
+	 * Formats a memory size with the largest unit keeping it at least 1.
+	 */
+	private static String formatBytes(final long bytes) {
+		if (bytes < 1024) {
+			return bytes + " B";
+		}
+		if (bytes < 1024 * 1024) {
+			return String.format("%.1f KB", bytes / 1024.0);
+		}
+		return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+	}
+	
+	/**
+	 * Set the population statistics of the current generation
+	 * @param statistics
+	 * 		statistics of the generation
+	 */
+	public void setPopulationStatistics(final PopulationStatistics statistics) {
+		final String box = statistics.getBoundingBox()
+				.map(b -> b.width + "x" + b.height + " at (" + b.x + ", " + b.y + ")").orElse("-");
+		final String center = statistics.getCenterOfMass()
+				.map(c -> String.format("(%.1f, %.1f)", c.getX(), c.getY())).orElse("-");
+		Platform.runLater(new Runnable() {
+			@Override
+			public void run() {
+				populationStatistics.setText("+" + statistics.getBirths() + " / -" + statistics.getDeaths()
+						+ "\nBox " + box + "\nCenter " + center);
+			}
+		});
+	}
+	
 	/**
 	 * Invoked when computation started
 	 */
@@ -205,6 +331,14 @@ public class MenuPanel extends VBox {
 				
 				mapWidth.setDisable(true);
 				mapHeight.setDisable(true);
+				rule.setDisable(true);
+				lookupKernel.setDisable(true);
+				virtualThreads.setDisable(true);
+				generationsPerStep.setDisable(true);
+				dataflow.setDisable(true);
+				viewportFirst.setDisable(true);
+				adaptiveEngine.setDisable(true);
+				statisticsRecording.setDisable(true);
 			}
 		});	
 	}
@@ -219,6 +353,12 @@ public class MenuPanel extends VBox {
 				start.setDisable(false);
 				reset.setDisable(false);
 				stop.setDisable(true);
+				virtualThreads.setDisable(false);
+				generationsPerStep.setDisable(false);
+				dataflow.setDisable(false);
+				viewportFirst.setDisable(false);
+				adaptiveEngine.setDisable(false);
+				statisticsRecording.setDisable(false);
 			}
 		});		
 	}
@@ -236,7 +376,15 @@ public class MenuPanel extends VBox {
 				errorLabel.setVisible(false);
 				
 				mapWidth.setDisable(false);
-				mapHeight.setDisable(false);			
+				mapHeight.setDisable(false);
+				rule.setDisable(false);
+				lookupKernel.setDisable(false);
+				virtualThreads.setDisable(false);
+				generationsPerStep.setDisable(false);
+				dataflow.setDisable(false);
+				viewportFirst.setDisable(false);
+				adaptiveEngine.setDisable(false);
+				statisticsRecording.setDisable(false);
 
 			}
 		});	
@@ -244,7 +392,14 @@ public class MenuPanel extends VBox {
 		miniatureCellMap.reset();
 		avgElapsedSum = 0;
 		setCurrentPosition(0, 0);
-		setGenerationInfo(0, 0, 0);
+		setGenerationInfo(0, 0, 0, 0);
+		setComputationSpeed(0);
+		Platform.runLater(new Runnable() {
+			@Override
+			public void run() {
+				populationStatistics.setText("");
+			}
+		});
 	}
 
 	
@@ -279,6 +434,34 @@ public class MenuPanel extends VBox {
 		});	
 	}
 	
+	/**
+	 * Set the instantaneous computation speed
+	 * @param cellsPerSecond
+	 * 		number of cells computed per second
+	 */
+	public void setComputationSpeed(final double cellsPerSecond) {
+		Platform.runLater(new Runnable() {			
+			@Override
+			public void run() {
+				computationSpeed.setText(String.format("%.0f cells/s", cellsPerSecond));
+			}
+		});	
+	}
+	
+	/**
+	 * Set the measures of the current (or last) run
+	 * @param metrics
+	 * 		start/stop latency and context switches of the run
+	 */
+	public void setExecutionMetrics(final ExecutionMetrics metrics) {
+		Platform.runLater(new Runnable() {			
+			@Override
+			public void run() {
+				executionMetrics.setText(metrics.toString());
+			}
+		});	
+	}
+	
 	/**
 	 * Gets the value of the slider for min time to refresh
 	 * @return
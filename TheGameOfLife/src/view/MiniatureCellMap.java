@@ -4,17 +4,51 @@ package view;
 import javafx.application.Platform;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
+import model.DensityMap;
+import model.PackedStates;
 
+/**
+ * Zoomable overview of the whole map.
+ * Each pixel shows the density of a block of the density pyramid, so any zoom level
+ * (changed with the mouse wheel) is drawn with a cost depending only on the canvas size.
+ */
 public class MiniatureCellMap extends Canvas {
-	
+
 	private static final Color BACKGROUND_COLOR = new Color(0.23, 0.23, 0.23, 1);
+	private static final Color DENSE_COLOR = Color.AQUA;
+	private static final Color POSITION_COLOR = Color.ORANGE;
+	private static final int BACKGROUND_ARGB = CellMap.toArgb(BACKGROUND_COLOR);
+	private static final int DENSE_ARGB = CellMap.toArgb(DENSE_COLOR);
+	private static final int FIT_LEVEL = Integer.MAX_VALUE;
+
 	private int cellSizeX, cellSizeY;
-	
-	
-	public MiniatureCellMap() { }
-	
-	
+
+	private volatile DensityMap density;
+	private volatile PackedStates cells;
+	private volatile int xPosition, yPosition;
+	private volatile int viewportWidth, viewportHeight;
+	// Requested zoom level (cells per pixel = 2^level)
+	private volatile int level = FIT_LEVEL;
+
+	private WritableImage image;
+
+
+	public MiniatureCellMap() {
+		this.setOnScroll(e -> {
+			final DensityMap current = this.density;
+			if (current != null) {
+				final int fitLevel = getFitLevel(current);
+				final int currentLevel = Math.min(this.level, fitLevel);
+				this.level = e.getDeltaY() > 0 ? Math.max(currentLevel - 1, 0) : Math.min(currentLevel + 1, fitLevel);
+				draw();
+			}
+		});
+	}
+
+
 	/**
 	 * Set the limits of the small map preview
 	 * @param x
@@ -28,6 +62,31 @@ public class MiniatureCellMap extends Canvas {
 		drawCurrentPosition(0, 0);
 	}
 
+	/**
+	 * Set the number of cells shown by the main preview
+	 * @param width
+	 * 		cells viewable in width
+	 * @param height
+	 * 		cells viewable in height
+	 */
+	public void setViewportSize(final int width, final int height) {
+		this.viewportWidth = width;
+		this.viewportHeight = height;
+	}
+
+	/**
+	 * Set the generation to show in the overview
+	 * @param density
+	 * 		density pyramid of the generation
+	 * @param cells
+	 * 		cells of the generation, read one by one at the finest zoom level
+	 */
+	public void setCellsToDraw(final DensityMap density, final PackedStates cells) {
+		this.density = density;
+		this.cells = cells;
+		draw();
+	}
+
 	/**
 	 * Draw a rectangle corresponding at current position on the map
 	 * @param x
@@ -35,32 +94,153 @@ public class MiniatureCellMap extends Canvas {
 	 * @param y
 	 * 		y coordinate of the rectangle
 	 */
-	public void drawCurrentPosition(final int x, final int y) {	
+	public void drawCurrentPosition(final int x, final int y) {
+		this.xPosition = x;
+		this.yPosition = y;
+		draw();
+	}
+
+	/*
+	 * Number of blocks of a level in width (level 0 are the cells).
+	 */
+	private static int levelWidth(final DensityMap density, final int level) {
+		return density.getLevelWidth(Math.min(level, density.getLevelCount()));
+	}
+
+	private static int levelHeight(final DensityMap density, final int level) {
+		return density.getLevelHeight(Math.min(level, density.getLevelCount()));
+	}
+
+	/*
+	 * Finest level at which the whole map fits in the canvas.
+	 */
+	private int getFitLevel(final DensityMap density) {
+		int fit = 0;
+		while (fit < density.getLevelCount()
+				&& (levelWidth(density, fit) > (int) getWidth() || levelHeight(density, fit) > (int) getHeight())) {
+			fit++;
+		}
+		return fit;
+	}
+
+	/**
+	 * Draw the overview at the current zoom level, together with the current position.
+	 */
+	private void draw() {
+		final DensityMap currentDensity = this.density;
+		final PackedStates currentCells = this.cells;
+		if (currentDensity == null || currentCells == null) {
+			drawPositionOnly();
+			return;
+		}
+
+		final int canvasWidth = (int) getWidth();
+		final int canvasHeight = (int) getHeight();
+		final int zoom = Math.min(this.level, getFitLevel(currentDensity));
+		final int blocksX = levelWidth(currentDensity, zoom);
+		final int blocksY = levelHeight(currentDensity, zoom);
+
+		// Magnifies the blocks when the whole level is smaller than the canvas
+		final int scale = Math.max(1, Math.min(canvasWidth / blocksX, canvasHeight / blocksY));
+		final int columns = Math.min(blocksX, canvasWidth / scale);
+		final int rows = Math.min(blocksY, canvasHeight / scale);
+
+		// Centers the overview on the center of the main preview
+		final int viewX = this.xPosition * this.viewportWidth;
+		final int viewY = this.yPosition * this.viewportHeight;
+		final int originX = Math.max(0, Math.min(((viewX + this.viewportWidth / 2) >> zoom) - columns / 2, blocksX - columns));
+		final int originY = Math.max(0, Math.min(((viewY + this.viewportHeight / 2) >> zoom) - rows / 2, blocksY - rows));
+
+		// Rasterizes one block per (scaled) pixel
+		final int width = columns * scale;
+		final int height = rows * scale;
+		final int[] pixels = new int[width * height];
+		final double blockArea = (double) (1L << (2 * zoom));
+		for (int by = 0; by < rows; by++) {
+			for (int bx = 0; bx < columns; bx++) {
+				final double fill = zoom == 0
+						? (currentCells.getState(originX + bx, originY + by) ? 1 : 0)
+						: currentDensity.getCount(zoom, originX + bx, originY + by) / blockArea;
+				final int color = blend(fill);
+				for (int py = by * scale; py < (by + 1) * scale; py++) {
+					final int rowStart = py * width;
+					for (int px = bx * scale; px < (bx + 1) * scale; px++) {
+						pixels[rowStart + px] = color;
+					}
+				}
+			}
+		}
+
+		// Current position of the main preview, in pixels
+		final double positionX = ((double) viewX / (1 << zoom) - originX) * scale;
+		final double positionY = ((double) viewY / (1 << zoom) - originY) * scale;
+		final double positionWidth = Math.max(1, (double) this.viewportWidth / (1 << zoom) * scale);
+		final double positionHeight = Math.max(1, (double) this.viewportHeight / (1 << zoom) * scale);
+
+		Platform.runLater(new Runnable() {
+			@Override
+			public void run() {
+				if (image == null || (int) image.getWidth() != width || (int) image.getHeight() != height) {
+					image = new WritableImage(width, height);
+				}
+				image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+				final GraphicsContext gc = getGraphicsContext2D();
+				gc.clearRect(0, 0, getWidth(), getHeight());
+				gc.drawImage(image, 0, 0);
+				gc.setStroke(POSITION_COLOR);
+				gc.strokeRect(positionX, positionY, positionWidth, positionHeight);
+			}
+		});
+	}
+
+	/*
+	 * Interpolates between the background and the dense color.
+	 */
+	private static int blend(final double fill) {
+		final double f = Math.max(0, Math.min(1, fill));
+		int res = 0xFF000000;
+		for (int shift = 0; shift < 24; shift += 8) {
+			final int a = (BACKGROUND_ARGB >> shift) & 0xFF;
+			final int b = (DENSE_ARGB >> shift) & 0xFF;
+			res |= ((int) Math.round(a + (b - a) * f)) << shift;
+		}
+		return res;
+	}
+
+	/*
+	 * Draws only the current position, when no generation is available.
+	 */
+	private void drawPositionOnly() {
+		final int x = this.xPosition;
+		final int y = this.yPosition;
 		final GraphicsContext gc = getGraphicsContext2D();
-		gc.setFill(Color.ORANGE);
-		
-		Platform.runLater(new Runnable() {			
+
+		Platform.runLater(new Runnable() {
 			@Override
-			public void run() {		
-				gc.clearRect(0, 0, getWidth(), getHeight());				
+			public void run() {
+				gc.setFill(POSITION_COLOR);
+				gc.clearRect(0, 0, getWidth(), getHeight());
 				gc.fillRect((x * cellSizeX), (y * cellSizeY), cellSizeX , cellSizeY);
 			}
-		});	
+		});
 	}
-	
+
 	/**
 	 * Clear the small map preview
 	 */
 	public void reset() {
+		this.density = null;
+		this.cells = null;
+		this.level = FIT_LEVEL;
 		final GraphicsContext gc = getGraphicsContext2D();
 		gc.setFill(BACKGROUND_COLOR);
-		
-		Platform.runLater(new Runnable() {			
+
+		Platform.runLater(new Runnable() {
 			@Override
 			public void run() {
 				gc.clearRect(0, 0, getWidth(), getHeight());
 			}
 		});
 	}
-	
+
 }